@@ -0,0 +1,122 @@
+package com.example.appnews.persistence;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.appnews.presentation.home.NewModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Inserts 10k history rows through old path (check query then single insert per row,
+ * each in own implicit transaction) and through {@link NewsDB#addItems(java.util.Collection, int)}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsDBBenchmark {
+    private static final String DB_NAME = "HackerNewsBenchmark";
+    private static final int ROW_COUNT = 10_000;
+
+    private Context context;
+    private NewsDB newsDB;
+    private List<NewModel> items;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        newsDB = new NewsDB(context, DB_NAME);
+
+        items = new ArrayList<>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            NewModel model = new NewModel();
+            model.id = 23_000_000 + i;
+            model.by = "user" + (i % 100);
+            model.descendants = i % 300;
+            model.score = i % 500;
+            model.time = 1_590_000_000L + i;
+            model.title = "Story number " + i;
+            model.type = "story";
+            model.url = "https://example.com/story/" + i;
+            items.add(model);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        newsDB.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    // Path before bulk api: existence query (cursor was never closed) then insert
+    private long addItemOld(NewModel newModel, int type) {
+        Cursor cursor = newsDB.database().rawQuery("select * from News where idNews=" + newModel.getId() + " and category=" + type + " limit 1", null);
+        boolean exists = cursor.getCount() > 0;
+        cursor.close();
+
+        if (!exists) {
+            ContentValues values = new ContentValues();
+            values.put(DBHelper.by, newModel.getBy());
+            values.put(DBHelper.descendants, newModel.getDescendants());
+            values.put(DBHelper._idNews, newModel.getId());
+            values.put(DBHelper.score, newModel.getScore());
+            values.put(DBHelper.time, newModel.getTime());
+            values.put(DBHelper.title, newModel.getTitle());
+            values.put(DBHelper.type, newModel.getType());
+            values.put(DBHelper.url, newModel.getUrl());
+            values.put(DBHelper.category, type);
+            return newsDB.database().insert(DBHelper.Name_Table, null, values);
+        }
+        return -1;
+    }
+
+    private long countRows() {
+        return DatabaseUtils.queryNumEntries(newsDB.database(), DBHelper.Name_Table);
+    }
+
+    @Test
+    public void addItemsSkipsDuplicates() {
+        List<NewModel> firstHalf = items.subList(0, ROW_COUNT / 2);
+
+        assertEquals(ROW_COUNT / 2, newsDB.addItems(firstHalf, 1));
+        assertEquals(ROW_COUNT / 2, newsDB.addItems(items, 1));
+        assertEquals(ROW_COUNT, countRows());
+
+        // Same story can still be bookmarked
+        assertNotEquals(-1, newsDB.addItem(items.get(0), 2));
+        assertEquals(-1, newsDB.addItem(items.get(0), 2));
+    }
+
+    @Test
+    public void benchmark() {
+        long start = System.nanoTime();
+        for (NewModel item : items) {
+            addItemOld(item, 1);
+        }
+        long oldNanos = System.nanoTime() - start;
+        assertEquals(ROW_COUNT, countRows());
+
+        newsDB.database().delete(DBHelper.Name_Table, null, null);
+
+        start = System.nanoTime();
+        int insertedCount = newsDB.addItems(items, 1);
+        long newNanos = System.nanoTime() - start;
+        assertEquals(ROW_COUNT, insertedCount);
+
+        Log.i("NewsDBBenchmark", String.format("insert %d rows: old %d ms, bulk %d ms",
+                ROW_COUNT, oldNanos / 1_000_000, newNanos / 1_000_000));
+    }
+}
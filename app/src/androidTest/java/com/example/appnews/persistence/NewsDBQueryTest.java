@@ -0,0 +1,115 @@
+package com.example.appnews.persistence;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.appnews.presentation.home.NewModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks lookups of a large history are answered by indexes, not by scanning the table.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsDBQueryTest {
+    private static final String DB_NAME = "HackerNewsQueryTest";
+    private static final int ROW_COUNT = 100_000;
+    private static final int LOOKUP_COUNT = 10_000;
+
+    private Context context;
+    private NewsDB newsDB;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DB_NAME);
+        newsDB = new NewsDB(context, DB_NAME);
+
+        List<NewModel> items = new ArrayList<>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; ++i) {
+            NewModel model = new NewModel();
+            model.id = i;
+            model.title = "Story number " + i;
+            model.type = "story";
+            items.add(model);
+        }
+        // Half history, half bookmark
+        newsDB.addItems(items.subList(0, ROW_COUNT / 2), 1);
+        newsDB.addItems(items.subList(ROW_COUNT / 2, ROW_COUNT), 2);
+    }
+
+    @After
+    public void tearDown() {
+        newsDB.close();
+        context.deleteDatabase(DB_NAME);
+    }
+
+    private String queryPlan(String sql, String... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = newsDB.database().rawQuery("explain query plan " + sql, args)) {
+            int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(detailIndex)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    @Test
+    public void lookupsUseIndexes() {
+        String existsPlan = queryPlan("select 1 from News where idNews = ? and category = ?", "1", "1");
+        String listPlan = queryPlan("select id from News where category = ? order by id desc", "1");
+
+        assertTrue(existsPlan, existsPlan.contains("News_idNews_category"));
+        assertTrue(listPlan, listPlan.contains("News_category_id"));
+        assertFalse(listPlan, listPlan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void checksExistenceWithoutReadingRows() {
+        assertTrue(newsDB.checkID(1, 1));
+        assertFalse(newsDB.checkID(1, 2));
+        assertTrue(newsDB.checkID(ROW_COUNT - 1, 2));
+        assertFalse(newsDB.checkID(ROW_COUNT, 1));
+
+        long start = System.nanoTime();
+        int hitCount = 0;
+        for (int i = 0; i < LOOKUP_COUNT; ++i) {
+            if (newsDB.checkID(i * 7 % ROW_COUNT, 1)) {
+                ++hitCount;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+
+        assertTrue(hitCount > 0);
+        Log.i("NewsDBQueryTest", String.format("exists lookup at %d rows: %.1f us/op",
+                ROW_COUNT, nanos / 1000.0 / LOOKUP_COUNT));
+    }
+
+    @Test
+    public void deletesAndListsNewestFirst() {
+        assertEquals(1, newsDB.deleteItem(ROW_COUNT / 2 - 1, 1));
+        assertEquals(0, newsDB.deleteItem(ROW_COUNT / 2 - 1, 1));
+
+        try (Cursor cursor = newsDB.getAllItem(1)) {
+            assertEquals(ROW_COUNT / 2 - 1, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+
+            NewModel newest = NewsDB.readItem(cursor);
+            assertEquals(ROW_COUNT / 2 - 2, newest.id);
+            assertEquals("Story number " + newest.id, newest.title);
+        }
+    }
+}
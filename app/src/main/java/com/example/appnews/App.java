@@ -1,7 +1,24 @@
 package com.example.appnews;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
 import tool.compet.appbundle.arch.DkSimpleApp;
+import tool.compet.core.datetime.DkDateTimes;
 
 public class App extends DkSimpleApp {
+    @Override
+    public void onCreate() {
+        super.onCreate();
 
+        // Cached date formatters keep the timezone they were created with
+        registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                DkDateTimes.onTimeZoneChanged();
+            }
+        }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+    }
 }
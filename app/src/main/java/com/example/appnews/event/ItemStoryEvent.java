@@ -1,5 +1,7 @@
 package com.example.appnews.event;
 
+import com.example.appnews.presentation.home.NewModel;
+
 public interface ItemStoryEvent {
-    public void itemClick(int id, int type);
+    public void itemClick(NewModel story, int type);
 }
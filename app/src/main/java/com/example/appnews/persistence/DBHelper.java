@@ -8,6 +8,10 @@ import androidx.annotation.Nullable;
 
 public class DBHelper extends SQLiteOpenHelper {
     public static final String Name_DB = "HackerNews";
+    // 1: initial
+    // 2: fix name of author column, unique (idNews, category)
+    // 3: index (category, id) for listing a category newest first
+    public static final int Version_DB = 3;
     public static final String Name_Table = "News";
 
     public static final String by = "bytext";
@@ -25,7 +29,7 @@ public class DBHelper extends SQLiteOpenHelper {
             + "create table " + Name_Table + " ( "
             + _id + " integer primary key autoincrement ,"
             + _idNews + " integer ,"
-            + by + "text , "
+            + by + " text , "
             + descendants + " text , "
             + score + " integer  , "
             + time + " text  , "
@@ -34,18 +38,50 @@ public class DBHelper extends SQLiteOpenHelper {
             + url + " text ,"
             + category + " integer ); ";
 
+    // A story is saved at most once per category, lets insert use "insert or ignore"
+    private static final String Create_unique_index = ""
+            + "create unique index if not exists " + Name_Table + "_idNews_category on "
+            + Name_Table + " ( " + _idNews + " , " + category + " ); ";
+
+    // Serves "where category = ? order by id desc" without scanning or sorting
+    private static final String Create_category_index = ""
+            + "create index if not exists " + Name_Table + "_category_id on "
+            + Name_Table + " ( " + category + " , " + _id + " ); ";
+
     public DBHelper(Context context) {
-        super(context, Name_DB, null, 1);
+        this(context, Name_DB);
+    }
+
+    public DBHelper(Context context, String name) {
+        super(context, name, null, Version_DB);
+        // Readers are not blocked by the writer, and a commit costs one append to the log
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(Create_table);
+        db.execSQL(Create_unique_index);
+        db.execSQL(Create_category_index);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS News");
-        onCreate(db);
+        if (oldVersion < 2) {
+            // Version 1 named author column "bytexttext", rebuild the table and keep first
+            // row of duplicated (idNews, category) so unique index can be created
+            db.execSQL("alter table " + Name_Table + " rename to " + Name_Table + "_v1");
+            onCreate(db);
+            db.execSQL("insert or ignore into " + Name_Table + " ( "
+                    + _id + " , " + _idNews + " , " + by + " , " + descendants + " , " + score + " , "
+                    + time + " , " + title + " , " + type + " , " + url + " , " + category + " ) "
+                    + "select " + _id + " , " + _idNews + " , bytexttext , " + descendants + " , " + score + " , "
+                    + time + " , " + title + " , " + type + " , " + url + " , " + category
+                    + " from " + Name_Table + "_v1 order by " + _id);
+            db.execSQL("drop table " + Name_Table + "_v1");
+        }
+        if (oldVersion < 3) {
+            db.execSQL(Create_category_index);
+        }
     }
 }
@@ -0,0 +1,193 @@
+package com.example.appnews.persistence;
+
+import com.example.appnews.presentation.home.NewModel;
+import com.example.appnews.presentation.home.NewModelTypeAdapter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.util.DkLogs;
+
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Persistent cache of fetched Hacker News items, one json file per id. An entry is kept
+ * after it becomes stale, so callers can show it at once and revalidate in background.
+ * How long an item stays fresh depends on its type: score and comment count of a story
+ * change within minutes, while jobs and comments rarely change.
+ * <p></p>
+ * Thread-safe, files are replaced atomically. Do not use it on main thread.
+ */
+public class ItemCache {
+    private static final String SUFFIX = ".json";
+    private static final String TOP_STORIES = "topstories";
+
+    public static final long STORY_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    public static final long JOB_TTL_MILLIS = TimeUnit.HOURS.toMillis(6);
+    public static final long COMMENT_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    public static final long TOP_STORIES_TTL_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    // Entries not touched for this long are removed by trim()
+    public static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(3);
+
+    public static class Entry {
+        public final NewModel model;
+        public final boolean isStale;
+        // Time the entry was written
+        public final long savedAt;
+
+        Entry(NewModel model, boolean isStale, long savedAt) {
+            this.model = model;
+            this.isStale = isStale;
+            this.savedAt = savedAt;
+        }
+    }
+
+    private final File dir;
+
+    public ItemCache(File dir) {
+        this.dir = dir;
+    }
+
+    public static long ttlOf(String type) {
+        if (type == null) {
+            return DEFAULT_TTL_MILLIS;
+        }
+        switch (type) {
+            case "story":
+            case "poll":
+                return STORY_TTL_MILLIS;
+            case "job":
+                return JOB_TTL_MILLIS;
+            case "comment":
+                return COMMENT_TTL_MILLIS;
+            default:
+                return DEFAULT_TTL_MILLIS;
+        }
+    }
+
+    /**
+     * @return cached item (fresh or stale), or null if the id was never cached.
+     */
+    public Entry get(String id) {
+        File file = new File(dir, id + SUFFIX);
+        long savedAt = file.lastModified();
+
+        if (savedAt == 0L) {
+            return null;
+        }
+
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+            NewModel model = NewModelTypeAdapter.getIns().decode(is);
+            if (model == null) {
+                return null;
+            }
+            boolean isStale = System.currentTimeMillis() - savedAt > ttlOf(model.type);
+            return new Entry(model, isStale, savedAt);
+        }
+        catch (Exception e) {
+            // Broken entry (for eg,. process was killed while writing), just refetch it
+            if (DEBUG) {
+                DkLogs.log(this, "Ignore broken cache entry %s: %s", id, e.getMessage());
+            }
+            file.delete();
+            return null;
+        }
+    }
+
+    public void put(NewModel model) {
+        write(String.valueOf(model.id), os -> NewModelTypeAdapter.getIns().encode(os, model));
+    }
+
+    /**
+     * Removes cached item of given id, for eg,. when it is known to be changed on server.
+     */
+    public void invalidate(String id) {
+        new File(dir, id + SUFFIX).delete();
+    }
+
+    /**
+     * @return cached id list of top stories, or null if not cached.
+     */
+    public List<String> getTopStoryIds() {
+        File file = new File(dir, TOP_STORIES + SUFFIX);
+
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+            String[] ids = NewModelTypeAdapter.decodeIds(is);
+            return ids == null ? null : Arrays.asList(ids);
+        }
+        catch (Exception e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    public boolean isTopStoryIdsStale() {
+        File file = new File(dir, TOP_STORIES + SUFFIX);
+        return System.currentTimeMillis() - file.lastModified() > TOP_STORIES_TTL_MILLIS;
+    }
+
+    public void putTopStoryIds(List<String> ids) {
+        write(TOP_STORIES, os -> NewModelTypeAdapter.encodeIds(os, ids));
+    }
+
+    /**
+     * Removes entries which were not updated for {@link #MAX_AGE_MILLIS}.
+     */
+    public void trim() {
+        File[] files = dir.listFiles();
+
+        if (files != null) {
+            long now = System.currentTimeMillis();
+            int removedCount = 0;
+
+            for (File file : files) {
+                if (now - file.lastModified() > MAX_AGE_MILLIS && file.delete()) {
+                    ++removedCount;
+                }
+            }
+            if (DEBUG) {
+                DkLogs.log(this, "Trimmed %d cache entries", removedCount);
+            }
+        }
+    }
+
+    private interface Encoder {
+        void encode(OutputStream os) throws IOException;
+    }
+
+    private void write(String name, Encoder encoder) {
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+            return;
+        }
+
+        // Write to a unique temp file then rename, so readers never see a partial entry
+        File target = new File(dir, name + SUFFIX);
+        File temp = new File(dir, name + "." + Thread.currentThread().getId() + ".tmp");
+
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(temp))) {
+            encoder.encode(os);
+        }
+        catch (IOException e) {
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+        }
+    }
+}
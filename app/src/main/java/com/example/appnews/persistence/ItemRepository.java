@@ -0,0 +1,216 @@
+package com.example.appnews.persistence;
+
+import com.example.appnews.presentation.home.NewModel;
+import com.example.appnews.service.Cancellation;
+import com.example.appnews.service.HnApi;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Items fetched from network, shared by all screens. Recently fetched items are served
+ * from memory while fresh (by {@link ItemCache#ttlOf(String)} of their type), and concurrent
+ * requests for same id share one network call (single-flight).
+ * <p></p>
+ * If the caller which started a shared call is cancelled, other callers waiting for it
+ * fetch again by themselves instead of failing.
+ * <p></p>
+ * Thread-safe.
+ */
+public class ItemRepository {
+    public static final int MEMORY_CAPACITY = 512;
+
+    public interface Source {
+        NewModel loadItem(String id, Cancellation cancellation) throws IOException;
+    }
+
+    private static ItemRepository INS;
+
+    private final Source source;
+    private final LinkedHashMap<String, MemoryEntry> memory;
+    // Network calls in flight, keyed by id
+    private final HashMap<String, Flight> flights = new HashMap<>();
+
+    public static ItemRepository getIns() {
+        if (INS == null) {
+            synchronized (ItemRepository.class) {
+                if (INS == null) {
+                    INS = new ItemRepository(new HnApi()::loadItem, MEMORY_CAPACITY);
+                }
+            }
+        }
+        return INS;
+    }
+
+    public ItemRepository(Source source, int memoryCapacity) {
+        this.source = source;
+        this.memory = new LinkedHashMap<String, MemoryEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MemoryEntry> eldest) {
+                return size() > memoryCapacity;
+            }
+        };
+    }
+
+    /**
+     * Gets fresh item from memory, or fetches it (joining the call in flight for same id if any).
+     * Blocks, so call it on worker thread.
+     *
+     * @throws IOException when fetching failed, or given cancellation was cancelled.
+     */
+    public NewModel get(String id, Cancellation cancellation) throws IOException {
+        while (true) {
+            Flight flight;
+            boolean isStarter = false;
+            synchronized (this) {
+                NewModel model = peekLocked(id);
+                if (model != null) {
+                    return model;
+                }
+
+                flight = flights.get(id);
+                if (flight == null) {
+                    flight = new Flight(cancellation);
+                    flights.put(id, flight);
+                    isStarter = true;
+                }
+            }
+
+            if (isStarter) {
+                return fetch(id, flight);
+            }
+            if (flight.await(cancellation)) {
+                if (flight.error != null) {
+                    throw new IOException("Failed to load item " + id, flight.error);
+                }
+                return flight.model;
+            }
+            // Starter of the call was cancelled, fetch again
+        }
+    }
+
+    /**
+     * @return fresh item in memory, or null.
+     */
+    public synchronized NewModel peek(String id) {
+        return peekLocked(id);
+    }
+
+    /**
+     * Forgets given items, for eg,. when they were changed. Next get will fetch them again.
+     */
+    public synchronized void invalidate(Collection<String> ids) {
+        for (String id : ids) {
+            memory.remove(id);
+        }
+    }
+
+    private NewModel peekLocked(String id) {
+        MemoryEntry entry = memory.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            memory.remove(id);
+            return null;
+        }
+        return entry.model;
+    }
+
+    private NewModel fetch(String id, Flight flight) throws IOException {
+        NewModel model = null;
+        IOException error = null;
+
+        try {
+            model = source.loadItem(id, flight.cancellation);
+        }
+        catch (IOException e) {
+            error = e;
+        }
+        catch (RuntimeException e) {
+            // For eg,. malformed json
+            error = new IOException(e);
+        }
+
+        synchronized (this) {
+            flights.remove(id);
+            if (model != null) {
+                long expiresAt = System.currentTimeMillis() + ItemCache.ttlOf(model.type);
+                memory.put(id, new MemoryEntry(model, expiresAt));
+            }
+        }
+        flight.complete(model, error);
+
+        if (error != null) {
+            throw error;
+        }
+        return model;
+    }
+
+    private static class MemoryEntry {
+        final NewModel model;
+        final long expiresAt;
+
+        MemoryEntry(NewModel model, long expiresAt) {
+            this.model = model;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // A network call in flight, joined by callers of same id
+    private static class Flight {
+        // Of the caller which started the call
+        final Cancellation cancellation;
+        NewModel model;
+        IOException error;
+        boolean isDone;
+
+        Flight(Cancellation cancellation) {
+            this.cancellation = cancellation;
+        }
+
+        synchronized void complete(NewModel model, IOException error) {
+            this.model = model;
+            this.error = error;
+            this.isDone = true;
+            notifyAll();
+        }
+
+        /**
+         * Waits until the call is done or given cancellation was cancelled.
+         *
+         * @return true if result can be used, false if starter was cancelled so the call was aborted.
+         * @throws IOException when given cancellation was cancelled.
+         */
+        synchronized boolean await(Cancellation waiterCancellation) throws IOException {
+            Runnable wake = () -> {
+                synchronized (Flight.this) {
+                    Flight.this.notifyAll();
+                }
+            };
+            waiterCancellation.register(wake);
+
+            try {
+                while (!isDone && !waiterCancellation.isCancelled()) {
+                    wait();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for item");
+            }
+            finally {
+                waiterCancellation.unregister(wake);
+            }
+
+            if (!isDone) {
+                throw new IOException("Cancelled");
+            }
+            return error == null || !cancellation.isCancelled();
+        }
+    }
+}
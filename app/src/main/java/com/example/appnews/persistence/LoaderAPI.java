@@ -1,34 +1,28 @@
 package com.example.appnews.persistence;
 
 import com.example.appnews.presentation.home.NewModel;
+import com.example.appnews.presentation.home.StoryPager;
+import com.example.appnews.service.HnApi;
 
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 
-import tool.compet.core.helper.DkJsonHelper;
 import tool.compet.core.util.DkLogs;
-import tool.compet.core.util.DkStrings;
-import tool.compet.core.util.Dks;
 
 import static tool.compet.core.BuildConfig.DEBUG;
 
 public class LoaderAPI {
+    private final HnApi api = new HnApi();
 
     public ArrayList<NewModel> loadNews() throws Exception {
-        String articleIdsLink = "https://hacker-news.firebaseio.com/v0/topstories.json?print=pretty";
-
-        URL url = new URL(articleIdsLink);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-
-        conn.setConnectTimeout(30_000);
-        conn.setReadTimeout(30_000);
-        conn.setRequestMethod("GET");
-        conn.setDoInput(true);
+        return loadNews(0, StoryPager.PAGE_SIZE);
+    }
 
-        String json = Dks.stream2string(conn.getInputStream());
-        String[] articleIds = DkJsonHelper.getIns().json2obj(json, String[].class);
+    /**
+     * Loads a window of top stories, from given offset in ranking.
+     */
+    public ArrayList<NewModel> loadNews(int offset, int count) throws Exception {
+        String[] articleIds = api.loadTopStoryIds();
 
         if (DEBUG) {
             DkLogs.log(this, "article ids: %s", Arrays.toString(articleIds));
@@ -37,13 +31,8 @@ public class LoaderAPI {
         ArrayList<NewModel> newModels = new ArrayList<>();
 
         if (articleIds != null) {
-            for (String articleId : articleIds) {
-                NewModel model = new NewModel();
-                model = loadItem(articleId);
-                newModels.add(model);
-                if (newModels.size() > 10) {
-                    break;
-                }
+            for (int i = offset, end = Math.min(articleIds.length, offset + count); i < end; ++i) {
+                newModels.add(loadItem(articleIds[i]));
             }
         }
 
@@ -51,24 +40,7 @@ public class LoaderAPI {
     }
 
     public NewModel loadItem(String id) throws Exception  {
-        String articleLink = DkStrings.format("https://hacker-news.firebaseio.com/v0/item/%s.json?print=pretty", id);
-
-        URL url = new URL(articleLink);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn = (HttpURLConnection) url.openConnection();
-
-        conn.setConnectTimeout(30_000);
-        conn.setReadTimeout(30_000);
-        conn.setRequestMethod("GET");
-        conn.setDoInput(true);
-
-        String articleJson = Dks.stream2string(conn.getInputStream());
-
-        if (DEBUG) {
-            //DkLogs.log(this, "article json: %s", articleJson);
-        }
-
-        NewModel newModel = DkJsonHelper.getIns().json2obj(articleJson, NewModel.class);
+        NewModel newModel = api.loadItem(id);
         if (DEBUG) {
             DkLogs.log(this, "article by: %s", newModel.url);
         }
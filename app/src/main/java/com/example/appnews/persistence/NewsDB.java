@@ -1,69 +1,377 @@
 package com.example.appnews.persistence;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import com.example.appnews.presentation.home.NewModel;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.stream.observable.DkObservable;
+import tool.compet.core.stream.scheduler.DkScheduler;
+import tool.compet.core.stream.scheduler.DkSchedulers;
+import tool.compet.core.util.DkLogs;
+
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Saved items (history and bookmarks), one shared handle in WAL mode for the whole app.
+ * <p></p>
+ * Every read and write runs on a dedicated database thread, and is exposed as a
+ * {@link DkObservable} which is subscribed on that thread, so callers never touch disk on
+ * main thread. Observe results with {@link DkObservable#observeOnMainThread()} as needed.
+ * <p></p>
+ * History inserts are written behind: they are queued and written in one transaction
+ * {@link #WRITE_BEHIND_DELAY_MILLIS} after the first one, so a burst of opened stories costs
+ * one commit. Reads and deletes of history write the queue first, so they always see it.
+ */
 public class NewsDB {
+    public static final int CATEGORY_HISTORY = 1;
+    public static final int CATEGORY_BOOKMARK = 2;
+
+    public static final long WRITE_BEHIND_DELAY_MILLIS = 500;
+
+    private static final String Insert_item = ""
+            + "insert or ignore into " + DBHelper.Name_Table + " ( "
+            + DBHelper.by + " , "
+            + DBHelper.descendants + " , "
+            + DBHelper._idNews + " , "
+            + DBHelper.score + " , "
+            + DBHelper.time + " , "
+            + DBHelper.title + " , "
+            + DBHelper.type + " , "
+            + DBHelper.url + " , "
+            + DBHelper.category + " ) "
+            + "values ( ?, ?, ?, ?, ?, ?, ?, ?, ? )";
+
+    // Answered from unique index (idNews, category), no row is read
+    private static final String Exists_item = ""
+            + "select exists ( select 1 from " + DBHelper.Name_Table
+            + " where " + DBHelper._idNews + " = ? and " + DBHelper.category + " = ? )";
+
+    private static final String Delete_item = ""
+            + "delete from " + DBHelper.Name_Table
+            + " where " + DBHelper._idNews + " = ? and " + DBHelper.category + " = ?";
+
+    private static final String Select_category = DBHelper.category + " = ?";
+    private static final String Select_category_before = DBHelper.category + " = ? and " + DBHelper._id + " < ?";
+    private static final String Order_newest_first = DBHelper._id + " desc";
+
+    /**
+     * Columns read by item list screens, read a row with {@link #readItem(Cursor)}.
+     */
+    public static final String[] Projection_item = {
+            DBHelper._id,
+            DBHelper._idNews,
+            DBHelper.by,
+            DBHelper.descendants,
+            DBHelper.score,
+            DBHelper.time,
+            DBHelper.title,
+            DBHelper.type,
+            DBHelper.url
+    };
+
+    /**
+     * Items of a category which were read by {@link #getItemsBefore(int, long, int)}.
+     */
+    public static class Page {
+        public final ArrayList<NewModel> items;
+        // Row id of last (oldest) item, pass it to read next page
+        public final long lastRowId;
+
+        Page(ArrayList<NewModel> items, long lastRowId) {
+            this.items = items;
+            this.lastRowId = lastRowId;
+        }
+    }
+
+    private static NewsDB INS;
+
+    // Opened on database thread at first use
     SQLiteDatabase database;
-    DBHelper dbHelper;
+    private final DBHelper dbHelper;
+    private final ScheduledExecutorService executor;
+    private final DkScheduler<?> scheduler;
+
+    // History items to write, by item id so a story opened twice is written once
+    private final LinkedHashMap<Integer, NewModel> pendingHistory = new LinkedHashMap<>();
+    private boolean isFlushScheduled;
+
+    // Compiled once, reused by every call
+    private SQLiteStatement insertStatement;
+    private SQLiteStatement existsStatement;
+    private SQLiteStatement deleteStatement;
+
+    public static NewsDB getIns(Context context) {
+        if (INS == null) {
+            synchronized (NewsDB.class) {
+                if (INS == null) {
+                    INS = new NewsDB(context.getApplicationContext(), DBHelper.Name_DB);
+                }
+            }
+        }
+        return INS;
+    }
+
+    NewsDB(Context context, String name) {
+        dbHelper = new DBHelper(context, name);
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "news-db");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler = DkSchedulers.from(executor);
+    }
+
+    /**
+     * Runs given task on database thread when subscribed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> DkObservable<T> execute(Callable<T> task) {
+        return DkObservable.fromExecution(task).scheduleIn((DkScheduler<T>) scheduler);
+    }
+
+    /**
+     * @see #getItemsBefore(int, long, int)
+     */
+    public DkObservable<Page> readItemsBefore(int type, long beforeRowId, int limit) {
+        return execute(() -> {
+            if (type == CATEGORY_HISTORY) {
+                flushHistory();
+            }
+            return getItemsBefore(type, beforeRowId, limit);
+        });
+    }
+
+    /**
+     * Saves given item into given category.
+     *
+     * @return observable of row id of inserted item, or -1 if the item was already saved in given category.
+     */
+    public DkObservable<Long> saveItem(NewModel newModel, int type) {
+        return execute(() -> {
+            if (type == CATEGORY_HISTORY) {
+                flushHistory();
+            }
+            return addItem(newModel, type);
+        });
+    }
+
+    public DkObservable<Long> removeItem(int id, int type) {
+        return execute(() -> {
+            if (type == CATEGORY_HISTORY) {
+                flushHistory();
+            }
+            return deleteItem(id, type);
+        });
+    }
+
+    /**
+     * Queues given item to be saved into history, without waiting for it. Can be called on any thread.
+     */
+    public void addHistoryLater(NewModel newModel) {
+        synchronized (pendingHistory) {
+            // Reinserted so it keeps order of last open
+            pendingHistory.remove(newModel.getId());
+            pendingHistory.put(newModel.getId(), newModel);
+
+            if (isFlushScheduled) {
+                return;
+            }
+            isFlushScheduled = true;
+        }
+        executor.schedule(this::flushHistory, WRITE_BEHIND_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs on database thread
+    private void flushHistory() {
+        ArrayList<NewModel> items;
+        synchronized (pendingHistory) {
+            isFlushScheduled = false;
+            if (pendingHistory.isEmpty()) {
+                return;
+            }
+            items = new ArrayList<>(pendingHistory.values());
+            pendingHistory.clear();
+        }
 
-    public NewsDB(Context context) {
-        dbHelper = new DBHelper(context);
         try {
-            database = dbHelper.getWritableDatabase();
-        } catch (SQLException ex) {
-            database = dbHelper.getReadableDatabase();
+            int insertedCount = addItems(items, CATEGORY_HISTORY);
+            if (DEBUG) {
+                DkLogs.log(this, "Wrote %d of %d queued history items", insertedCount, items.size());
+            }
+        }
+        catch (Exception e) {
+            DkLogs.logex(this, e);
         }
     }
 
-    public void close() {
+    // Opens the handle if needed, package-private for tests which run on their own thread
+    SQLiteDatabase database() {
+        if (database == null) {
+            try {
+                database = dbHelper.getWritableDatabase();
+            } catch (SQLException ex) {
+                database = dbHelper.getReadableDatabase();
+            }
+        }
+        return database;
+    }
+
+    /**
+     * Stops database thread and closes the handle, this db cannot be used after.
+     */
+    synchronized void close() {
+        executor.shutdown();
+        closeStatement(insertStatement);
+        closeStatement(existsStatement);
+        closeStatement(deleteStatement);
+        insertStatement = existsStatement = deleteStatement = null;
         dbHelper.close();
     }
 
-    public Cursor getAllItem(int type) {
-        String query = "SELECT * FROM News WHERE category =" + type + " ORDER BY id DESC";
-        Cursor cursor = null;
-        cursor = database.rawQuery(query, null);
-        return cursor;
+    /**
+     * @return items of given category, newest first, with columns of {@link #Projection_item}.
+     */
+    Cursor getAllItem(int type) {
+        return database().query(DBHelper.Name_Table, Projection_item, Select_category,
+                new String[] {String.valueOf(type)}, null, null, Order_newest_first);
     }
 
-    public Boolean checkID(int id, int type) {
-        String query = "select * from News where idNews=" + id + " and category=" + type + " limit 1";
-        Cursor cursor = null;
-        cursor = database.rawQuery(query, null);
-        if(cursor.getCount()>0) {
-            return true;
-        } else {
-            return false;
+    /**
+     * Reads at most given number of items of a category, newest first, which were saved before
+     * given row id. Use {@link Long#MAX_VALUE} to read from newest item. Since it seeks into
+     * index (category, id), reading a page costs the same however many items were saved.
+     */
+    Page getItemsBefore(int type, long beforeRowId, int limit) {
+        String[] args = {String.valueOf(type), String.valueOf(beforeRowId)};
+        ArrayList<NewModel> items = new ArrayList<>(limit);
+        long lastRowId = beforeRowId;
+
+        try (Cursor cursor = database().query(DBHelper.Name_Table, Projection_item, Select_category_before,
+                args, null, null, Order_newest_first, String.valueOf(limit))) {
+            while (cursor.moveToNext()) {
+                items.add(readItem(cursor));
+                lastRowId = cursor.getLong(0);
+            }
         }
+
+        return new Page(items, lastRowId);
     }
-    // 1.history  2.bookmark
-    public long addItem(NewModel newModel, int type) {
-        Boolean checkExist = checkID(newModel.getId(), type);
-        if(checkExist ==false) {
-            // check dupplicate false (error)
-            ContentValues values = new ContentValues();
-
-            values.put(dbHelper.by, newModel.getBy());
-            values.put(dbHelper.descendants, newModel.getDescendants());
-            values.put(dbHelper._idNews, newModel.getId());
-            values.put(dbHelper.score, newModel.getScore());
-            values.put(dbHelper.time, newModel.getTime());
-            values.put(dbHelper.title, newModel.getTitle());
-            values.put(dbHelper.type, newModel.getType());
-            values.put(dbHelper.url, newModel.getUrl());
-            values.put(dbHelper.category, type);
-           return database.insert(dbHelper.Name_Table, null, values);
+
+    /**
+     * Reads item at current position of a cursor which was queried with {@link #Projection_item}.
+     */
+    public static NewModel readItem(Cursor cursor) {
+        NewModel model = new NewModel();
+        model.setId(cursor.getInt(1));
+        model.setBy(cursor.getString(2));
+        model.setDescendants(cursor.getInt(3));
+        model.setScore(cursor.getInt(4));
+        model.setTime(cursor.getLong(5));
+        model.setTitle(cursor.getString(6));
+        model.setType(cursor.getString(7));
+        model.setUrl(cursor.getString(8));
+        return model;
+    }
+
+    /**
+     * @return true if given item was saved in given category.
+     */
+    synchronized boolean checkID(int id, int type) {
+        if (existsStatement == null) {
+            existsStatement = database().compileStatement(Exists_item);
         }
-        return -1;
+        existsStatement.bindLong(1, id);
+        existsStatement.bindLong(2, type);
+        return existsStatement.simpleQueryForLong() != 0;
+    }
+
+    /**
+     * Saves given item into given category (1.history  2.bookmark).
+     *
+     * @return row id of inserted item, or -1 if the item was already saved in given category.
+     */
+    synchronized long addItem(NewModel newModel, int type) {
+        return insert(newModel, type);
     }
 
-    public long deleteItem(int id, int type) {
-        return database.delete(dbHelper.Name_Table, dbHelper._idNews + "=" + id + " and " + dbHelper.category + "=" + type, null);
+    /**
+     * Saves given items into given category in one transaction, items which were
+     * already saved in the category are skipped.
+     *
+     * @return number of inserted rows.
+     */
+    synchronized int addItems(Collection<NewModel> newModels, int type) {
+        int insertedCount = 0;
+        SQLiteDatabase database = database();
+
+        database.beginTransaction();
+        try {
+            for (NewModel newModel : newModels) {
+                if (insert(newModel, type) != -1) {
+                    ++insertedCount;
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        return insertedCount;
+    }
+
+    private long insert(NewModel newModel, int type) {
+        if (insertStatement == null) {
+            insertStatement = database().compileStatement(Insert_item);
+        }
+
+        SQLiteStatement statement = insertStatement;
+        statement.clearBindings();
+        bindText(statement, 1, newModel.getBy());
+        statement.bindLong(2, newModel.getDescendants());
+        statement.bindLong(3, newModel.getId());
+        statement.bindLong(4, newModel.getScore());
+        statement.bindLong(5, newModel.getTime());
+        bindText(statement, 6, newModel.getTitle());
+        bindText(statement, 7, newModel.getType());
+        bindText(statement, 8, newModel.getUrl());
+        statement.bindLong(9, type);
+
+        // -1 when ignored by unique (idNews, category)
+        return statement.executeInsert();
+    }
+
+    private static void closeStatement(SQLiteStatement statement) {
+        if (statement != null) {
+            statement.close();
+        }
+    }
+
+    private static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    synchronized long deleteItem(int id, int type) {
+        if (deleteStatement == null) {
+            deleteStatement = database().compileStatement(Delete_item);
+        }
+        deleteStatement.bindLong(1, id);
+        deleteStatement.bindLong(2, type);
+        return deleteStatement.executeUpdateDelete();
     }
 }
@@ -0,0 +1,109 @@
+package com.example.appnews.persistence;
+
+import com.example.appnews.presentation.RowTexts;
+import com.example.appnews.presentation.home.NewModel;
+
+import java.util.List;
+
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.util.DkLogs;
+
+/**
+ * Reads saved items of a category page by page, newest first. Each page continues from row id
+ * of previous page's last item, so opening a screen reads one page whatever size the history is.
+ * <p></p>
+ * Pages are read on database thread, all methods and listener callback are on main thread.
+ */
+public class NewsPageReader {
+    public static final int PAGE_SIZE = 30;
+
+    // Next page is requested when last visible row is this close to the end
+    public static final int PREFETCH_DISTANCE = 10;
+
+    public interface Listener {
+        void onPageLoaded(List<NewModel> items);
+    }
+
+    private final NewsDB newsDB;
+    private final int category;
+    private final Listener listener;
+
+    private long lastRowId = Long.MAX_VALUE;
+    private boolean hasMore = true;
+    private boolean isLoading;
+    private boolean isReleased;
+    private DkControllable<NewsDB.Page> loading;
+
+    public NewsPageReader(NewsDB newsDB, int category, Listener listener) {
+        this.newsDB = newsDB;
+        this.category = category;
+        this.listener = listener;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Loads next page if the list is scrolled near its end.
+     */
+    public void onScrolled(int lastVisiblePosition, int itemCount) {
+        if (lastVisiblePosition >= itemCount - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    public void loadNextPage() {
+        if (isLoading || !hasMore || isReleased) {
+            return;
+        }
+        isLoading = true;
+
+        final long beforeRowId = lastRowId;
+
+        loading = newsDB
+                .readItemsBefore(category, beforeRowId, PAGE_SIZE)
+                .map(page -> {
+                    // Format display strings here, so binding rows does no string work
+                    for (NewModel item : page.items) {
+                        RowTexts.prepare(item);
+                    }
+                    return page;
+                })
+                .observeOnMainThread()
+                .doOnNext(this::onPageRead)
+                .doOnError(e -> {
+                    DkLogs.logex(this, e);
+                    isLoading = false;
+                })
+                .subscribeForControllable();
+    }
+
+    /**
+     * Stops reading, this reader cannot be used anymore.
+     */
+    public void release() {
+        isReleased = true;
+
+        if (loading != null) {
+            loading.cancel(true);
+            loading = null;
+        }
+    }
+
+    private void onPageRead(NewsDB.Page page) {
+        isLoading = false;
+        loading = null;
+
+        if (isReleased) {
+            return;
+        }
+
+        lastRowId = page.lastRowId;
+        hasMore = page.items.size() == PAGE_SIZE;
+
+        if (page.items.size() > 0) {
+            listener.onPageLoaded(page.items);
+        }
+    }
+}
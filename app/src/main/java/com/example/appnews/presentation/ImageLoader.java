@@ -0,0 +1,322 @@
+package com.example.appnews.presentation;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.example.appnews.service.Cancellation;
+import com.example.appnews.service.HnTransport;
+import com.example.appnews.service.OkHttpTransport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import tool.compet.core.graphic.DkBitmapPool;
+import tool.compet.core.graphic.DkBitmaps;
+import tool.compet.core.storage.DkDiskLruCache;
+import tool.compet.core.storage.DkLruCache;
+import tool.compet.core.util.DkLogs;
+
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Loads images of urls into image views, in tiers: decoded bitmaps in memory (shared
+ * {@link DkLruCache}), encoded images on disk ({@link DkDiskLruCache}), then network.
+ * <p></p>
+ * Images are decoded subsampled to size of the view, into bitmaps reused from a pool.
+ * A bitmap goes back to the pool only when no view shows it and the memory cache dropped it,
+ * so pooled pixels are never visible while overwritten.
+ * <p></p>
+ * Requests of same image and size share one load. A view which gets another image (or is
+ * cancelled, for eg,. when its holder was recycled) leaves its request, and a load left by
+ * all views is aborted.
+ * <p></p>
+ * Methods must be called on main thread.
+ */
+public class ImageLoader {
+    public static final long DISK_CACHE_SIZE = 16 * 1024 * 1024;
+    public static final long POOL_SIZE = 4 * 1024 * 1024;
+    // Larger images are not loaded
+    public static final int MAX_IMAGE_BYTES = 2 * 1024 * 1024;
+
+    // Loads which read disk or network at once
+    public static final int MAX_CONCURRENT_LOADS = 3;
+
+    private static final String KEY_PREFIX = "image:";
+
+    private static ImageLoader INS;
+
+    private final HnTransport transport;
+    private final DkLruCache memoryCache = DkLruCache.getIns();
+    private final DkDiskLruCache diskCache;
+    private final DkBitmapPool pool = new DkBitmapPool(POOL_SIZE);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Own threads, so blocking reads never hold threads of shared executors
+    private final ExecutorService executor;
+    private final int fallbackSize;
+
+    // Loads in flight, keyed by memory key
+    private final HashMap<String, Load> loads = new HashMap<>();
+    // Load which each view waits for
+    private final WeakHashMap<ImageView, Load> pendingViews = new WeakHashMap<>();
+    // Bitmap which each view shows
+    private final WeakHashMap<ImageView, Bitmap> shownBitmaps = new WeakHashMap<>();
+    // Bitmaps decoded by this loader which are cached or shown
+    private final WeakHashMap<Bitmap, Usage> usages = new WeakHashMap<>();
+
+    private ImageLoader(Context context) {
+        this.transport = OkHttpTransport.getIns();
+        this.diskCache = new DkDiskLruCache(new File(context.getCacheDir(), "images"), DISK_CACHE_SIZE);
+        this.fallbackSize = context.getResources().getDisplayMetrics().widthPixels;
+        this.executor = Executors.newFixedThreadPool(MAX_CONCURRENT_LOADS, r -> {
+            Thread thread = new Thread(r, "image-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        memoryCache.register((key, snapshot) -> {
+            // Called on any thread, inside the cache lock
+            if (key.startsWith(KEY_PREFIX)) {
+                mainHandler.post(() -> onEvicted(key));
+            }
+        });
+    }
+
+    public static ImageLoader getIns(Context context) {
+        if (INS == null) {
+            synchronized (ImageLoader.class) {
+                if (INS == null) {
+                    INS = new ImageLoader(context.getApplicationContext());
+                }
+            }
+        }
+        return INS;
+    }
+
+    /**
+     * Shows image of given url in given view, and placeholder while loading or when failed.
+     */
+    public void load(String url, ImageView view, int placeholderRes) {
+        int width = targetSize(view, true);
+        int height = targetSize(view, false);
+        String key = KEY_PREFIX + url + '@' + width + 'x' + height;
+
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            leavePendingLoad(view);
+            show(view, bitmap);
+            return;
+        }
+
+        Load pending = pendingViews.get(view);
+        if (pending != null && pending.key.equals(key)) {
+            return;
+        }
+        leavePendingLoad(view);
+        showPlaceholder(view, placeholderRes);
+
+        Load load = loads.get(key);
+        if (load == null) {
+            load = new Load(key, url, width, height);
+            loads.put(key, load);
+
+            final Load newLoad = load;
+            executor.execute(() -> runLoad(newLoad));
+        }
+        load.views.add(view);
+        pendingViews.put(view, load);
+    }
+
+    /**
+     * Stops loading into given view and releases the image it shows.
+     */
+    public void cancel(ImageView view) {
+        leavePendingLoad(view);
+        release(view);
+        view.setImageDrawable(null);
+    }
+
+    private void leavePendingLoad(ImageView view) {
+        Load load = pendingViews.remove(view);
+        if (load == null) {
+            return;
+        }
+        load.views.remove(view);
+
+        if (load.views.isEmpty()) {
+            loads.remove(load.key);
+            load.cancellation.cancel();
+        }
+    }
+
+    // Runs on worker thread
+    private void runLoad(Load load) {
+        Bitmap bitmap = null;
+        try {
+            byte[] data = readCached(load.url);
+
+            if (data == null && !load.cancellation.isCancelled()) {
+                data = transport.get(load.url, ImageLoader::readLimited, load.cancellation);
+                final byte[] fetched = data;
+                diskCache.put(load.url, os -> os.write(fetched));
+            }
+            if (data != null && !load.cancellation.isCancelled()) {
+                bitmap = DkBitmaps.decodeSampled(data, load.width, load.height, pool);
+            }
+        }
+        catch (Exception e) {
+            if (DEBUG && !load.cancellation.isCancelled()) {
+                DkLogs.logex(this, e);
+            }
+        }
+
+        final Bitmap decoded = bitmap;
+        mainHandler.post(() -> onLoaded(load, decoded));
+    }
+
+    private void onLoaded(Load load, Bitmap bitmap) {
+        if (loads.get(load.key) == load) {
+            loads.remove(load.key);
+        }
+        if (bitmap == null) {
+            return;
+        }
+
+        // Cached even if no view waits anymore, rows are likely scrolled back
+        usages.put(bitmap, new Usage(load.key));
+        memoryCache.put(load.key, bitmap);
+
+        if (load.cancellation.isCancelled()) {
+            return;
+        }
+        for (ImageView view : load.views) {
+            if (pendingViews.get(view) == load) {
+                pendingViews.remove(view);
+                show(view, bitmap);
+            }
+        }
+    }
+
+    private void show(ImageView view, Bitmap bitmap) {
+        Bitmap old = shownBitmaps.put(view, bitmap);
+        if (old == bitmap) {
+            return;
+        }
+        view.setImageBitmap(bitmap);
+
+        Usage usage = usages.get(bitmap);
+        if (usage != null) {
+            ++usage.shownCount;
+        }
+        releaseBitmap(old);
+    }
+
+    private void showPlaceholder(ImageView view, int placeholderRes) {
+        release(view);
+        view.setImageResource(placeholderRes);
+    }
+
+    private void release(ImageView view) {
+        releaseBitmap(shownBitmaps.remove(view));
+    }
+
+    private void releaseBitmap(Bitmap bitmap) {
+        Usage usage = bitmap == null ? null : usages.get(bitmap);
+        if (usage != null) {
+            --usage.shownCount;
+            recycleIfUnused(bitmap, usage);
+        }
+    }
+
+    private void onEvicted(String key) {
+        for (Map.Entry<Bitmap, Usage> entry : new ArrayList<>(usages.entrySet())) {
+            if (entry.getValue().key.equals(key)) {
+                recycleIfUnused(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void recycleIfUnused(Bitmap bitmap, Usage usage) {
+        if (usage.shownCount <= 0 && memoryCache.get(usage.key) != bitmap) {
+            usages.remove(bitmap);
+            pool.put(bitmap);
+        }
+    }
+
+    private int targetSize(ImageView view, boolean isWidth) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int size = params == null ? 0 : (isWidth ? params.width : params.height);
+
+        if (size <= 0) {
+            size = isWidth ? view.getWidth() : view.getHeight();
+        }
+        return size > 0 ? size : fallbackSize;
+    }
+
+    // Runs on worker thread
+    private byte[] readCached(String url) {
+        File file = diskCache.get(url);
+        if (file == null) {
+            return null;
+        }
+        try (InputStream is = new FileInputStream(file)) {
+            return readLimited(is);
+        }
+        catch (IOException e) {
+            diskCache.remove(url);
+            return null;
+        }
+    }
+
+    private static byte[] readLimited(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+        byte[] buffer = new byte[8 * 1024];
+        int count;
+
+        while ((count = is.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+            if (out.size() > MAX_IMAGE_BYTES) {
+                throw new IOException("Image is larger than " + MAX_IMAGE_BYTES + " bytes");
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static class Load {
+        final String key;
+        final String url;
+        final int width;
+        final int height;
+        final Cancellation cancellation = new Cancellation();
+        // Views which wait for this load, touched on main thread only
+        final ArrayList<ImageView> views = new ArrayList<>();
+
+        Load(String key, String url, int width, int height) {
+            this.key = key;
+            this.url = url;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static class Usage {
+        final String key;
+        int shownCount;
+
+        Usage(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.appnews.presentation;
+
+import com.example.appnews.service.Cancellation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+
+import tool.compet.core.stream.scheduler.DkScheduler;
+import tool.compet.core.stream.scheduler.DkSchedulers;
+import tool.compet.core.type.DkCallback;
+import tool.compet.core.util.DkLogs;
+
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Runs loads of a screen in parallel on {@link DkSchedulers#io()} and delivers their results
+ * on main thread, bound to the view of the screen: {@link #cancelAll()} (call it from
+ * onDestroyView) removes queued jobs, aborts in-flight requests of running ones through
+ * their {@link Cancellation}, and drops results which arrive after.
+ * <p></p>
+ * Jobs are keyed. Running a job while one with same key is in flight does not load again,
+ * given callbacks get result of the running one.
+ * <p></p>
+ * Methods must be called on main thread.
+ */
+public class JobScope {
+    public interface Work<T> {
+        /**
+         * Runs on worker thread, pass given cancellation to requests so they can be aborted.
+         */
+        T run(Cancellation cancellation) throws Exception;
+    }
+
+    private final DkScheduler<Object> io;
+    private final DkScheduler<Object> main;
+    private final HashMap<String, Job<?>> runningJobs = new HashMap<>();
+    // For loads which are not run as jobs, replaced after cancelled
+    private Cancellation cancellation = new Cancellation();
+
+    public JobScope() {
+        this(DkSchedulers.io(), DkSchedulers.main());
+    }
+
+    JobScope(DkScheduler<Object> io, DkScheduler<Object> main) {
+        this.io = io;
+        this.main = main;
+    }
+
+    /**
+     * Runs given work unless a job with same key is in flight.
+     *
+     * @param onResult called on main thread with result of the work, if not cancelled.
+     * @param onError called on main thread when the work failed, if not cancelled. Nullable.
+     */
+    public <T> void run(String key, Work<T> work, DkCallback<T> onResult, DkCallback<Throwable> onError) {
+        @SuppressWarnings("unchecked")
+        Job<T> job = (Job<T>) runningJobs.get(key);
+
+        if (job == null) {
+            job = new Job<>(key, work);
+            runningJobs.put(key, job);
+            job.addCallbacks(onResult, onError);
+
+            try {
+                io.scheduleNow(job, false);
+            }
+            catch (Exception e) {
+                runningJobs.remove(key);
+                job.finish(null, e);
+            }
+        }
+        else {
+            job.addCallbacks(onResult, onError);
+        }
+    }
+
+    public boolean isRunning(String key) {
+        return runningJobs.containsKey(key);
+    }
+
+    /**
+     * @return cancellation for requests which are bound to this scope but not run as jobs
+     * (for eg,. by a pager with its own threads). It is cancelled by {@link #cancelAll()}.
+     */
+    public Cancellation getCancellation() {
+        return cancellation;
+    }
+
+    public void cancel(String key) {
+        Job<?> job = runningJobs.remove(key);
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Cancels all jobs and requests of this scope. The scope can be used again after.
+     */
+    public void cancelAll() {
+        ArrayList<Job<?>> jobs = new ArrayList<>(runningJobs.values());
+        runningJobs.clear();
+
+        for (Job<?> job : jobs) {
+            job.cancel();
+        }
+
+        cancellation.cancel();
+        cancellation = new Cancellation();
+    }
+
+    private class Job<T> implements Callable<Object> {
+        final String key;
+        final Work<T> work;
+        final Cancellation cancellation = new Cancellation();
+        // Callbacks of all runs which share this job, touched on main thread only
+        final ArrayList<DkCallback<T>> resultCallbacks = new ArrayList<>();
+        final ArrayList<DkCallback<Throwable>> errorCallbacks = new ArrayList<>();
+
+        Job(String key, Work<T> work) {
+            this.key = key;
+            this.work = work;
+        }
+
+        void addCallbacks(DkCallback<T> onResult, DkCallback<Throwable> onError) {
+            resultCallbacks.add(onResult);
+            if (onError != null) {
+                errorCallbacks.add(onError);
+            }
+        }
+
+        // Runs on worker thread
+        @Override
+        public Object call() {
+            if (cancellation.isCancelled()) {
+                return null;
+            }
+
+            T result = null;
+            Throwable error = null;
+            try {
+                result = work.run(cancellation);
+            }
+            catch (Throwable e) {
+                error = e;
+            }
+
+            final T finalResult = result;
+            final Throwable finalError = error;
+            try {
+                main.scheduleNow(() -> finish(finalResult, finalError));
+            }
+            catch (Exception e) {
+                DkLogs.logex(this, e);
+            }
+            return null;
+        }
+
+        void finish(T result, Throwable error) {
+            // Failure of an aborted request is not an error
+            if (cancellation.isCancelled()) {
+                return;
+            }
+            if (runningJobs.get(key) == this) {
+                runningJobs.remove(key);
+            }
+
+            if (error == null) {
+                for (DkCallback<T> callback : resultCallbacks) {
+                    callback.call(result);
+                }
+            }
+            else {
+                if (DEBUG) {
+                    DkLogs.logex(this, error);
+                }
+                for (DkCallback<Throwable> callback : errorCallbacks) {
+                    callback.call(error);
+                }
+            }
+        }
+
+        void cancel() {
+            cancellation.cancel();
+            // Requests are aborted by cancellation, no need to interrupt the thread
+            io.cancel(this, false);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.appnews.presentation;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.appnews.presentation.home.NewModel;
+
+import java.util.Objects;
+
+/**
+ * Diffs item lists by Hacker News id, a row is rebound only when what it shows was changed.
+ */
+public class NewModelDiffCallback extends DiffUtil.ItemCallback<NewModel> {
+    public static final NewModelDiffCallback INS = new NewModelDiffCallback();
+
+    @Override
+    public boolean areItemsTheSame(@NonNull NewModel oldItem, @NonNull NewModel newItem) {
+        return oldItem.id == newItem.id;
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull NewModel oldItem, @NonNull NewModel newItem) {
+        return oldItem.score == newItem.score
+                && oldItem.descendants == newItem.descendants
+                && oldItem.time == newItem.time
+                && Objects.equals(oldItem.title, newItem.title)
+                && Objects.equals(oldItem.url, newItem.url)
+                && Objects.equals(oldItem.by, newItem.by)
+                && Objects.equals(oldItem.type, newItem.type);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.appnews.presentation;
+
+import com.example.appnews.presentation.home.NewModel;
+
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.datetime.DkDateTimes;
+
+/**
+ * Display strings of an item row: host of the url, posted time and author label.
+ * They are computed once per item in background (see {@link #prepare(NewModel)}),
+ * so binding a row only sets prepared strings instead of parsing and formatting on main thread.
+ */
+public class RowTexts {
+    public static final String BY_PREFIX = "By: ";
+
+    public final String host;
+    public final String time;
+    public final String by;
+
+    public RowTexts(String host, String time, String by) {
+        this.host = host;
+        this.time = time;
+        this.by = by;
+    }
+
+    /**
+     * Computes display strings of given item and keeps them in the item. Call it on worker thread.
+     */
+    public static RowTexts prepare(NewModel model) {
+        RowTexts texts = of(model);
+        model.texts = texts;
+        return texts;
+    }
+
+    /**
+     * @return display strings of given item, computed now if it was not prepared.
+     */
+    public static RowTexts get(NewModel model) {
+        RowTexts texts = model.texts;
+        return texts != null ? texts : prepare(model);
+    }
+
+    public static RowTexts of(NewModel model) {
+        // Item time is in seconds
+        String time = DkDateTimes.formatTime(TimeUnit.SECONDS.toMillis(model.time));
+        return new RowTexts(hostOf(model.url), time, BY_PREFIX + model.by);
+    }
+
+    /**
+     * @return host part of given url (for eg,. "example.com" of "https://user@example.com:8080/a?b"),
+     * or empty string if the url has no host (for eg,. Ask HN stories have no url).
+     */
+    public static String hostOf(String url) {
+        if (url == null) {
+            return "";
+        }
+
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+
+        int end = url.length();
+        for (int i = start; i < end; ++i) {
+            char ch = url.charAt(i);
+            if (ch == '/' || ch == '?' || ch == '#') {
+                end = i;
+                break;
+            }
+        }
+
+        // Skip user info
+        int at = url.lastIndexOf('@', end - 1);
+        if (at >= start) {
+            start = at + 1;
+        }
+
+        // Skip port, an ipv6 host keeps its brackets
+        int portColon = url.lastIndexOf(':', end - 1);
+        if (portColon >= start && url.lastIndexOf(']', end - 1) < portColon) {
+            end = portColon;
+        }
+
+        return start < end ? url.substring(start, end) : "";
+    }
+}
@@ -0,0 +1,316 @@
+package com.example.appnews.presentation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeMap;
+
+import tool.compet.core.datastructure.DkIntArrayList;
+
+/**
+ * Incremental search index over titles, used by in-list filters. A title matches a query
+ * when each word of the query is found in some word of the title, so "hn ask" matches
+ * "Ask HN: ..." and "rust" matches "Trust". Words shorter than {@link #MIN_SUBSTRING_LENGTH}
+ * match only at start of title words, since inner matches of them are mostly noise.
+ * <p></p>
+ * Titles are tokenized once when added. A short query word looks up a range of the sorted
+ * token map, a longer one looks up tokens by its rarest trigram, instead of scanning every title.
+ * <p></p>
+ * When a query extends previous one (user typed more), result is narrowed from previous
+ * result instead of searching again.
+ * <p></p>
+ * Each title is identified by an int key chosen by caller (for eg,. feed position or item id).
+ * Thread-safe, so filtering can run in background while items are added on main thread.
+ */
+public class TitleSearchIndex {
+    // Query words of this length or longer match anywhere inside title words
+    public static final int MIN_SUBSTRING_LENGTH = 3;
+
+    // Token -> keys of titles which contain the token
+    private final TreeMap<String, DkIntArrayList> postings = new TreeMap<>();
+    // Trigram -> tokens (of postings) which contain the trigram
+    private final HashMap<String, HashSet<String>> tokensOfGram = new HashMap<>();
+    // Key -> tokens of its title
+    private final HashMap<Integer, String[]> tokensOfKey = new HashMap<>();
+
+    // Bumped when index is changed, previous result can be reused only if not changed
+    private int modCount;
+    private String[] lastQueryTokens;
+    private int lastModCount;
+    private int[] lastResult;
+
+    public synchronized int size() {
+        return tokensOfKey.size();
+    }
+
+    /**
+     * Adds or replaces title of given key.
+     */
+    public synchronized void put(int key, String title) {
+        removeInternal(key);
+
+        String[] tokens = tokenize(title);
+        tokensOfKey.put(key, tokens);
+
+        for (String token : tokens) {
+            DkIntArrayList keys = postings.get(token);
+            if (keys == null) {
+                postings.put(token, keys = new DkIntArrayList(4));
+                addGrams(token);
+            }
+            // Tokens are distinct and old title was removed, so key is not in the list yet.
+            // Grow geometrically since common words collect many keys
+            keys.setGrowNumberItem(keys.size());
+            keys.add(key);
+        }
+        ++modCount;
+    }
+
+    public synchronized void remove(int key) {
+        if (removeInternal(key)) {
+            ++modCount;
+        }
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        tokensOfGram.clear();
+        tokensOfKey.clear();
+        lastQueryTokens = null;
+        lastResult = null;
+        ++modCount;
+    }
+
+    /**
+     * @return keys (ascending) of titles which match given query, or null if the query
+     * has no word, that is, nothing should be filtered out.
+     */
+    public synchronized int[] search(CharSequence query) {
+        String[] queryTokens = tokenize(query == null ? null : query.toString());
+
+        if (queryTokens.length == 0) {
+            lastQueryTokens = null;
+            lastResult = null;
+            return null;
+        }
+
+        // Candidates come from the most selective (longest) query word, others are checked per title
+        String longest = queryTokens[0];
+        for (String token : queryTokens) {
+            if (token.length() > longest.length()) {
+                longest = token;
+            }
+        }
+        ArrayList<DkIntArrayList> postingsOfLongest = postingsMatching(longest);
+
+        int[] result;
+
+        // Query implies previous one (for eg,. typed more chars), so result can only be narrower.
+        // Narrow it unless the matched words give fewer candidates
+        if (lastResult != null && lastModCount == modCount && isNarrower(queryTokens, lastQueryTokens)
+                && lastResult.length <= countKeys(postingsOfLongest)) {
+            result = filter(lastResult, lastResult.length, queryTokens);
+        }
+        else {
+            result = lookup(postingsOfLongest, queryTokens);
+        }
+
+        lastQueryTokens = queryTokens;
+        lastModCount = modCount;
+        lastResult = result;
+
+        return result;
+    }
+
+    // Postings of title words which given query word matches
+    private ArrayList<DkIntArrayList> postingsMatching(String queryToken) {
+        if (queryToken.length() < MIN_SUBSTRING_LENGTH) {
+            return new ArrayList<>(postings.subMap(queryToken, queryToken + Character.MAX_VALUE).values());
+        }
+
+        // Tokens which contain the word contain each of its trigrams, so check tokens of the rarest one
+        HashSet<String> rarest = null;
+        for (int i = 0, end = queryToken.length() - MIN_SUBSTRING_LENGTH; i <= end; ++i) {
+            HashSet<String> tokens = tokensOfGram.get(queryToken.substring(i, i + MIN_SUBSTRING_LENGTH));
+            if (tokens == null) {
+                return new ArrayList<>();
+            }
+            if (rarest == null || tokens.size() < rarest.size()) {
+                rarest = tokens;
+            }
+        }
+
+        ArrayList<DkIntArrayList> result = new ArrayList<>();
+        for (String token : rarest) {
+            if (token.contains(queryToken)) {
+                result.add(postings.get(token));
+            }
+        }
+        return result;
+    }
+
+    private int[] lookup(List<DkIntArrayList> postingsList, String[] queryTokens) {
+        int[] candidates = new int[countKeys(postingsList)];
+        int count = 0;
+
+        for (DkIntArrayList keys : postingsList) {
+            System.arraycopy(keys.getInternalArray(), 0, candidates, count, keys.size());
+            count += keys.size();
+        }
+
+        // Same key is collected once per matched title word
+        Arrays.sort(candidates);
+
+        int distinctCount = 0;
+        for (int i = 0; i < count; ++i) {
+            if (i == 0 || candidates[i] != candidates[i - 1]) {
+                candidates[distinctCount++] = candidates[i];
+            }
+        }
+
+        // Every candidate has a word matching the only query word
+        if (queryTokens.length == 1) {
+            return Arrays.copyOf(candidates, distinctCount);
+        }
+        return filter(candidates, distinctCount, queryTokens);
+    }
+
+    private int[] filter(int[] candidates, int count, String[] queryTokens) {
+        int[] result = new int[count];
+        int resultCount = 0;
+
+        for (int i = 0; i < count; ++i) {
+            int key = candidates[i];
+            if (matches(tokensOfKey.get(key), queryTokens)) {
+                result[resultCount++] = key;
+            }
+        }
+
+        return Arrays.copyOf(result, resultCount);
+    }
+
+    private static int countKeys(List<DkIntArrayList> postingsList) {
+        int count = 0;
+        for (DkIntArrayList keys : postingsList) {
+            count += keys.size();
+        }
+        return count;
+    }
+
+    private static boolean matches(String[] titleTokens, String[] queryTokens) {
+        if (titleTokens == null) {
+            return false;
+        }
+        for (String queryToken : queryTokens) {
+            boolean found = false;
+            for (String titleToken : titleTokens) {
+                if (matches(titleToken, queryToken)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether titles matching given query surely match previous query
+    private static boolean isNarrower(String[] queryTokens, String[] previousTokens) {
+        for (String previous : previousTokens) {
+            boolean isImplied = false;
+            for (String token : queryTokens) {
+                // A short word matches word starts only, so a longer word which matches inside words does not imply it
+                isImplied = previous.length() < MIN_SUBSTRING_LENGTH
+                        ? token.length() < MIN_SUBSTRING_LENGTH && token.startsWith(previous)
+                        : token.contains(previous);
+                if (isImplied) {
+                    break;
+                }
+            }
+            if (!isImplied) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String titleToken, String queryToken) {
+        return queryToken.length() < MIN_SUBSTRING_LENGTH
+                ? titleToken.startsWith(queryToken)
+                : titleToken.contains(queryToken);
+    }
+
+    private void addGrams(String token) {
+        for (int i = 0, end = token.length() - MIN_SUBSTRING_LENGTH; i <= end; ++i) {
+            String gram = token.substring(i, i + MIN_SUBSTRING_LENGTH);
+            HashSet<String> tokens = tokensOfGram.get(gram);
+            if (tokens == null) {
+                tokensOfGram.put(gram, tokens = new HashSet<>());
+            }
+            tokens.add(token);
+        }
+    }
+
+    private void removeGrams(String token) {
+        for (int i = 0, end = token.length() - MIN_SUBSTRING_LENGTH; i <= end; ++i) {
+            String gram = token.substring(i, i + MIN_SUBSTRING_LENGTH);
+            HashSet<String> tokens = tokensOfGram.get(gram);
+            if (tokens != null && tokens.remove(token) && tokens.isEmpty()) {
+                tokensOfGram.remove(gram);
+            }
+        }
+    }
+
+    private boolean removeInternal(int key) {
+        String[] tokens = tokensOfKey.remove(key);
+
+        if (tokens == null) {
+            return false;
+        }
+        for (String token : tokens) {
+            DkIntArrayList keys = postings.get(token);
+            if (keys != null) {
+                keys.fastRemoveValue(key);
+                if (keys.size() == 0) {
+                    postings.remove(token);
+                    removeGrams(token);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits lowercased words (letters and digits) of given text, without duplication.
+     */
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+
+        String lower = text.toLowerCase();
+        ArrayList<String> tokens = new ArrayList<>();
+        int start = -1;
+
+        for (int i = 0, length = lower.length(); i <= length; ++i) {
+            boolean isWordChar = i < length && Character.isLetterOrDigit(lower.charAt(i));
+
+            if (isWordChar && start < 0) {
+                start = i;
+            }
+            else if (!isWordChar && start >= 0) {
+                String token = lower.substring(start, i);
+                if (!tokens.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+
+        return tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.appnews.presentation.comment;
+
+import android.content.Context;
+import android.text.method.LinkMovementMethod;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.appnews.R;
+
+/**
+ * Shows rows of a {@link CommentTree}, indented by depth.
+ */
+public class CommentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements CommentTree.Listener {
+    private static final int TYPE_COMMENT = 0;
+    private static final int TYPE_MORE = 1;
+
+    // Deeper comments are not indented further, so text keeps a readable width
+    private static final int MAX_INDENT_DEPTH = 8;
+
+    private final Context context;
+    private final int indent;
+    private CommentTree tree;
+
+    public CommentAdapter(Context context) {
+        this.context = context;
+        this.indent = context.getResources().getDimensionPixelSize(R.dimen.comment_indent);
+    }
+
+    public void setTree(CommentTree tree) {
+        this.tree = tree;
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getItemCount() {
+        return tree == null ? 0 : tree.getRowCount();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return tree.getRow(position).isMore() ? TYPE_MORE : TYPE_COMMENT;
+    }
+
+    @NonNull
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+
+        if (viewType == TYPE_MORE) {
+            return new MoreViewHolder(inflater.inflate(R.layout.item_comment_more, parent, false));
+        }
+        return new CommentViewHolder(inflater.inflate(R.layout.item_comment, parent, false));
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        CommentTree.Node node = tree.getRow(position);
+        int start = Math.min(node.getDepth(), MAX_INDENT_DEPTH) * indent;
+        holder.itemView.setPaddingRelative(start, holder.itemView.getPaddingTop(),
+                holder.itemView.getPaddingEnd(), holder.itemView.getPaddingBottom());
+
+        if (holder instanceof MoreViewHolder) {
+            TextView txtMore = ((MoreViewHolder) holder).txtMore;
+            if (node.isLoading()) {
+                txtMore.setText(R.string.story_loading);
+            }
+            else {
+                txtMore.setText(context.getString(R.string.comment_more, node.getRemainingCount()));
+            }
+            return;
+        }
+
+        CommentViewHolder commentHolder = (CommentViewHolder) holder;
+
+        if (node.isDeleted()) {
+            commentHolder.txtBy.setText(R.string.comment_deleted);
+        }
+        else {
+            commentHolder.txtBy.setText(node.getBy());
+        }
+        commentHolder.txtTime.setText(node.getTimeText());
+        commentHolder.txtText.setText(node.getText());
+
+        // Collapsed comment tells how many replies it has, expanded one shows them below
+        if (node.isLoading()) {
+            commentHolder.txtReplies.setText(R.string.story_loading);
+        }
+        else if (node.getKidCount() > 0 && !node.isExpanded()) {
+            commentHolder.txtReplies.setText(context.getString(R.string.comment_replies, node.getKidCount()));
+        }
+        else {
+            commentHolder.txtReplies.setText(null);
+        }
+    }
+
+    @Override
+    public void onRowsInserted(int position, int count) {
+        notifyItemRangeInserted(position, count);
+    }
+
+    @Override
+    public void onRowsRemoved(int position, int count) {
+        notifyItemRangeRemoved(position, count);
+    }
+
+    @Override
+    public void onRowChanged(int position) {
+        notifyItemChanged(position);
+    }
+
+    private void onRowClick(RecyclerView.ViewHolder holder) {
+        int position = holder.getBindingAdapterPosition();
+        if (position != RecyclerView.NO_POSITION) {
+            tree.onRowClick(position);
+        }
+    }
+
+    class CommentViewHolder extends RecyclerView.ViewHolder {
+        final TextView txtBy, txtTime, txtReplies, txtText;
+
+        CommentViewHolder(@NonNull View itemView) {
+            super(itemView);
+            txtBy = itemView.findViewById(R.id.txtCommentBy);
+            txtTime = itemView.findViewById(R.id.txtCommentTime);
+            txtReplies = itemView.findViewById(R.id.txtCommentReplies);
+            txtText = itemView.findViewById(R.id.txtCommentText);
+            txtText.setMovementMethod(LinkMovementMethod.getInstance());
+
+            itemView.setOnClickListener(v -> onRowClick(this));
+        }
+    }
+
+    class MoreViewHolder extends RecyclerView.ViewHolder {
+        final TextView txtMore;
+
+        MoreViewHolder(@NonNull View itemView) {
+            super(itemView);
+            txtMore = itemView.findViewById(R.id.txtCommentMore);
+
+            itemView.setOnClickListener(v -> onRowClick(this));
+        }
+    }
+}
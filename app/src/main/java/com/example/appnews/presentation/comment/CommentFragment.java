@@ -0,0 +1,89 @@
+package com.example.appnews.presentation.comment;
+
+import android.os.Bundle;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.widget.Toolbar;
+import androidx.core.text.HtmlCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.appnews.MainActivity;
+import com.example.appnews.R;
+import com.example.appnews.persistence.ItemCache;
+import com.example.appnews.persistence.ItemRepository;
+import com.example.appnews.presentation.AppFragment;
+import com.example.appnews.presentation.home.NewModel;
+
+import java.io.File;
+
+import tool.compet.appbundle.binder.annotation.DkBindView;
+
+/**
+ * Comment thread of a story.
+ */
+public class CommentFragment extends AppFragment {
+    @DkBindView(R.id.comment_list)
+    RecyclerView recyclerView;
+
+    // Story whose kids are shown, must be set before the fragment is shown
+    public NewModel story;
+
+    private CommentTree tree;
+
+    public CommentFragment() {
+    }
+
+    @Override
+    public int layoutResourceId() {
+        return R.layout.frag_comment;
+    }
+
+    @Override
+    public int fragmentContainerId() {
+        return 0;
+    }
+
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        Toolbar toolbar = getActivity().findViewById(R.id.toolbar);
+        toolbar.setTitle(R.string.title_comments);
+        ((MainActivity) getActivity()).getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        ((MainActivity) getActivity()).getSupportActionBar().setDisplayShowHomeEnabled(true);
+
+        CommentAdapter adapter = new CommentAdapter(context);
+        recyclerView.setLayoutManager(new LinearLayoutManager(context, LinearLayoutManager.VERTICAL, false));
+        recyclerView.setAdapter(adapter);
+
+        // Comments rarely change, so cached ones are used while fresh
+        ItemRepository repository = ItemRepository.getIns();
+        ItemCache cache = new ItemCache(new File(requireContext().getCacheDir(), "items"));
+
+        tree = new CommentTree(story, (id, cancellation) -> {
+            ItemCache.Entry entry = cache.get(id);
+            if (entry != null && !entry.isStale) {
+                return entry.model;
+            }
+            NewModel model = repository.get(id, cancellation);
+            if (model != null) {
+                cache.put(model);
+            }
+            return model;
+        }, html -> HtmlCompat.fromHtml(html, HtmlCompat.FROM_HTML_MODE_LEGACY), adapter);
+
+        adapter.setTree(tree);
+        tree.start();
+    }
+
+    @Override
+    public void onDestroyView() {
+        if (tree != null) {
+            tree.release();
+            tree = null;
+        }
+        super.onDestroyView();
+    }
+}
@@ -0,0 +1,441 @@
+package com.example.appnews.presentation.comment;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.appnews.persistence.ItemRepository;
+import com.example.appnews.presentation.home.NewModel;
+import com.example.appnews.service.Cancellation;
+import com.example.appnews.service.StoryFetcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.datetime.DkDateTimes;
+
+/**
+ * Comment thread of a story, flattened into rows of one list. Each row is a comment annotated
+ * with its depth, or a "more" row which loads next page of kids of its parent.
+ * <p></p>
+ * Comments are loaded in waves: a wave fetches a page of kids of a node, then kids of those
+ * kids and so on breadth-first, level by level with bounded parallel requests, until
+ * {@link #WAVE_DEPTH} levels or {@link #WAVE_BUDGET} comments. Each level is shown as soon
+ * as it arrives. Comments below are collapsed, and expanding one starts a new wave under it.
+ * <p></p>
+ * Only expanded subtrees are resident: collapsing a comment drops its loaded subtree, so
+ * a thread with thousands of comments holds only what user opened.
+ * <p></p>
+ * Waves run one at a time on a thread owned by the tree, {@link #release()} aborts requests
+ * in flight and stops that thread.
+ * <p></p>
+ * Methods (and listener callbacks) must be called on main thread.
+ */
+public class CommentTree {
+    // Kids of a node fetched per page
+    public static final int PAGE_SIZE = 20;
+    // Levels loaded breadth-first by one wave
+    public static final int WAVE_DEPTH = 3;
+    // Comments fetched by one wave at most
+    public static final int WAVE_BUDGET = 150;
+
+    private static final int[] NO_KIDS = new int[0];
+
+    public interface Listener {
+        void onRowsInserted(int position, int count);
+
+        void onRowsRemoved(int position, int count);
+
+        void onRowChanged(int position);
+    }
+
+    /**
+     * Converts html text of a comment to displayed text, called on worker thread.
+     */
+    public interface TextFormatter {
+        CharSequence format(String html);
+    }
+
+    /**
+     * A comment, or a "more" row of its parent.
+     */
+    public static final class Node {
+        final int id;
+        final int depth;
+        final Node parent;
+        final boolean isMore;
+
+        String by;
+        CharSequence text;
+        String timeText;
+        boolean isDeleted;
+        int[] kids = NO_KIDS;
+
+        // Loaded kids in kids order, null if not expanded
+        ArrayList<Node> children;
+        // Kids [0, nextKidIndex) were taken to load
+        int nextKidIndex;
+        boolean isExpanded;
+        boolean isLoading;
+        // Set while its row is in the list
+        boolean isAttached;
+        // Bumped when collapsed, so kids of an outdated wave are not attached
+        int generation;
+        Node moreRow;
+
+        Node(int id, int depth, Node parent, boolean isMore) {
+            this.id = id;
+            this.depth = depth;
+            this.parent = parent;
+            this.isMore = isMore;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public boolean isMore() {
+            return isMore;
+        }
+
+        public String getBy() {
+            return by;
+        }
+
+        public CharSequence getText() {
+            return text;
+        }
+
+        public String getTimeText() {
+            return timeText;
+        }
+
+        public boolean isDeleted() {
+            return isDeleted;
+        }
+
+        public int getKidCount() {
+            return kids.length;
+        }
+
+        public boolean isExpanded() {
+            return isExpanded;
+        }
+
+        /**
+         * For a comment, whether its kids are loading. For a "more" row, whether next page is loading.
+         */
+        public boolean isLoading() {
+            return isMore ? parent.isLoading : isLoading;
+        }
+
+        /**
+         * @return number of kids not loaded yet, of parent of a "more" row.
+         */
+        public int getRemainingCount() {
+            return isMore ? parent.kids.length - parent.nextKidIndex : 0;
+        }
+    }
+
+    // Kids of a parent to fetch in a level of a wave
+    private static class Group {
+        final Node parent;
+        final int generation;
+        final int[] ids;
+        final ArrayList<Node> children = new ArrayList<>();
+
+        Group(Node parent, int[] ids) {
+            this.parent = parent;
+            this.generation = parent.generation;
+            this.ids = ids;
+        }
+    }
+
+    private final Node root;
+    private final ArrayList<Node> rows = new ArrayList<>();
+    private final StoryFetcher fetcher;
+    // Aborts requests in flight when released
+    private final Cancellation cancellation = new Cancellation();
+    // Runs waves, which wait for the fetcher
+    private final Executor executor;
+    private final Executor mainExecutor;
+    private final TextFormatter textFormatter;
+    private final Listener listener;
+    private volatile boolean isReleased;
+
+    public CommentTree(NewModel story, ItemRepository.Source source, TextFormatter textFormatter, Listener listener) {
+        this(story, source, Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "comment-tree");
+            thread.setDaemon(true);
+            return thread;
+        }), new Handler(Looper.getMainLooper())::post, textFormatter, listener);
+    }
+
+    CommentTree(NewModel story, ItemRepository.Source source, Executor executor, Executor mainExecutor, TextFormatter textFormatter, Listener listener) {
+        this.fetcher = new StoryFetcher(id -> source.loadItem(id, cancellation));
+        this.executor = executor;
+        this.mainExecutor = mainExecutor;
+        this.textFormatter = textFormatter;
+        this.listener = listener;
+
+        root = new Node(story.id, -1, null, false);
+        root.kids = story.kids == null ? NO_KIDS : story.kids;
+        root.children = new ArrayList<>();
+        root.isExpanded = true;
+        root.isAttached = true;
+    }
+
+    /**
+     * Loads first wave of the thread.
+     */
+    public void start() {
+        loadWave(root);
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    public Node getRow(int position) {
+        return rows.get(position);
+    }
+
+    /**
+     * Collapses an expanded comment (dropping its loaded subtree) or expands a collapsed one.
+     * For a "more" row, loads next page of its parent.
+     */
+    public void onRowClick(int position) {
+        Node node = rows.get(position);
+
+        if (node.isMore) {
+            loadWave(node.parent);
+        }
+        else if (node.isExpanded) {
+            collapse(node, position);
+        }
+        else if (node.kids.length > 0) {
+            node.isExpanded = true;
+            node.children = new ArrayList<>();
+            listener.onRowChanged(position);
+            loadWave(node);
+        }
+    }
+
+    /**
+     * Stops loading, this tree cannot be used anymore.
+     */
+    public void release() {
+        isReleased = true;
+        cancellation.cancel();
+        fetcher.shutdown();
+
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    private void collapse(Node node, int position) {
+        int end = subtreeEnd(position, node.depth);
+
+        for (int index = position + 1; index < end; ++index) {
+            rows.get(index).isAttached = false;
+        }
+        rows.subList(position + 1, end).clear();
+
+        ++node.generation;
+        node.isExpanded = false;
+        node.isLoading = false;
+        node.children = null;
+        node.moreRow = null;
+        node.nextKidIndex = 0;
+
+        if (end > position + 1) {
+            listener.onRowsRemoved(position + 1, end - position - 1);
+        }
+        listener.onRowChanged(position);
+    }
+
+    private void loadWave(Node node) {
+        if (node.isLoading || node.nextKidIndex >= node.kids.length || isReleased) {
+            return;
+        }
+
+        Group first = new Group(node, takeKids(node, PAGE_SIZE));
+        notifyRowChanged(node);
+
+        executor.execute(() -> runWave(first));
+    }
+
+    // Takes next page of kids of given node to load
+    private static int[] takeKids(Node node, int maxCount) {
+        int from = node.nextKidIndex;
+        int to = Math.min(node.kids.length, from + maxCount);
+        int[] ids = new int[to - from];
+
+        System.arraycopy(node.kids, from, ids, 0, ids.length);
+        node.nextKidIndex = to;
+        node.isLoading = true;
+
+        return ids;
+    }
+
+    // Runs on worker thread
+    private void runWave(Group first) {
+        List<Group> level = new ArrayList<>();
+        level.add(first);
+        int budget = WAVE_BUDGET - first.ids.length;
+
+        for (int depth = 0; depth < WAVE_DEPTH && !level.isEmpty() && !isReleased; ++depth) {
+            // Fetch whole level at once, results come in order of the level
+            ArrayList<String> ids = new ArrayList<>();
+            for (Group group : level) {
+                for (int id : group.ids) {
+                    ids.add(String.valueOf(id));
+                }
+            }
+
+            ArrayList<NewModel> models = new ArrayList<>();
+            try {
+                fetcher.fetch(ids, models::add);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // Failed items are missing from results, so match them by id
+            List<Group> nextLevel = new ArrayList<>();
+            int modelIndex = 0;
+
+            for (Group group : level) {
+                for (int id : group.ids) {
+                    if (modelIndex < models.size() && models.get(modelIndex).id == id) {
+                        Node child = createNode(models.get(modelIndex++), group.parent);
+                        if (child != null) {
+                            group.children.add(child);
+                        }
+                    }
+                }
+            }
+
+            // Decide next level before posting, nodes are owned by main thread after that
+            if (depth + 1 < WAVE_DEPTH) {
+                for (Group group : level) {
+                    for (Node child : group.children) {
+                        if (budget <= 0) {
+                            break;
+                        }
+                        if (child.kids.length > 0) {
+                            child.isExpanded = true;
+                            child.children = new ArrayList<>();
+                            int[] kidIds = takeKids(child, Math.min(PAGE_SIZE, budget));
+                            budget -= kidIds.length;
+                            nextLevel.add(new Group(child, kidIds));
+                        }
+                    }
+                }
+            }
+
+            final List<Group> loadedLevel = level;
+            mainExecutor.execute(() -> attach(loadedLevel));
+
+            level = nextLevel;
+        }
+    }
+
+    // Runs on worker thread
+    private Node createNode(NewModel model, Node parent) {
+        boolean hasKids = model.kids != null && model.kids.length > 0;
+
+        // Removed comments are shown only to keep their replies
+        if (model.dead || (model.deleted && !hasKids)) {
+            return null;
+        }
+
+        Node node = new Node(model.id, parent.depth + 1, parent, false);
+        node.isDeleted = model.deleted;
+        node.by = model.by;
+        node.text = model.text == null ? "" : textFormatter.format(model.text);
+        node.timeText = DkDateTimes.formatRelativeTime(TimeUnit.SECONDS.toMillis(model.time));
+        node.kids = hasKids ? model.kids : NO_KIDS;
+
+        return node;
+    }
+
+    private void attach(List<Group> level) {
+        if (isReleased) {
+            return;
+        }
+
+        for (Group group : level) {
+            Node parent = group.parent;
+
+            // Parent (or its ancestor) was collapsed while loading
+            if (!parent.isAttached || !parent.isExpanded || parent.generation != group.generation) {
+                continue;
+            }
+            parent.isLoading = false;
+            parent.children.addAll(group.children);
+
+            int parentRow = parent == root ? -1 : rows.indexOf(parent);
+            int end = subtreeEnd(parentRow, parent.depth);
+
+            // Remove "more" row, it is added back after new rows if kids remain
+            if (parent.moreRow != null) {
+                parent.moreRow.isAttached = false;
+                parent.moreRow = null;
+                rows.remove(--end);
+                listener.onRowsRemoved(end, 1);
+            }
+
+            for (Node child : group.children) {
+                child.isAttached = true;
+            }
+            rows.addAll(end, group.children);
+
+            int insertedCount = group.children.size();
+            if (parent.nextKidIndex < parent.kids.length) {
+                parent.moreRow = new Node(parent.id, parent.depth + 1, parent, true);
+                parent.moreRow.isAttached = true;
+                rows.add(end + insertedCount, parent.moreRow);
+                ++insertedCount;
+            }
+
+            if (insertedCount > 0) {
+                listener.onRowsInserted(end, insertedCount);
+            }
+            if (parentRow >= 0) {
+                listener.onRowChanged(parentRow);
+            }
+        }
+    }
+
+    // Index after last row of the subtree of row at given position (-1 for root)
+    private int subtreeEnd(int position, int depth) {
+        int end = position + 1;
+        while (end < rows.size() && rows.get(end).depth > depth) {
+            ++end;
+        }
+        return end;
+    }
+
+    // Rebinds row of given node and its "more" row, for eg,. to show loading state
+    private void notifyRowChanged(Node node) {
+        if (node != root) {
+            int position = rows.indexOf(node);
+            if (position >= 0) {
+                listener.onRowChanged(position);
+            }
+        }
+        if (node.moreRow != null) {
+            listener.onRowChanged(rows.indexOf(node.moreRow));
+        }
+    }
+}
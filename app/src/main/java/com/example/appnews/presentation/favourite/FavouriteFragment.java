@@ -1,6 +1,5 @@
 package com.example.appnews.presentation.favourite;
 
-import android.database.Cursor;
 import android.os.Bundle;
 
 import androidx.annotation.NonNull;
@@ -22,24 +21,24 @@ import android.widget.TextView;
 import com.example.appnews.R;
 import com.example.appnews.constants.Constants;
 import com.example.appnews.persistence.NewsDB;
+import com.example.appnews.persistence.NewsPageReader;
 import com.example.appnews.presentation.AppFragment;
 import com.example.appnews.presentation.home.NewModel;
 import com.example.appnews.presentation.newdetail.NewDetailFragment;
 
-import java.util.ArrayList;
+import java.util.List;
 
 import tool.compet.appbundle.binder.annotation.DkBindView;
 
 /**
  * A simple {@link Fragment} subclass.
  */
-public class FavouriteFragment extends AppFragment {
+public class FavouriteFragment extends AppFragment implements NewsPageReader.Listener {
     @DkBindView(R.id.lvFavorite)
     RecyclerView recyclerView;
 
     CustomAdapter customAdapter;
-    NewsDB newsDB;
-    private ArrayList<NewModel> news = new ArrayList<>();
+    private NewsPageReader pageReader;
 
     public FavouriteFragment() {
         // Required empty public constructor
@@ -59,10 +58,18 @@ public class FavouriteFragment extends AppFragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        customAdapter = new CustomAdapter(this, context, news, R.layout.item_lv_bookmark);
+        customAdapter = new CustomAdapter(this, context, R.layout.item_lv_bookmark);
         recyclerView.setHasFixedSize(true);
         LinearLayoutManager layoutManager = new LinearLayoutManager(context, LinearLayoutManager.VERTICAL, false);
         recyclerView.setLayoutManager(layoutManager);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (pageReader != null) {
+                    pageReader.onScrolled(layoutManager.findLastVisibleItemPosition(), customAdapter.getItemCount());
+                }
+            }
+        });
         recyclerView.setAdapter(customAdapter);
 
         loadBookmark();
@@ -71,30 +78,28 @@ public class FavouriteFragment extends AppFragment {
     }
 
     private void loadBookmark() {
-        newsDB = new NewsDB(context);
-        Cursor cursor = newsDB.getAllItem(2);
-        if (cursor != null) {
-            news.clear();
-            while (cursor.moveToNext()) {
-                NewModel model = new NewModel();
-                model.setId(cursor.getInt(1));
-                model.setBy(cursor.getString(2));
-                model.setDescendants(cursor.getString(3));
-                model.setScore(cursor.getInt(4));
-                model.setTime(cursor.getInt(5));
-                model.setTitle(cursor.getString(6));
-                model.setType(cursor.getString(7));
-                model.setUrl(cursor.getString(8));
-                news.add(model);
-            }
-            customAdapter.notifyDataSetChanged();
+        pageReader = new NewsPageReader(NewsDB.getIns(context), NewsDB.CATEGORY_BOOKMARK, this);
+        pageReader.loadNextPage();
+    }
+
+    @Override
+    public void onPageLoaded(List<NewModel> items) {
+        customAdapter.appendItems(items);
+    }
+
+    @Override
+    public void onDestroyView() {
+        if (pageReader != null) {
+            pageReader.release();
+            pageReader = null;
         }
+        super.onDestroyView();
     }
 
     public void onItemClick(int bindingAdapterPosition) {
 
         NewDetailFragment f = new NewDetailFragment();
-        f.url = news.get(bindingAdapterPosition).url;
+        f.url = customAdapter.getItem(bindingAdapterPosition).url;
 
         getChildNavigator()
                 .beginTransaction()
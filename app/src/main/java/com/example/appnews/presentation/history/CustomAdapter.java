@@ -13,32 +13,40 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.widget.PopupMenu;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.appnews.R;
 import com.example.appnews.persistence.NewsDB;
+import com.example.appnews.presentation.NewModelDiffCallback;
+import com.example.appnews.presentation.RowTexts;
+import com.example.appnews.presentation.TitleSearchIndex;
 import com.example.appnews.presentation.home.NewModel;
 
-import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
-import tool.compet.core.datetime.DkDateTimes;
+import tool.compet.core.util.DkLogs;
 
 public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder> implements Filterable {
     private final HistoryFragment historyFragment;
     Context context;
     int layoutID;
-    ArrayList<NewModel> news;
     int idItem;
-    NewsDB newsDB;
-    ArrayList<NewModel> origin = new ArrayList<>();
-
-    public CustomAdapter(HistoryFragment historyFragment, Context context, ArrayList<NewModel> news, int layoutID) {
+    // Whole loaded list. It is replaced instead of modified, so filtering can read it in background
+    volatile List<NewModel> origin = Collections.emptyList();
+    // Applied filter, empty if not filtered
+    CharSequence constraint = "";
+    // Titles of loaded items, keyed by item id
+    final TitleSearchIndex titleIndex = new TitleSearchIndex();
+    // Rows on screen, changes are diffed by item id in background
+    private final AsyncListDiffer<NewModel> differ = new AsyncListDiffer<>(this, NewModelDiffCallback.INS);
+
+    public CustomAdapter(HistoryFragment historyFragment, Context context, int layoutID) {
         this.historyFragment = historyFragment;
         this.context = context;
-        this.news = news;
         this.layoutID = layoutID;
     }
 
@@ -53,24 +61,59 @@ public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        NewModel newModel = news.get(position);
+        NewModel newModel = getItem(position);
         holder.txtTitle.setText(newModel.title);
         holder.txtCategory.setText(newModel.type);
-        holder.txtDay.setText(DkDateTimes.formatTime(newModel.time));
-        holder.txtBy.setText("By: " + newModel.by);
-        try {
-            String urlAddress = newModel.url;
-            URL url = new URL(urlAddress);
-            String domain = url.getHost();
-            holder.txtUrl.setText(domain);
-        } catch (Exception e) {
-            System.out.println("Exception caught =" + e.getMessage());
-        }
+        // Prepared by the page reader in background
+        RowTexts texts = RowTexts.get(newModel);
+        holder.txtDay.setText(texts.time);
+        holder.txtBy.setText(texts.by);
+        holder.txtUrl.setText(texts.host);
     }
 
     @Override
     public int getItemCount() {
-        return news.size();
+        return differ.getCurrentList().size();
+    }
+
+    public NewModel getItem(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
+    /**
+     * Appends next page of saved items.
+     */
+    public void appendItems(List<NewModel> items) {
+        for (NewModel item : items) {
+            titleIndex.put(item.id, item.title);
+        }
+
+        List<NewModel> list = new ArrayList<>(origin.size() + items.size());
+        list.addAll(origin);
+        list.addAll(items);
+        origin = list;
+
+        refresh();
+    }
+
+    private void removeItem(NewModel item) {
+        titleIndex.remove(item.id);
+
+        List<NewModel> list = new ArrayList<>(origin);
+        list.remove(item);
+        origin = list;
+
+        refresh();
+    }
+
+    // Shows whole list, or filters it again when a filter is applied
+    private void refresh() {
+        if (constraint.length() == 0) {
+            differ.submitList(origin);
+        }
+        else {
+            filter.filter(constraint);
+        }
     }
 
     @Override
@@ -81,15 +124,13 @@ public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder
     Filter filter = new Filter() {
         @Override
         protected FilterResults performFiltering(CharSequence constraint) {
-            List<NewModel> filterList = new ArrayList<>();
-            if (origin.size() == 0) {
-                origin.addAll(news);
-            }
-            if (constraint.toString().isEmpty()) {
-                filterList.addAll(origin);
-            } else {
-                for (NewModel model : origin) {
-                    if (model.title.toLowerCase().contains(constraint.toString().toLowerCase())) {
+            List<NewModel> source = origin;
+            List<NewModel> filterList = source;
+            int[] ids = titleIndex.search(constraint);
+            if (ids != null) {
+                filterList = new ArrayList<>();
+                for (NewModel model : source) {
+                    if (Arrays.binarySearch(ids, model.id) >= 0) {
                         filterList.add(model);
                     }
                 }
@@ -102,9 +143,8 @@ public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder
 
         @Override
         protected void publishResults(CharSequence constraint, FilterResults results) {
-            news.clear();
-            news.addAll((Collection<? extends NewModel>) results.values);
-            notifyDataSetChanged();
+            CustomAdapter.this.constraint = constraint == null ? "" : constraint.toString();
+            differ.submitList((List<NewModel>) results.values);
         }
     };
 
@@ -128,12 +168,18 @@ public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder
             imageButton.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
+                    int position = getAbsoluteAdapterPosition();
+                    if (position == RecyclerView.NO_POSITION) {
+                        return;
+                    }
                     // delete from DB
-                    idItem = news.get(getAbsoluteAdapterPosition()).getId();
-                    newsDB = new NewsDB(context);
-                    newsDB.deleteItem(idItem, 1);
-                    news.remove(getLayoutPosition());
-                    notifyDataSetChanged();
+                    NewModel item = getItem(position);
+                    idItem = item.getId();
+                    NewsDB.getIns(context)
+                            .removeItem(idItem, NewsDB.CATEGORY_HISTORY)
+                            .doOnError(e -> DkLogs.logex(this, e))
+                            .subscribe();
+                    removeItem(item);
                 }
             });
 
@@ -1,6 +1,7 @@
 package com.example.appnews.presentation.home;
 
 import android.content.Context;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -13,41 +14,51 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.widget.PopupMenu;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.appnews.R;
 import com.example.appnews.event.ItemStoryEvent;
-import com.example.appnews.persistence.NewsDB;
-import com.squareup.picasso.Picasso;
+import com.example.appnews.presentation.ImageLoader;
+import com.example.appnews.presentation.TitleSearchIndex;
 
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-
-import tool.compet.core.datetime.DkDateTimes;
+import java.util.Arrays;
+import java.util.BitSet;
 
 public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder> implements Filterable {
     private final HomeFragment homeFragment;
 
     Context context;
     int layoutID;
-    ArrayList<NewModel> news;
+    private final ImageLoader imageLoader;
+    // Feed positions on screen in feed order, all positions when not filtered
+    volatile int[] positions = new int[0];
+    // Applied filter, empty if not filtered
+    CharSequence constraint = "";
+    // Bumped when the feed is reset or replaced, a filter result of previous feed is outdated
+    private volatile int feedGeneration;
+    private volatile int feedSize;
+    // Feed positions changed since last frame, they are rebound together on next frame
+    private final BitSet dirtyPositions = new BitSet();
+    private boolean isFlushScheduled;
+    private final Choreographer.FrameCallback flushCallback = frameTimeNanos -> flushChanges();
     String logos[];
-    NewsDB newsDB;
-    int idItem;
-    ArrayList<NewModel> origin = new ArrayList<>();
+    // Whole feed, positions which are not loaded (or were dropped) by the pager are placeholders
+    final StoryTable table;
+    // Titles of loaded feed positions, keyed by position
+    final TitleSearchIndex titleIndex;
 
     ItemStoryEvent event;
-//    AsyncResponse event;
 
-    public CustomAdapter(HomeFragment homeFragment, Context context, ArrayList<NewModel> news, int layoutID, String[] logos, ItemStoryEvent event) {
+    public CustomAdapter(HomeFragment homeFragment, Context context, StoryTable table, TitleSearchIndex titleIndex, int layoutID, String[] logos, ItemStoryEvent event) {
         this.homeFragment = homeFragment;
         this.context = context;
-        this.news = news;
+        this.table = table;
+        this.titleIndex = titleIndex;
         this.layoutID = layoutID;
         this.logos = logos;
         this.event = event;
+        this.imageLoader = ImageLoader.getIns(context);
     }
 
     @NonNull
@@ -61,30 +72,142 @@ public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        NewModel newModel = news.get(position);
-        holder.txtTitle.setText(newModel.title);
-        holder.txtCategory.setText(newModel.type);
-        holder.txtBy.setText("By: " + newModel.by);
-        holder.txtDay.setText(DkDateTimes.formatTime(newModel.time));
-
-        try {
-            String urlAddress = newModel.url;
-            URL url = new URL(urlAddress);
-            String domain = url.getHost();
-            holder.txtUrl.setText(domain);
-        } catch (Exception e) {
-            System.out.println("Exception caught =" + e.getMessage());
+        StoryTable.Row row = holder.row;
+        if (!table.moveTo(row, getFeedPosition(position))) {
+            bindPlaceholder(holder);
+            return;
         }
+        holder.txtTitle.setText(row.getTitle());
+        holder.txtCategory.setText(row.getType());
+        holder.txtBy.setText(row.getByText());
+        holder.txtDay.setText(row.getTimeText());
+        holder.txtUrl.setText(row.getHost());
+
+        imageLoader.load(logos[position % logos.length], holder.imageView, R.drawable.no);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        // Row went off screen, its logo is not needed anymore
+        imageLoader.cancel(holder.imageView);
+    }
 
-        Picasso.with(context)
-                .load(logos[position])
-                .placeholder(R.drawable.no)
-                .into(holder.imageView);
+    private void bindPlaceholder(ViewHolder holder) {
+        holder.txtTitle.setText(R.string.story_loading);
+        holder.txtCategory.setText(null);
+        holder.txtBy.setText(null);
+        holder.txtDay.setText(null);
+        holder.txtUrl.setText(null);
+        imageLoader.cancel(holder.imageView);
+        holder.imageView.setImageResource(R.drawable.no);
     }
 
     @Override
     public int getItemCount() {
-        return news.size();
+        return positions.length;
+    }
+
+    /**
+     * @return position in the whole feed of given adapter position.
+     */
+    public int getFeedPosition(int position) {
+        return positions[position];
+    }
+
+    /**
+     * Called after the feed was reset to a new id list, all rows are rebound.
+     */
+    public void onFeedReset() {
+        onFeedChanged();
+        notifyDataSetChanged();
+
+        if (constraint.length() > 0) {
+            filter.filter(constraint);
+        }
+    }
+
+    /**
+     * Called after the feed was replaced by a new id list, with diff (keyed by HN id)
+     * of the new list against previous one.
+     */
+    public void onFeedReplaced(DiffUtil.DiffResult diff) {
+        // Filtered rows cannot be diffed against the whole feed, filter new feed instead
+        if (constraint.length() > 0) {
+            onFeedReset();
+            return;
+        }
+        onFeedChanged();
+        diff.dispatchUpdatesTo(this);
+    }
+
+    private void onFeedChanged() {
+        ++feedGeneration;
+        feedSize = table.size();
+        positions = allPositions(feedSize);
+        dirtyPositions.clear();
+    }
+
+    /**
+     * Called after a row of the whole feed was loaded, changed or dropped.
+     * Rows are not rebound at once but together on next frame.
+     */
+    public void onFeedRangeChanged(int position, int count) {
+        dirtyPositions.set(position, position + count);
+
+        if (!isFlushScheduled) {
+            isFlushScheduled = true;
+            Choreographer.getInstance().postFrameCallback(flushCallback);
+        }
+    }
+
+    private void flushChanges() {
+        isFlushScheduled = false;
+
+        // Notify contiguous runs of shown rows, positions are sorted so it also finds filtered rows
+        int[] shown = positions;
+        int runStart = -1;
+        int runEnd = -1;
+
+        for (int position = dirtyPositions.nextSetBit(0); position >= 0; position = dirtyPositions.nextSetBit(position + 1)) {
+            int index = Arrays.binarySearch(shown, position);
+            if (index < 0) {
+                continue;
+            }
+            if (index == runEnd) {
+                ++runEnd;
+            }
+            else {
+                if (runStart >= 0) {
+                    notifyItemRangeChanged(runStart, runEnd - runStart);
+                }
+                runStart = index;
+                runEnd = index + 1;
+            }
+        }
+        if (runStart >= 0) {
+            notifyItemRangeChanged(runStart, runEnd - runStart);
+        }
+
+        dirtyPositions.clear();
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+
+        if (isFlushScheduled) {
+            isFlushScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(flushCallback);
+        }
+        dirtyPositions.clear();
+    }
+
+    private static int[] allPositions(int count) {
+        int[] positions = new int[count];
+        for (int i = 0; i < count; ++i) {
+            positions[i] = i;
+        }
+        return positions;
     }
 
     @Override
@@ -92,33 +215,88 @@ public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder
         return filter;
     }
 
+    private static class FilterResult {
+        final int generation;
+        final int[] oldPositions;
+        final int[] newPositions;
+        final DiffUtil.DiffResult diff;
+
+        FilterResult(int generation, int[] oldPositions, int[] newPositions, DiffUtil.DiffResult diff) {
+            this.generation = generation;
+            this.oldPositions = oldPositions;
+            this.newPositions = newPositions;
+            this.diff = diff;
+        }
+    }
+
+    // Same feed position is same HN id, and content changes are notified by onFeedRangeChanged()
+    private static class PositionsDiffCallback extends DiffUtil.Callback {
+        final int[] oldPositions;
+        final int[] newPositions;
+
+        PositionsDiffCallback(int[] oldPositions, int[] newPositions) {
+            this.oldPositions = oldPositions;
+            this.newPositions = newPositions;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldPositions.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newPositions.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldPositions[oldItemPosition] == newPositions[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return true;
+        }
+    }
+
     Filter filter = new Filter() {
         @Override
         protected FilterResults performFiltering(CharSequence constraint) {
-            List<NewModel> filterList = new ArrayList<>();
-            if (origin.size() == 0) {
-                origin.addAll(news);
-            }
-            if (constraint.toString().isEmpty()) {
-                filterList.addAll(origin);
-            } else {
-                for (NewModel model : origin) {
-                    if (model.title.toLowerCase().contains(constraint.toString().toLowerCase())) {
-                        filterList.add(model);
-                    }
-                }
+            int generation = feedGeneration;
+            int[] oldPositions = positions;
+            // Matched feed positions in feed order, or null for no filter
+            int[] newPositions = titleIndex.search(constraint);
+            if (newPositions == null) {
+                newPositions = allPositions(feedSize);
             }
 
+            // Positions are sorted, so no move
+            DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new PositionsDiffCallback(oldPositions, newPositions), false);
+
             FilterResults filterResults = new FilterResults();
-            filterResults.values = filterList;
+            filterResults.values = new FilterResult(generation, oldPositions, newPositions, diff);
             return filterResults;
         }
 
         @Override
         protected void publishResults(CharSequence constraint, FilterResults results) {
-            news.clear();
-            news.addAll((Collection<? extends NewModel>) results.values);
-            notifyDataSetChanged();
+            CustomAdapter.this.constraint = constraint == null ? "" : constraint.toString();
+            FilterResult result = (FilterResult) results.values;
+
+            if (result.generation != feedGeneration) {
+                // Computed for previous feed
+                filter.filter(CustomAdapter.this.constraint);
+            }
+            else if (result.oldPositions != positions) {
+                // Shown rows changed while filtering, so the diff cannot be applied
+                positions = result.newPositions;
+                notifyDataSetChanged();
+            }
+            else {
+                positions = result.newPositions;
+                result.diff.dispatchUpdatesTo(CustomAdapter.this);
+            }
         }
     };
 
@@ -126,7 +304,7 @@ public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder
         TextView txtTitle, txtCategory, txtDay, txtUrl, txtBy;
         ImageView imageView;
         ImageButton imageButton;
-        NewModel model = new NewModel();
+        final StoryTable.Row row = table.newRow();
 
         public ViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -139,31 +317,56 @@ public class CustomAdapter extends RecyclerView.Adapter<CustomAdapter.ViewHolder
             imageButton = itemView.findViewById(R.id.bookmark);
 
             itemView.setOnClickListener(v -> {
-                idItem = news.get(getAbsoluteAdapterPosition()).getId();
+                int adapterPosition = getAbsoluteAdapterPosition();
+                // Row is being removed
+                if (adapterPosition == RecyclerView.NO_POSITION) {
+                    return;
+                }
+                int position = getFeedPosition(adapterPosition);
+                if (!table.isLoaded(position)) {
+                    return;
+                }
                 // save into db
-                event.itemClick(idItem, 1);
-                homeFragment.onItemClick(getBindingAdapterPosition());
+                event.itemClick(table.toModel(position), 1);
+                homeFragment.onItemClick(position);
             });
 
             imageButton.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
-                    idItem = news.get(getAbsoluteAdapterPosition()).getId();
-                    showPopupMenu(v);
+                    int adapterPosition = getAbsoluteAdapterPosition();
+                    if (adapterPosition == RecyclerView.NO_POSITION) {
+                        return;
+                    }
+                    int position = getFeedPosition(adapterPosition);
+                    if (!table.isLoaded(position)) {
+                        return;
+                    }
+                    showPopupMenu(v, position);
                 }
             });
         }
     }
 
     // add bookmark
-    private void showPopupMenu(View v) {
+    private void showPopupMenu(View v, int feedPosition) {
+        // Taken now, rows may be reordered while the menu is open, so menu actions
+        // must not resolve the position again
+        NewModel story = table.toModel(feedPosition);
+        if (story == null) {
+            return;
+        }
         PopupMenu popupMenu = new PopupMenu(v.getContext(), v);
         popupMenu.inflate(R.menu.popup_menu);
         popupMenu.setOnMenuItemClickListener(new PopupMenu.OnMenuItemClickListener() {
             @Override
             public boolean onMenuItemClick(MenuItem item) {
+                if (item.getItemId() == R.id.comments) {
+                    homeFragment.onCommentsClick(story);
+                    return true;
+                }
                 // add bookmark here
-                event.itemClick(idItem, 2);
+                event.itemClick(story, 2);
                 return true;
             }
         });
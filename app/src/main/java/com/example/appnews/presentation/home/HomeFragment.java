@@ -6,6 +6,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -18,36 +19,62 @@ import android.widget.Toast;
 import com.example.appnews.constants.Constants;
 import com.example.appnews.R;
 import com.example.appnews.event.ItemStoryEvent;
+import com.example.appnews.persistence.ItemCache;
+import com.example.appnews.persistence.ItemRepository;
 import com.example.appnews.persistence.NewsDB;
 import com.example.appnews.presentation.AppFragment;
+import com.example.appnews.presentation.JobScope;
+import com.example.appnews.presentation.TitleSearchIndex;
+import com.example.appnews.presentation.comment.CommentFragment;
 import com.example.appnews.presentation.newdetail.NewDetailFragment;
-import com.example.appnews.service.ApiService;
-import com.example.appnews.service.RetrofitClient;
+import com.example.appnews.service.ArticlePrefetcher;
+import com.example.appnews.service.FirebaseRealtimeSource;
+import com.example.appnews.service.HnApi;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 import tool.compet.appbundle.binder.annotation.DkBindView;
-import tool.compet.core.type.DkCallback;
+import tool.compet.core.helper.DkExecutorService;
+import tool.compet.core.stream.observable.DkObservable;
+import tool.compet.core.stream.observer.DkControllable;
 import tool.compet.core.util.DkLogs;
 
 /**
  * A simple {@link Fragment} subclass.
  * implements ItemStoryEvent
  */
-public class HomeFragment extends AppFragment implements ItemStoryEvent, DkCallback<NewModel> {
+public class HomeFragment extends AppFragment implements ItemStoryEvent, StoryPager.Listener, LiveFeed.Listener {
+    // Articles of this many top visible rows are fetched ahead, user likely opens one of them
+    private static final int LIKELY_OPENED_ROWS = 3;
+
     @DkBindView(R.id.list)
     RecyclerView recyclerView;
 
     CustomAdapter customAdapter;
     String[] logos = Constants.logos;
-    private ArrayList<NewModel> news = new ArrayList<>();
+    private final StoryTable table = new StoryTable();
+    private final TitleSearchIndex titleIndex = new TitleSearchIndex();
+    private LinearLayoutManager layoutManager;
+    private StoryPager pager;
+    private final HnApi api = new HnApi();
+    private final ItemRepository itemRepository = ItemRepository.getIns();
+    // Loads bound to the view, cancelled when it is destroyed
+    private final JobScope jobs = new JobScope();
+    private ItemCache itemCache;
+    private NewsLoader newsLoader;
+    private ArticlePrefetcher articlePrefetcher;
+    // Pushes top list and item changes while the feed is shown
+    private LiveFeed liveFeed;
+    // Ids of the feed on screen
+    private ArrayList<String> feedIds;
+    // Diffing of the feed against a new id list, in background
+    private DkControllable<DiffUtil.DiffResult> feedDiffing;
+    private ArrayList<String> diffingIds;
 
     NewsDB newsDB;
     NewModel model;
-    DkCallback<NewModel> dkCallback;
 
     public HomeFragment() {
         // Required empty public constructor
@@ -56,8 +83,30 @@ public class HomeFragment extends AppFragment implements ItemStoryEvent, DkCallb
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        newsDB = new NewsDB(getActivity());
-        dkCallback = this;
+        newsDB = NewsDB.getIns(requireContext());
+        itemCache = new ItemCache(new File(requireContext().getCacheDir(), "items"));
+        newsLoader = new NewsLoader(jobs, itemCache, api);
+        articlePrefetcher = ArticlePrefetcher.getIns(requireContext());
+        liveFeed = new LiveFeed(new FirebaseRealtimeSource(), this);
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        liveFeed.start();
+        if (pager != null) {
+            pager.setFreshSince(liveFeed.getStartedAt());
+        }
+    }
+
+    @Override
+    public void onStop() {
+        // Changes are not heard anymore, so cached items go stale by ttl again
+        liveFeed.stop();
+        if (pager != null) {
+            pager.setFreshSince(Long.MAX_VALUE);
+        }
+        super.onStop();
     }
 
     @Override
@@ -75,33 +124,232 @@ public class HomeFragment extends AppFragment implements ItemStoryEvent, DkCallb
         super.onViewCreated(view, savedInstanceState);
 
         recyclerView.setHasFixedSize(true);
-        LinearLayoutManager layoutManager = new LinearLayoutManager(context, LinearLayoutManager.VERTICAL, false);
+        layoutManager = new LinearLayoutManager(context, LinearLayoutManager.VERTICAL, false);
         recyclerView.setLayoutManager(layoutManager);
 
-        customAdapter = new CustomAdapter(this, context, news, R.layout.item_lv_home, logos, this);
+        customAdapter = new CustomAdapter(this, context, table, titleIndex, R.layout.item_lv_home, logos, this);
         recyclerView.setAdapter(customAdapter);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                onVisibleRangeChanged();
+            }
+
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                // Rows passed by while scrolling are not worth prefetching
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchVisibleArticles();
+                }
+            }
+        });
 
         loadNewsAync();
 
         setHasOptionsMenu(true);
     }
 
+    @Override
+    public void onDestroyView() {
+        if (pager != null) {
+            pager.release();
+            pager = null;
+        }
+        cancelFeedDiffing();
+        jobs.cancelAll();
+        feedIds = null;
+        super.onDestroyView();
+    }
+
     private void loadNewsAync() {
-        NewsLoader loader = new NewsLoader(this, dkCallback);
-        loader.execute();
+        newsLoader.load(this::onLoadArticleIdResult);
+    }
+
+    void onLoadArticleIdResult(ArrayList<String> ids) {
+        DkLogs.debug(this, "loaded %d story ids", ids.size());
+
+        // View was destroyed while loading
+        if (customAdapter == null || getView() == null) {
+            return;
+        }
+        cancelFeedDiffing();
+
+        // Fresh list is same as cached one which is on screen
+        if (ids.equals(feedIds)) {
+            return;
+        }
+
+        // First list, nothing to diff against
+        if (feedIds == null) {
+            feedIds = ids;
+            liveFeed.setCurrentIds(ids);
+            table.reset(ids.size());
+            titleIndex.clear();
+            restartPager();
+            customAdapter.onFeedReset();
+            onVisibleRangeChanged();
+            return;
+        }
+
+        // Fresh list mostly keeps cached stories at near positions, so move them instead of
+        // reloading and rebinding whole feed. Diff by id in background since it is O(N*D)
+        final ArrayList<String> oldIds = feedIds;
+        diffingIds = ids;
+
+        feedDiffing = DkObservable
+                .fromExecution(() -> DiffUtil.calculateDiff(new FeedIdsDiffCallback(oldIds, ids), true))
+                .scheduleInBackgroundAndObserveOnMainThread()
+                .doOnNext(diff -> onFeedDiffed(ids, diff))
+                .doOnError(e -> DkLogs.logex(this, e))
+                .subscribeForControllable();
+    }
+
+    private void onFeedDiffed(ArrayList<String> ids, DiffUtil.DiffResult diff) {
+        // Result may be delivered after cancel, drop it if a newer list came or view was destroyed
+        if (ids != diffingIds || customAdapter == null || getView() == null) {
+            return;
+        }
+        feedDiffing = null;
+        diffingIds = null;
+        feedIds = ids;
+        liveFeed.setCurrentIds(ids);
+
+        // Loaded stories moved to new positions, so re-key their titles
+        table.remap(ids);
+        titleIndex.clear();
+        for (int position = 0, size = table.size(); position < size; ++position) {
+            if (table.isLoaded(position)) {
+                titleIndex.put(position, table.getTitle(position));
+            }
+        }
+
+        restartPager();
+        customAdapter.onFeedReplaced(diff);
+        onVisibleRangeChanged();
+    }
+
+    private void cancelFeedDiffing() {
+        if (feedDiffing != null) {
+            feedDiffing.cancel(true);
+            feedDiffing = null;
+        }
+        diffingIds = null;
+    }
+
+    private void restartPager() {
+        if (pager != null) {
+            pager.release();
+        }
+        // Requests of the pager are aborted when it is released, with the view or by next restart
+        pager = new StoryPager(feedIds, itemCache, itemRepository::get, this);
+        // Stories kept by remapping the table must be dropped when far away, like loaded ones
+        pager.onRowsKept(table);
+
+        // Live feed tells changed items, so items cached since it started need no revalidation
+        if (liveFeed.isStarted()) {
+            pager.setFreshSince(liveFeed.getStartedAt());
+        }
+    }
+
+    @Override
+    public void onFeedChanged(ArrayList<String> ids) {
+        DkExecutorService.getIns().execute(() -> itemCache.putTopStoryIds(ids));
+        onLoadArticleIdResult(ids);
+    }
+
+    @Override
+    public void onStoriesChanged(List<String> ids) {
+        itemRepository.invalidate(ids);
+        if (pager != null) {
+            pager.onItemsChanged(ids);
+        }
     }
 
-    void onLoadArticleIdResult(ArrayList<NewModel> newModels) {
-        DkLogs.debug(this, "loaded %d news", newModels.size());
-//        news.clear();
+    private void onVisibleRangeChanged() {
+        if (pager != null) {
+            pager.onVisibleRangeChanged(layoutManager.findFirstVisibleItemPosition(),
+                    layoutManager.findLastVisibleItemPosition());
+        }
+    }
+
+    private void prefetchVisibleArticles() {
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = Math.min(layoutManager.findLastVisibleItemPosition(), customAdapter.getItemCount() - 1);
+
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
 
-//        news.addAll(newModels);
-//        customAdapter.notifyDataSetChanged();
+        ArrayList<String> urls = new ArrayList<>();
+        for (int position = first; position <= last; ++position) {
+            int feedPosition = customAdapter.getFeedPosition(position);
+            if (table.isLoaded(feedPosition) && table.getUrl(feedPosition) != null) {
+                urls.add(table.getUrl(feedPosition));
+            }
+        }
+        articlePrefetcher.onRowsVisible(urls, LIKELY_OPENED_ROWS);
     }
 
-    public void onItemClick(int bindingAdapterPosition) {
+    @Override
+    public void onItemLoaded(int position, NewModel model) {
+        // Revalidated item which looks same as cached one, no need to rebind
+        boolean isChanged = !table.isSameContent(position, model);
+
+        table.put(position, model);
+
+        if (isChanged) {
+            titleIndex.put(position, model.title);
+            customAdapter.onFeedRangeChanged(position, 1);
+
+            if (recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE) {
+                prefetchVisibleArticles();
+            }
+        }
+    }
+
+    @Override
+    public void onPageDropped(int fromPosition, int count) {
+        table.remove(fromPosition, count);
+        for (int position = fromPosition, end = fromPosition + count; position < end; ++position) {
+            titleIndex.remove(position);
+        }
+        customAdapter.onFeedRangeChanged(fromPosition, count);
+    }
+
+    // Same id is same story, its content changes are notified when it is (re)loaded
+    private static class FeedIdsDiffCallback extends DiffUtil.Callback {
+        final List<String> oldIds;
+        final List<String> newIds;
+
+        FeedIdsDiffCallback(List<String> oldIds, List<String> newIds) {
+            this.oldIds = oldIds;
+            this.newIds = newIds;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldIds.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newIds.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldIds.get(oldItemPosition).equals(newIds.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return true;
+        }
+    }
+
+    public void onItemClick(int feedPosition) {
         NewDetailFragment f = new NewDetailFragment();
-        f.url = news.get(bindingAdapterPosition).url;
+        f.url = table.getUrl(feedPosition);
 
         getChildNavigator()
                 .beginTransaction()
@@ -109,38 +357,40 @@ public class HomeFragment extends AppFragment implements ItemStoryEvent, DkCallb
                 .commit();
     }
 
-    @Override
-    public void itemClick(int id, int type) {
-        ApiService service = RetrofitClient.getClient().create(ApiService.class);
-        Call<NewModel> call = service.getDetailNews(id);
-        call.enqueue(new Callback<NewModel>() {
-            @Override
-            public void onResponse(Call<NewModel> call, Response<NewModel> response) {
-                assert response.body() != null;
-                Long result = newsDB.addItem(response.body(), type);
-                if (result != -1) {
-                    if(type == 1) {
-                        Toast.makeText(getContext(), "Đã thêm vào lịch sử", Toast.LENGTH_LONG).show();
-                    } else Toast.makeText(getContext(), "Bookmark thành công", Toast.LENGTH_LONG).show();
-
-                } else  Toast.makeText(getContext(), "Đã tồn tại", Toast.LENGTH_LONG).show();
-            }
-
-            @Override
-            public void onFailure(Call<NewModel> call, Throwable t) {
+    public void onCommentsClick(NewModel story) {
+        CommentFragment f = new CommentFragment();
+        f.story = story;
 
-            }
-        });
+        getChildNavigator()
+                .beginTransaction()
+                .add(f)
+                .commit();
     }
 
     @Override
-    public void call(NewModel model) {
-//        this.model = model;
-       // news.clear();
-        news.add(model);
-        customAdapter.notifyDataSetChanged();
-    };
+    public void itemClick(NewModel story, int type) {
+        // Story was taken from the table already, so saving needs no request
 
+        if (type == NewsDB.CATEGORY_HISTORY) {
+            // Written behind with other opened stories, an already saved story is just skipped
+            newsDB.addHistoryLater(story);
+            Toast.makeText(getContext(), "Đã thêm vào lịch sử", Toast.LENGTH_LONG).show();
+            return;
+        }
+
+        newsDB.saveItem(story, type)
+                .observeOnMainThread()
+                .doOnNext(rowId -> {
+                    if (getContext() == null) {
+                        return;
+                    }
+                    if (rowId != -1) {
+                        Toast.makeText(getContext(), "Bookmark thành công", Toast.LENGTH_LONG).show();
+                    } else Toast.makeText(getContext(), "Đã tồn tại", Toast.LENGTH_LONG).show();
+                })
+                .doOnError(e -> DkLogs.logex(this, e))
+                .subscribe();
+    }
 
     @Override
     public void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
@@ -0,0 +1,103 @@
+package com.example.appnews.presentation.home;
+
+import com.example.appnews.service.RealtimeSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Live mode of the home feed. Listens to a {@link RealtimeSource} and tells only what
+ * changed against the feed on screen: a new top list when it differs from current one,
+ * and changed items only when they are in the feed, so nothing else is fetched again.
+ * <p></p>
+ * Must be used on main thread.
+ */
+public class LiveFeed implements RealtimeSource.Listener {
+    public interface Listener {
+        /**
+         * Top story list changed.
+         */
+        void onFeedChanged(ArrayList<String> ids);
+
+        /**
+         * Given stories of the feed were changed (for eg,. score or comment count).
+         */
+        void onStoriesChanged(List<String> ids);
+    }
+
+    private final RealtimeSource source;
+    private final Listener listener;
+    private List<String> currentIds = Collections.emptyList();
+    private final HashSet<String> currentIdSet = new HashSet<>();
+    private boolean isStarted;
+    private long startedAt;
+
+    public LiveFeed(RealtimeSource source, Listener listener) {
+        this.source = source;
+        this.listener = listener;
+    }
+
+    public void start() {
+        if (!isStarted) {
+            isStarted = true;
+            startedAt = System.currentTimeMillis();
+            source.start(this);
+        }
+    }
+
+    public void stop() {
+        if (isStarted) {
+            isStarted = false;
+            source.stop();
+        }
+    }
+
+    public boolean isStarted() {
+        return isStarted;
+    }
+
+    /**
+     * @return time of last start, changes of items since then are told by this feed.
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Tells the id list on screen, when the feed was set by other way (for eg,. from cache).
+     */
+    public void setCurrentIds(List<String> ids) {
+        currentIds = ids;
+        currentIdSet.clear();
+        currentIdSet.addAll(ids);
+    }
+
+    @Override
+    public void onTopStoriesChanged(List<String> ids) {
+        if (!isStarted || ids.isEmpty() || ids.equals(currentIds)) {
+            return;
+        }
+        ArrayList<String> newIds = new ArrayList<>(ids);
+        setCurrentIds(newIds);
+        listener.onFeedChanged(newIds);
+    }
+
+    @Override
+    public void onItemsChanged(List<String> ids) {
+        if (!isStarted) {
+            return;
+        }
+
+        ArrayList<String> changedIds = new ArrayList<>();
+        for (String id : ids) {
+            if (currentIdSet.contains(id)) {
+                changedIds.add(id);
+            }
+        }
+        if (!changedIds.isEmpty()) {
+            listener.onStoriesChanged(changedIds);
+        }
+    }
+}
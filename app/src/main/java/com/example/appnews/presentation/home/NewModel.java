@@ -1,5 +1,6 @@
 package com.example.appnews.presentation.home;
 
+import com.example.appnews.presentation.RowTexts;
 import com.google.gson.annotations.Expose;
 import com.google.gson.annotations.SerializedName;
 
@@ -10,7 +11,7 @@ public class NewModel {
 
     @Expose
     @SerializedName("descendants")
-    public String descendants;
+    public int descendants;
 
     @Expose
     @SerializedName("id")
@@ -40,6 +41,27 @@ public class NewModel {
     @SerializedName("url")
     public String url;
 
+    // Html text of a comment (or Ask HN story)
+    @Expose
+    @SerializedName("text")
+    public String text;
+
+    // Id of parent item of a comment
+    @Expose
+    @SerializedName("parent")
+    public int parent;
+
+    @Expose
+    @SerializedName("deleted")
+    public boolean deleted;
+
+    @Expose
+    @SerializedName("dead")
+    public boolean dead;
+
+    // Display strings of the row, prepared in background, not serialized
+    public transient RowTexts texts;
+
 
     public String getBy() {
         return by;
@@ -49,11 +71,11 @@ public class NewModel {
         this.by = by;
     }
 
-    public String getDescendants() {
+    public int getDescendants() {
         return descendants;
     }
 
-    public void setDescendants(String descendants) {
+    public void setDescendants(int descendants) {
         this.descendants = descendants;
     }
 
@@ -112,4 +134,36 @@ public class NewModel {
     public void setUrl(String url) {
         this.url = url;
     }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public int getParent() {
+        return parent;
+    }
+
+    public void setParent(int parent) {
+        this.parent = parent;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(boolean deleted) {
+        this.deleted = deleted;
+    }
+
+    public boolean isDead() {
+        return dead;
+    }
+
+    public void setDead(boolean dead) {
+        this.dead = dead;
+    }
 }
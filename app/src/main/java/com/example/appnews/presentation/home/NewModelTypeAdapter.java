@@ -0,0 +1,218 @@
+package com.example.appnews.presentation.home;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Binds fields of Hacker News item json straight from a token stream,
+ * without reflection and without reading whole body into a String first.
+ */
+public class NewModelTypeAdapter extends TypeAdapter<NewModel> {
+    private static NewModelTypeAdapter INS;
+
+    public static NewModelTypeAdapter getIns() {
+        if (INS == null) {
+            synchronized (NewModelTypeAdapter.class) {
+                if (INS == null) {
+                    INS = new NewModelTypeAdapter();
+                }
+            }
+        }
+        return INS;
+    }
+
+    /**
+     * Decodes an item from given utf-8 json stream. Stream is not closed.
+     */
+    public NewModel decode(InputStream is) throws IOException {
+        return read(new JsonReader(new InputStreamReader(is, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Encodes given item as utf-8 json into given stream. Stream is flushed but not closed.
+     */
+    public void encode(OutputStream os, NewModel model) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+        write(writer, model);
+        writer.flush();
+    }
+
+    /**
+     * Encodes given ids as json array of numbers, so it can be read back by {@link #decodeIds(InputStream)}.
+     */
+    public static void encodeIds(OutputStream os, List<String> ids) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+        writer.beginArray();
+        for (String id : ids) {
+            writer.jsonValue(id);
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
+    /**
+     * Decodes an array of ids (for eg,. topstories.json) from given utf-8 json stream.
+     */
+    public static String[] decodeIds(InputStream is) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        String[] ids = new String[512];
+        int count = 0;
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (count == ids.length) {
+                String[] grown = new String[count << 1];
+                System.arraycopy(ids, 0, grown, 0, count);
+                ids = grown;
+            }
+            ids[count++] = reader.nextString();
+        }
+        reader.endArray();
+
+        String[] result = new String[count];
+        System.arraycopy(ids, 0, result, 0, count);
+        return result;
+    }
+
+    @Override
+    public NewModel read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        NewModel model = new NewModel();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "by":
+                    model.by = in.nextString();
+                    break;
+                case "descendants":
+                    model.descendants = in.nextInt();
+                    break;
+                case "id":
+                    model.id = in.nextInt();
+                    break;
+                case "kids":
+                    model.kids = readInts(in);
+                    break;
+                case "score":
+                    model.score = in.nextInt();
+                    break;
+                case "time":
+                    model.time = in.nextLong();
+                    break;
+                case "title":
+                    model.title = in.nextString();
+                    break;
+                case "type":
+                    model.type = in.nextString();
+                    break;
+                case "url":
+                    model.url = in.nextString();
+                    break;
+                case "text":
+                    model.text = in.nextString();
+                    break;
+                case "parent":
+                    model.parent = in.nextInt();
+                    break;
+                case "deleted":
+                    model.deleted = in.nextBoolean();
+                    break;
+                case "dead":
+                    model.dead = in.nextBoolean();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        return model;
+    }
+
+    private static int[] readInts(JsonReader in) throws IOException {
+        int[] values = new int[16];
+        int count = 0;
+
+        in.beginArray();
+        while (in.hasNext()) {
+            if (count == values.length) {
+                int[] grown = new int[count << 1];
+                System.arraycopy(values, 0, grown, 0, count);
+                values = grown;
+            }
+            values[count++] = in.nextInt();
+        }
+        in.endArray();
+
+        int[] result = new int[count];
+        System.arraycopy(values, 0, result, 0, count);
+        return result;
+    }
+
+    @Override
+    public void write(JsonWriter out, NewModel model) throws IOException {
+        if (model == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("by").value(model.by);
+        out.name("descendants").value(model.descendants);
+        out.name("id").value(model.id);
+        if (model.kids != null) {
+            out.name("kids").beginArray();
+            for (int kid : model.kids) {
+                out.value(kid);
+            }
+            out.endArray();
+        }
+        out.name("score").value(model.score);
+        out.name("time").value(model.time);
+        out.name("title").value(model.title);
+        out.name("type").value(model.type);
+        out.name("url").value(model.url);
+        // Comment fields, mostly absent on stories
+        if (model.text != null) {
+            out.name("text").value(model.text);
+        }
+        if (model.parent != 0) {
+            out.name("parent").value(model.parent);
+        }
+        if (model.deleted) {
+            out.name("deleted").value(true);
+        }
+        if (model.dead) {
+            out.name("dead").value(true);
+        }
+        out.endObject();
+    }
+}
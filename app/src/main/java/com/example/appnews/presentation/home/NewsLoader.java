@@ -1,57 +1,98 @@
 package com.example.appnews.presentation.home;
 
-import android.os.AsyncTask;
+import com.example.appnews.persistence.ItemCache;
+import com.example.appnews.presentation.JobScope;
+import com.example.appnews.service.Cancellation;
+import com.example.appnews.service.HnApi;
 
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
-import tool.compet.core.helper.DkJsonHelper;
 import tool.compet.core.type.DkCallback;
 import tool.compet.core.util.DkLogs;
-import tool.compet.core.util.DkStrings;
-import tool.compet.core.util.Dks;
 
 import static tool.compet.core.BuildConfig.DEBUG;
 
-public class NewsLoader extends AsyncTask<String, NewModel, NewModel> {
-    private final HomeFragment callback;
-
+/**
+ * Loads id list of top stories. Item bodies are fetched later by {@link StoryPager}
+ * for rows which come near the screen.
+ * <p></p>
+ * Cached id list (if any) is given first so the feed can be shown without waiting
+ * for network, then fresh list is loaded unless cached one is still fresh.
+ * Loads run as jobs of given scope, so they stop with the view.
+ */
+public class NewsLoader {
+    private static final String JOB_CACHED_IDS = "top-story-ids-cached";
+    private static final String JOB_FRESH_IDS = "top-story-ids-fresh";
+
+    private static class CachedIds {
+        ArrayList<String> ids;
+        boolean isStale;
+    }
 
-    DkCallback dkCallback;
+    private final JobScope jobs;
+    private final ItemCache cache;
+    private final HnApi api;
 
-    public NewsLoader(HomeFragment callback, DkCallback dkCallback) {
-        this.callback = callback;
-        this.dkCallback = dkCallback;
+    public NewsLoader(JobScope jobs, ItemCache cache, HnApi api) {
+        this.jobs = jobs;
+        this.cache = cache;
+        this.api = api;
     }
 
-    @Override
-    protected NewModel doInBackground(String... string) {
-        ArrayList<String> listIds = new ArrayList<>();
-        listIds = loadNews(); // list ID of item
-        NewModel model = new NewModel();
-        for (String articleId : listIds) {
-            model = loadItem(articleId);
-            publishProgress(model); // item
+    /**
+     * Gives cached then fresh id list to the callback on main thread. Does nothing if
+     * a load is in flight already.
+     */
+    public void load(DkCallback<ArrayList<String>> callback) {
+        if (jobs.isRunning(JOB_CACHED_IDS) || jobs.isRunning(JOB_FRESH_IDS)) {
+            return;
         }
-        return null;
+
+        jobs.run(JOB_CACHED_IDS, cancellation -> loadCachedIds(), cached -> {
+            if (cached.ids != null) {
+                callback.call(cached.ids);
+            }
+            if (cached.ids == null || cached.isStale) {
+                loadFresh(cached.ids != null, callback);
+            }
+        }, null);
     }
 
-    public ArrayList<String> loadNews() {
-        try {
-            String articleIdsLink = "https://hacker-news.firebaseio.com/v0/topstories.json?print=pretty";
+    private void loadFresh(boolean hasCached, DkCallback<ArrayList<String>> callback) {
+        jobs.run(JOB_FRESH_IDS, cancellation -> loadFreshIds(hasCached, cancellation), ids -> {
+            if (ids != null) {
+                callback.call(ids);
+            }
+        }, null);
+    }
+
+    private CachedIds loadCachedIds() {
+        CachedIds cached = new CachedIds();
+        List<String> ids = cache.getTopStoryIds();
 
-            URL url = new URL(articleIdsLink);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        if (ids != null) {
+            cached.ids = new ArrayList<>(ids);
+            cached.isStale = cache.isTopStoryIdsStale();
+        }
+        return cached;
+    }
 
-            conn.setConnectTimeout(30_000);
-            conn.setReadTimeout(30_000);
-            conn.setRequestMethod("GET");
-            conn.setDoInput(true);
+    private ArrayList<String> loadFreshIds(boolean hasCached, Cancellation cancellation) {
+        ArrayList<String> ids = loadNews(cancellation);
+        if (!ids.isEmpty()) {
+            cache.putTopStoryIds(ids);
+        }
+        cache.trim();
 
-            String json = Dks.stream2string(conn.getInputStream());
-            String[] articleIds = DkJsonHelper.getIns().json2obj(json, String[].class);
+        // Keep showing cached feed when offline
+        return ids.isEmpty() && hasCached ? null : ids;
+    }
+
+    private ArrayList<String> loadNews(Cancellation cancellation) {
+        try {
+            String[] articleIds = api.loadTopStoryIds(cancellation);
 
             if (DEBUG) {
                 DkLogs.log(this, "article ids: %s", Arrays.toString(articleIds));
@@ -60,61 +101,12 @@ public class NewsLoader extends AsyncTask<String, NewModel, NewModel> {
             ArrayList<String> newModels = new ArrayList<>();
 
             if (articleIds != null) {
-                for (String articleId : articleIds) {
-                    newModels.add(articleId);
-                    if (newModels.size() > 10) {
-                        break;
-                    }
-                }
+                newModels.addAll(Arrays.asList(articleIds));
             }
             return newModels;
         } catch (Exception ex) {
             ex.printStackTrace();
             return new ArrayList<>();
         }
-
-    }
-
-    public NewModel loadItem(String id) {
-        try {
-            String articleLink = DkStrings.format("https://hacker-news.firebaseio.com/v0/item/%s.json?print=pretty", id);
-
-            URL url = new URL(articleLink);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn = (HttpURLConnection) url.openConnection();
-
-            conn.setConnectTimeout(30_000);
-            conn.setReadTimeout(30_000);
-            conn.setRequestMethod("GET");
-            conn.setDoInput(true);
-
-            String articleJson = Dks.stream2string(conn.getInputStream());
-
-            NewModel newModel = DkJsonHelper.getIns().json2obj(articleJson, NewModel.class);
-            if (DEBUG) {
-                DkLogs.log(this, "article by: %s", newModel.url);
-            }
-
-            return newModel;
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return new NewModel();
-        }
-    }
-
-    ;
-
-    @Override
-    protected void onProgressUpdate(NewModel... newModels) {
-        //Hàm thực hiện update giao diện khi có dữ liệu từ hàm doInBackground gửi xuống
-//        super.onProgressUpdate(newModels);
-        dkCallback.call(newModels[0]);
     }
-
-    @Override
-    protected void onPostExecute(NewModel aBoolean) {
-        //callback.onLoadArticleIdResult(aBoolean);
-    }
-
-
 }
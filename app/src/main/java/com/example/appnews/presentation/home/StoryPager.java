@@ -0,0 +1,301 @@
+package com.example.appnews.presentation.home;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.appnews.persistence.ItemCache;
+import com.example.appnews.persistence.ItemRepository;
+import com.example.appnews.presentation.RowTexts;
+import com.example.appnews.service.Cancellation;
+import com.example.appnews.service.StoryFetcher;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import tool.compet.core.type.DkCallback;
+
+/**
+ * Windowed source over the full top-stories id list. Item bodies are fetched page by page,
+ * only for pages around the visible range, and pages which scrolled far away are dropped
+ * so memory stays bounded however long the list is browsed.
+ * <p></p>
+ * When an {@link ItemCache} is given, cached items of a page are shown at once and only
+ * missing or stale ones are fetched, so an item can be delivered twice (cached then fresh).
+ * When changes of items are known (live feed), cache entries written since then are used
+ * however old they are, see {@link #setFreshSince(long)} and {@link #onItemsChanged(List)}.
+ * <p></p>
+ * Fetches run on own threads of the pager and never block a shared executor. Releasing the pager
+ * aborts requests in flight.
+ * <p></p>
+ * All methods (and listener callbacks) must be called on main thread.
+ */
+public class StoryPager {
+    public static final int PAGE_SIZE = 20;
+
+    // Pages loaded ahead of (and behind) visible range
+    public static final int PREFETCH_PAGES = 1;
+
+    // Resident pages further than this from visible range are dropped
+    public static final int KEEP_DISTANCE_PAGES = 2;
+
+    public interface Listener {
+        void onItemLoaded(int position, NewModel model);
+
+        void onPageDropped(int fromPosition, int count);
+    }
+
+    private static final int STATE_NONE = 0;
+    private static final int STATE_LOADING = 1;
+    private static final int STATE_RESIDENT = 2;
+    // Rows kept from a previous id list are shown, but this pager did not load the page
+    private static final int STATE_KEPT = 3;
+
+    private final List<String> ids;
+    private final HashMap<String, Integer> positionOfId;
+    private final Listener listener;
+    // Reads cache entries of a page, network waits are done by fetcher asynchronously
+    private final ExecutorService cacheExecutor;
+    private final StoryFetcher fetcher;
+    // Aborts requests in flight when released
+    private final Cancellation cancellation = new Cancellation();
+    private final ItemCache cache;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final int[] pageStates;
+    // Bumped when a page is dropped, so results of an outdated load are ignored
+    private final int[] pageGenerations;
+    private boolean isReleased;
+    // Cached items written at or after this are fresh
+    private volatile long freshSince = Long.MAX_VALUE;
+
+    public StoryPager(List<String> ids, ItemRepository.Source source, Listener listener) {
+        this(ids, null, source, listener);
+    }
+
+    public StoryPager(List<String> ids, ItemCache cache, ItemRepository.Source source, Listener listener) {
+        this.ids = ids;
+        this.cache = cache;
+        this.listener = listener;
+        this.cacheExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "story-pager-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fetcher = new StoryFetcher(id -> {
+            NewModel model = source.loadItem(id, cancellation);
+            if (model != null && cache != null) {
+                cache.put(model);
+            }
+            return model;
+        });
+
+        this.positionOfId = new HashMap<>(ids.size() * 2);
+        for (int position = 0, size = ids.size(); position < size; ++position) {
+            positionOfId.put(ids.get(position), position);
+        }
+
+        int pageCount = (ids.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        this.pageStates = new int[pageCount];
+        this.pageGenerations = new int[pageCount];
+    }
+
+    public int getItemCount() {
+        return ids.size();
+    }
+
+    public String getId(int position) {
+        return ids.get(position);
+    }
+
+    /**
+     * Tells which rows are on screen now. Missing pages around them are loaded,
+     * far away pages are dropped.
+     */
+    public void onVisibleRangeChanged(int firstPosition, int lastPosition) {
+        if (isReleased || pageStates.length == 0) {
+            return;
+        }
+        if (firstPosition < 0) {
+            firstPosition = 0;
+        }
+        if (lastPosition < firstPosition) {
+            lastPosition = firstPosition;
+        }
+
+        int firstPage = Math.max(0, firstPosition / PAGE_SIZE - PREFETCH_PAGES);
+        int lastPage = Math.min(pageStates.length - 1, lastPosition / PAGE_SIZE + PREFETCH_PAGES);
+
+        for (int page = firstPage; page <= lastPage; ++page) {
+            if (pageStates[page] == STATE_NONE || pageStates[page] == STATE_KEPT) {
+                loadPage(page);
+            }
+        }
+
+        for (int page = 0; page < pageStates.length; ++page) {
+            boolean isFar = page < firstPage - KEEP_DISTANCE_PAGES || page > lastPage + KEEP_DISTANCE_PAGES;
+
+            if (isFar && pageStates[page] != STATE_NONE) {
+                dropPage(page);
+            }
+        }
+    }
+
+    /**
+     * Tells rows which are shown already, for eg,. kept when the table was remapped to the id list
+     * of this pager. Their pages are dropped when far away like pages loaded by this pager,
+     * and are loaded again when they come near the visible range.
+     */
+    public void onRowsKept(StoryTable table) {
+        for (int position = 0, size = Math.min(ids.size(), table.size()); position < size; ++position) {
+            if (table.isLoaded(position)) {
+                pageStates[position / PAGE_SIZE] = STATE_KEPT;
+            }
+        }
+    }
+
+    /**
+     * Tells that changes of items since given time are known (each change is told by
+     * {@link #onItemsChanged(List)}), so cached items written since then are not fetched again.
+     */
+    public void setFreshSince(long millis) {
+        freshSince = millis;
+    }
+
+    /**
+     * Tells items which were changed on server. Their cache entries are dropped, and the ones
+     * in loaded pages are fetched again.
+     */
+    public void onItemsChanged(List<String> changedIds) {
+        if (isReleased) {
+            return;
+        }
+
+        final ArrayList<String> refetchIds = new ArrayList<>();
+        final ArrayList<Integer> positions = new ArrayList<>();
+        final ArrayList<Integer> generations = new ArrayList<>();
+
+        for (String id : changedIds) {
+            Integer position = positionOfId.get(id);
+            if (position != null && pageStates[position / PAGE_SIZE] != STATE_NONE) {
+                refetchIds.add(id);
+                positions.add(position);
+                generations.add(pageGenerations[position / PAGE_SIZE]);
+            }
+        }
+
+        cacheExecutor.execute(() -> {
+            if (cache != null) {
+                for (String id : changedIds) {
+                    cache.invalidate(id);
+                }
+            }
+
+            final int[] offset = {0};
+            fetcher.fetch(refetchIds, model -> {
+                // Failed items are not emitted, so match by id
+                String id = String.valueOf(model.id);
+                int index = offset[0];
+                while (index < refetchIds.size() && !refetchIds.get(index).equals(id)) {
+                    ++index;
+                }
+                if (index == refetchIds.size()) {
+                    return;
+                }
+                offset[0] = index + 1;
+
+                int position = positions.get(index);
+                postItem(position / PAGE_SIZE, generations.get(index), position, model);
+            }, () -> {});
+        });
+    }
+
+    /**
+     * Stops loading, this pager cannot be used anymore.
+     */
+    public void release() {
+        isReleased = true;
+        cancellation.cancel();
+        fetcher.shutdown();
+        cacheExecutor.shutdownNow();
+        handler.removeCallbacksAndMessages(null);
+    }
+
+    private void loadPage(int page) {
+        final int generation = pageGenerations[page];
+        final int from = page * PAGE_SIZE;
+        final List<String> pageIds = new ArrayList<>(ids.subList(from, Math.min(ids.size(), from + PAGE_SIZE)));
+
+        pageStates[page] = STATE_LOADING;
+
+        Runnable onLoaded = () -> handler.post(() -> {
+            if (!isReleased && pageGenerations[page] == generation) {
+                pageStates[page] = STATE_RESIDENT;
+            }
+        });
+        DkCallback<NewModel> onFetched = fetchedCallback(page, generation, from, pageIds);
+
+        if (cache == null) {
+            fetcher.fetch(pageIds, onFetched, onLoaded);
+            return;
+        }
+
+        cacheExecutor.execute(() -> {
+            List<String> fetchIds = new ArrayList<>();
+
+            for (int index = 0, size = pageIds.size(); index < size; ++index) {
+                String id = pageIds.get(index);
+                ItemCache.Entry entry = cache.get(id);
+
+                if (entry != null) {
+                    postItem(page, generation, from + index, entry.model);
+                }
+                if (entry == null || (entry.isStale && entry.savedAt < freshSince)) {
+                    fetchIds.add(id);
+                }
+            }
+
+            fetcher.fetch(fetchIds, onFetched, onLoaded);
+        });
+    }
+
+    // Posts fetched items of a page, they come in order of the page
+    private DkCallback<NewModel> fetchedCallback(int page, int generation, int from, List<String> pageIds) {
+        final int[] offset = {0};
+
+        return model -> {
+            // Position is found by id since cached and failed items are not fetched/emitted
+            String id = String.valueOf(model.id);
+            int index = offset[0];
+            while (index < pageIds.size() && !pageIds.get(index).equals(id)) {
+                ++index;
+            }
+            if (index == pageIds.size()) {
+                return;
+            }
+            offset[0] = index + 1;
+            postItem(page, generation, from + index, model);
+        };
+    }
+
+    private void postItem(int page, int generation, int position, NewModel model) {
+        // Format display strings here in background, so binding the row does no string work
+        RowTexts.prepare(model);
+
+        handler.post(() -> {
+            if (!isReleased && pageGenerations[page] == generation) {
+                listener.onItemLoaded(position, model);
+            }
+        });
+    }
+
+    private void dropPage(int page) {
+        ++pageGenerations[page];
+        pageStates[page] = STATE_NONE;
+
+        int from = page * PAGE_SIZE;
+        listener.onPageDropped(from, Math.min(ids.size(), from + PAGE_SIZE) - from);
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.appnews.presentation.home;
+
+import com.example.appnews.presentation.RowTexts;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Columnar store of the home feed. Instead of one object (with boxed strings and own kids array)
+ * per story, fields are kept in parallel primitive arrays indexed by row, author and type strings
+ * are interned so equal values share one instance, and kids of all stories live in one shared
+ * int buffer addressed by (offset, count).
+ * <p></p>
+ * Feed positions map to rows, rows of removed positions are recycled. Read a row through
+ * a {@link Row} flyweight, which can be reused across binds.
+ * <p></p>
+ * Not thread-safe, use it on main thread.
+ */
+public class StoryTable {
+    private static final int NO_ROW = -1;
+    private static final int INITIAL_ROWS = 64;
+
+    // Feed position -> row, NO_ROW if position is not loaded
+    private int[] rowOfPosition = new int[0];
+
+    // Columns
+    private int[] ids = new int[INITIAL_ROWS];
+    private int[] scores = new int[INITIAL_ROWS];
+    private int[] descendants = new int[INITIAL_ROWS];
+    private long[] times = new long[INITIAL_ROWS];
+    private String[] titles = new String[INITIAL_ROWS];
+    private String[] urls = new String[INITIAL_ROWS];
+    private String[] authors = new String[INITIAL_ROWS];
+    private String[] types = new String[INITIAL_ROWS];
+    private int[] kidsOffsets = new int[INITIAL_ROWS];
+    private int[] kidsCounts = new int[INITIAL_ROWS];
+    // Display strings, prepared in background
+    private String[] hosts = new String[INITIAL_ROWS];
+    private String[] timeTexts = new String[INITIAL_ROWS];
+    private String[] byTexts = new String[INITIAL_ROWS];
+
+    // Rows in use are [0, rowCount) minus free rows
+    private int rowCount;
+    private int[] freeRows = new int[INITIAL_ROWS];
+    private int freeCount;
+
+    // Shared buffer of kids, space of removed rows is reclaimed by compaction
+    private int[] kidsPool = new int[INITIAL_ROWS << 4];
+    private int kidsPoolSize;
+    private int kidsPoolWaste;
+
+    private final HashMap<String, String> stringPool = new HashMap<>();
+
+    /**
+     * Resets the table to hold given number of (unloaded) feed positions.
+     */
+    public void reset(int positionCount) {
+        rowOfPosition = new int[positionCount];
+        Arrays.fill(rowOfPosition, NO_ROW);
+        Arrays.fill(titles, null);
+        Arrays.fill(urls, null);
+        Arrays.fill(authors, null);
+        Arrays.fill(types, null);
+        Arrays.fill(hosts, null);
+        Arrays.fill(timeTexts, null);
+        Arrays.fill(byTexts, null);
+        rowCount = 0;
+        freeCount = 0;
+        kidsPoolSize = 0;
+        kidsPoolWaste = 0;
+        stringPool.clear();
+    }
+
+    public int size() {
+        return rowOfPosition.length;
+    }
+
+    public boolean isLoaded(int position) {
+        return rowOfPosition[position] != NO_ROW;
+    }
+
+    /**
+     * Stores given story at given position. Its display strings are taken as prepared
+     * by {@link RowTexts#prepare(NewModel)}, or computed now if not prepared.
+     */
+    public void put(int position, NewModel model) {
+        RowTexts texts = RowTexts.get(model);
+        int row = rowOfPosition[position];
+
+        if (row == NO_ROW) {
+            row = allocRow();
+            rowOfPosition[position] = row;
+        }
+        else {
+            kidsPoolWaste += kidsCounts[row];
+        }
+
+        ids[row] = model.id;
+        scores[row] = model.score;
+        descendants[row] = model.descendants;
+        times[row] = model.time;
+        titles[row] = model.title;
+        urls[row] = model.url;
+        authors[row] = intern(model.by);
+        types[row] = intern(model.type);
+        hosts[row] = intern(texts.host);
+        timeTexts[row] = texts.time;
+        byTexts[row] = intern(texts.by);
+        putKids(row, model.kids);
+    }
+
+    public void remove(int position) {
+        int row = rowOfPosition[position];
+
+        if (row != NO_ROW) {
+            rowOfPosition[position] = NO_ROW;
+            freeRow(row);
+        }
+    }
+
+    public void remove(int fromPosition, int count) {
+        for (int position = fromPosition, end = fromPosition + count; position < end; ++position) {
+            remove(position);
+        }
+    }
+
+    /**
+     * @return true if given model shows the same as loaded story at given position,
+     * that is, same id, score, comment count and title.
+     */
+    public boolean isSameContent(int position, NewModel model) {
+        int row = rowOfPosition[position];
+        return row != NO_ROW
+                && ids[row] == model.id
+                && scores[row] == model.score
+                && descendants[row] == model.descendants
+                && (titles[row] == null ? model.title == null : titles[row].equals(model.title));
+    }
+
+    /**
+     * Moves loaded stories to their positions in given (new) id list of the feed. Stories
+     * which are not in the list anymore are removed.
+     */
+    public void remap(List<String> ids) {
+        HashMap<Integer, Integer> rowOfId = new HashMap<>();
+
+        for (int row : rowOfPosition) {
+            if (row != NO_ROW) {
+                rowOfId.put(this.ids[row], row);
+            }
+        }
+
+        int[] newRowOfPosition = new int[ids.size()];
+        Arrays.fill(newRowOfPosition, NO_ROW);
+
+        for (int position = 0; position < newRowOfPosition.length; ++position) {
+            Integer row = rowOfId.remove(Integer.parseInt(ids.get(position)));
+            if (row != null) {
+                newRowOfPosition[position] = row;
+            }
+        }
+
+        rowOfPosition = newRowOfPosition;
+
+        for (int row : rowOfId.values()) {
+            freeRow(row);
+        }
+    }
+
+    public int getId(int position) {
+        return ids[rowOfPosition[position]];
+    }
+
+    public String getTitle(int position) {
+        return titles[rowOfPosition[position]];
+    }
+
+    public String getUrl(int position) {
+        return urls[rowOfPosition[position]];
+    }
+
+    public Row newRow() {
+        return new Row();
+    }
+
+    /**
+     * Points given flyweight to the story at given position.
+     *
+     * @return false if the position is not loaded.
+     */
+    public boolean moveTo(Row row, int position) {
+        row.row = rowOfPosition[position];
+        return row.row != NO_ROW;
+    }
+
+    /**
+     * Materializes story at given position, for eg,. to save it to database.
+     */
+    public NewModel toModel(int position) {
+        int row = rowOfPosition[position];
+        if (row == NO_ROW) {
+            return null;
+        }
+
+        NewModel model = new NewModel();
+        model.id = ids[row];
+        model.score = scores[row];
+        model.descendants = descendants[row];
+        model.time = times[row];
+        model.title = titles[row];
+        model.url = urls[row];
+        model.by = authors[row];
+        model.type = types[row];
+        model.kids = Arrays.copyOfRange(kidsPool, kidsOffsets[row], kidsOffsets[row] + kidsCounts[row]);
+        model.texts = new RowTexts(hosts[row], timeTexts[row], byTexts[row]);
+        return model;
+    }
+
+    private void freeRow(int row) {
+        titles[row] = urls[row] = authors[row] = types[row] = null;
+        hosts[row] = timeTexts[row] = byTexts[row] = null;
+        kidsPoolWaste += kidsCounts[row];
+        kidsCounts[row] = 0;
+
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeCount << 1);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    private int allocRow() {
+        if (freeCount > 0) {
+            return freeRows[--freeCount];
+        }
+        if (rowCount == ids.length) {
+            int capacity = rowCount << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+            descendants = Arrays.copyOf(descendants, capacity);
+            times = Arrays.copyOf(times, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            urls = Arrays.copyOf(urls, capacity);
+            authors = Arrays.copyOf(authors, capacity);
+            types = Arrays.copyOf(types, capacity);
+            kidsOffsets = Arrays.copyOf(kidsOffsets, capacity);
+            kidsCounts = Arrays.copyOf(kidsCounts, capacity);
+            hosts = Arrays.copyOf(hosts, capacity);
+            timeTexts = Arrays.copyOf(timeTexts, capacity);
+            byTexts = Arrays.copyOf(byTexts, capacity);
+        }
+        return rowCount++;
+    }
+
+    private void putKids(int row, int[] kids) {
+        int count = kids == null ? 0 : kids.length;
+
+        if (kidsPoolSize + count > kidsPool.length) {
+            // Reclaim space of removed rows first, grow only if still not enough
+            if (kidsPoolWaste > 0) {
+                compactKids(row);
+            }
+            if (kidsPoolSize + count > kidsPool.length) {
+                kidsPool = Arrays.copyOf(kidsPool, Math.max(kidsPool.length << 1, kidsPoolSize + count));
+            }
+        }
+
+        if (count > 0) {
+            System.arraycopy(kids, 0, kidsPool, kidsPoolSize, count);
+        }
+        kidsOffsets[row] = kidsPoolSize;
+        kidsCounts[row] = count;
+        kidsPoolSize += count;
+    }
+
+    private void compactKids(int excludedRow) {
+        int[] compacted = new int[kidsPool.length];
+        int size = 0;
+
+        for (int position = 0; position < rowOfPosition.length; ++position) {
+            int row = rowOfPosition[position];
+
+            if (row != NO_ROW && row != excludedRow) {
+                int count = kidsCounts[row];
+                System.arraycopy(kidsPool, kidsOffsets[row], compacted, size, count);
+                kidsOffsets[row] = size;
+                size += count;
+            }
+        }
+
+        kidsPool = compacted;
+        kidsPoolSize = size;
+        kidsPoolWaste = 0;
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = stringPool.get(value);
+        if (pooled == null) {
+            stringPool.put(value, value);
+            pooled = value;
+        }
+        return pooled;
+    }
+
+    /**
+     * Read-only view of one story, re-pointed with {@link #moveTo(Row, int)}.
+     */
+    public final class Row {
+        int row = NO_ROW;
+
+        public int getId() {
+            return ids[row];
+        }
+
+        public int getScore() {
+            return scores[row];
+        }
+
+        public int getDescendants() {
+            return descendants[row];
+        }
+
+        public long getTime() {
+            return times[row];
+        }
+
+        public String getTitle() {
+            return titles[row];
+        }
+
+        public String getUrl() {
+            return urls[row];
+        }
+
+        public String getBy() {
+            return authors[row];
+        }
+
+        public String getType() {
+            return types[row];
+        }
+
+        public String getHost() {
+            return hosts[row];
+        }
+
+        public String getTimeText() {
+            return timeTexts[row];
+        }
+
+        public String getByText() {
+            return byTexts[row];
+        }
+
+        public int getKidCount() {
+            return kidsCounts[row];
+        }
+
+        public int getKid(int index) {
+            return kidsPool[kidsOffsets[row] + index];
+        }
+    }
+}
@@ -13,6 +13,7 @@ import androidx.appcompat.widget.Toolbar;
 import com.example.appnews.MainActivity;
 import com.example.appnews.R;
 import com.example.appnews.presentation.AppFragment;
+import com.example.appnews.service.ArticlePrefetcher;
 
 import tool.compet.appbundle.binder.annotation.DkBindView;
 
@@ -42,6 +43,8 @@ public class NewDetailFragment extends AppFragment {
         toolbar.setTitle("Story Detail");
         ((MainActivity) getActivity()).getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         ((MainActivity) getActivity()).getSupportActionBar().setDisplayShowHomeEnabled(true);
+        // Serve the article from prefetched html and subresources when available
+        webView.setWebViewClient(new PrefetchWebViewClient(ArticlePrefetcher.getIns(requireContext())));
         webView.loadUrl(url);
     }
 
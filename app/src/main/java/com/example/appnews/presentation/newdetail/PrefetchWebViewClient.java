@@ -0,0 +1,58 @@
+package com.example.appnews.presentation.newdetail;
+
+import android.text.TextUtils;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import com.example.appnews.service.ArticlePrefetcher;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves requests of the article from {@link ArticlePrefetcher} when they were prefetched,
+ * other requests are loaded by WebView as usual. Resources were fetched without cookies,
+ * so requests which carry a cookie are never served from them.
+ */
+public class PrefetchWebViewClient extends WebViewClient {
+    private final ArticlePrefetcher prefetcher;
+
+    public PrefetchWebViewClient(ArticlePrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    // Called on a background thread
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        if (!"GET".equalsIgnoreCase(request.getMethod())) {
+            return null;
+        }
+        String url = request.getUrl().toString();
+        if (hasCookie(url, request.getRequestHeaders())) {
+            return null;
+        }
+
+        ArticlePrefetcher.Resource resource = prefetcher.getCached(url);
+
+        if (resource == null) {
+            return null;
+        }
+        return new WebResourceResponse(resource.mimeType, resource.charset, resource.statusCode,
+                resource.reasonPhrase, new HashMap<>(resource.headers), new ByteArrayInputStream(resource.body));
+    }
+
+    private static boolean hasCookie(String url, Map<String, String> requestHeaders) {
+        if (requestHeaders != null) {
+            for (String name : requestHeaders.keySet()) {
+                if ("Cookie".equalsIgnoreCase(name)) {
+                    return true;
+                }
+            }
+        }
+        return !TextUtils.isEmpty(CookieManager.getInstance().getCookie(url));
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.appnews.service;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.text.TextUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.CacheControl;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import tool.compet.core.util.DkLogs;
+
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Warms up articles of stories before they are opened. For rows on screen, host of the article
+ * is resolved ahead. For rows user is likely to open (top visible ones), html of the article
+ * and its render-blocking stylesheets and scripts are fetched into a memory cache bounded by bytes,
+ * so the detail page can be served from it (see {@link #getCached(String)}).
+ * <p></p>
+ * Resources are fetched without cookies, so only responses which set no cookie are kept, with
+ * their status and headers. Caller must serve them only for requests which carry no cookie.
+ * <p></p>
+ * Articles are fetched only on unmetered network, resolving hosts is cheap so it is always done.
+ * At most {@link #MAX_CONCURRENT_TASKS} tasks run at once on own threads, pending ones which are
+ * not wanted anymore (scrolled away) are skipped.
+ * <p></p>
+ * Thread-safe.
+ */
+public class ArticlePrefetcher {
+    public static final int MAX_CACHE_BYTES = 6 << 20;
+    // Html and subresources of one article
+    public static final int MAX_ARTICLE_BYTES = 1 << 20;
+    public static final int MAX_RESOURCE_BYTES = 512 << 10;
+    public static final int MAX_SUBRESOURCES = 8;
+    public static final int MAX_CONCURRENT_TASKS = 2;
+    public static final long CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    // Resolved hosts are resolved again after this, since system dns cache expires
+    private static final long WARM_TTL_MILLIS = TimeUnit.MINUTES.toMillis(4);
+    private static final int MAX_WARMED_ORIGINS = 256;
+
+    private static final Pattern STYLESHEET = Pattern.compile(
+            "<link\\b[^>]*\\brel\\s*=\\s*[\"']?stylesheet[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SCRIPT = Pattern.compile(
+            "<script\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern HREF = Pattern.compile(
+            "\\bhref\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SRC = Pattern.compile(
+            "\\bsrc\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))", Pattern.CASE_INSENSITIVE);
+
+    public static class Resource {
+        public final int statusCode;
+        public final String reasonPhrase;
+        // Response headers, values of a repeated header are joined by comma
+        public final Map<String, String> headers;
+        public final String mimeType;
+        public final String charset;
+        public final byte[] body;
+        final long fetchedAt;
+
+        Resource(int statusCode, String reasonPhrase, Map<String, String> headers,
+                String mimeType, String charset, byte[] body, long fetchedAt) {
+            this.statusCode = statusCode;
+            this.reasonPhrase = reasonPhrase;
+            this.headers = headers;
+            this.mimeType = mimeType;
+            this.charset = charset;
+            this.body = body;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private static ArticlePrefetcher INS;
+
+    private final OkHttpClient client;
+    // Own threads, so fetches never hold threads of shared executors
+    private final ExecutorService executor;
+    private final ConnectivityManager connectivityManager;
+
+    // Url -> resource, in access order for LRU eviction
+    private final LinkedHashMap<String, Resource> cache = new LinkedHashMap<>(32, 0.75f, true);
+    private int cacheBytes;
+
+    // Origin (root url of a host) -> time it was warmed
+    private final HashMap<String, Long> warmedOrigins = new HashMap<>();
+    // Article urls which are being fetched
+    private final HashSet<String> loadingArticles = new HashSet<>();
+    private final ArrayDeque<String> pendingOrigins = new ArrayDeque<>();
+    private final ArrayDeque<String> pendingArticles = new ArrayDeque<>();
+    private int runningCount;
+
+    private ArticlePrefetcher(Context context) {
+        this.client = OkHttpTransport.getIns().getClient();
+        this.executor = Executors.newFixedThreadPool(MAX_CONCURRENT_TASKS, r -> {
+            Thread thread = new Thread(r, "article-prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.connectivityManager = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    public static ArticlePrefetcher getIns(Context context) {
+        if (INS == null) {
+            synchronized (ArticlePrefetcher.class) {
+                if (INS == null) {
+                    INS = new ArticlePrefetcher(context);
+                }
+            }
+        }
+        return INS;
+    }
+
+    /**
+     * Tells article urls of rows on screen, in screen order. Hosts of all of them are resolved,
+     * first {@code likelyCount} articles are fetched. Articles which were pending but are not
+     * given now are not fetched anymore.
+     */
+    public synchronized void onRowsVisible(List<String> urls, int likelyCount) {
+        long now = System.currentTimeMillis();
+        boolean isFetchAllowed = connectivityManager == null || !connectivityManager.isActiveNetworkMetered();
+
+        pendingArticles.clear();
+
+        // Few hosts are seen in a session, just forget all if too many
+        if (warmedOrigins.size() > MAX_WARMED_ORIGINS) {
+            warmedOrigins.clear();
+        }
+
+        for (int index = 0, size = urls.size(); index < size; ++index) {
+            HttpUrl url = HttpUrl.parse(urls.get(index));
+            if (url == null) {
+                continue;
+            }
+
+            String origin = url.resolve("/").toString();
+            Long warmedAt = warmedOrigins.get(origin);
+            if (warmedAt == null || now - warmedAt > WARM_TTL_MILLIS) {
+                warmedOrigins.put(origin, now);
+                pendingOrigins.add(origin);
+            }
+
+            String key = url.toString();
+            if (isFetchAllowed && index < likelyCount && !loadingArticles.contains(key) && getFresh(key, now) == null) {
+                pendingArticles.add(key);
+            }
+        }
+
+        drain();
+    }
+
+    /**
+     * Does not wait for an article which is being fetched, so loading a page is never blocked.
+     *
+     * @return fresh cached resource of given url, or null if not cached.
+     */
+    public Resource getCached(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return null;
+        }
+        synchronized (this) {
+            return getFresh(httpUrl.toString(), System.currentTimeMillis());
+        }
+    }
+
+    private void drain() {
+        while (runningCount < MAX_CONCURRENT_TASKS) {
+            if (!pendingOrigins.isEmpty()) {
+                String origin = pendingOrigins.poll();
+                ++runningCount;
+                executor.execute(() -> runTask(() -> warmOrigin(origin)));
+            }
+            else if (!pendingArticles.isEmpty()) {
+                String url = pendingArticles.poll();
+                loadingArticles.add(url);
+                ++runningCount;
+                executor.execute(() -> runTask(() -> prefetchArticle(url)));
+            }
+            else {
+                break;
+            }
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        }
+        finally {
+            synchronized (this) {
+                --runningCount;
+                drain();
+            }
+        }
+    }
+
+    // Resolves the host, system dns cache is shared with WebView. No request is sent,
+    // since a request to the origin would be a real hit on the site
+    private void warmOrigin(String origin) {
+        try {
+            InetAddress.getAllByName(HttpUrl.get(origin).host());
+        }
+        catch (IOException e) {
+            if (DEBUG) {
+                DkLogs.log(this, "Could not warm %s: %s", origin, e.getMessage());
+            }
+        }
+    }
+
+    private void prefetchArticle(String url) {
+        Resource html = null;
+        try {
+            html = fetch(url, MAX_ARTICLE_BYTES);
+            if (html != null && "text/html".equals(html.mimeType)) {
+                put(url, html);
+            }
+            else {
+                html = null;
+            }
+        }
+        catch (IOException e) {
+            if (DEBUG) {
+                DkLogs.log(this, "Could not prefetch %s: %s", url, e.getMessage());
+            }
+        }
+        finally {
+            synchronized (this) {
+                loadingArticles.remove(url);
+            }
+        }
+
+        if (html == null) {
+            return;
+        }
+
+        int budget = MAX_ARTICLE_BYTES - html.body.length;
+
+        for (String subUrl : findSubresources(url, html)) {
+            if (budget <= 0) {
+                break;
+            }
+            synchronized (this) {
+                if (getFresh(subUrl, System.currentTimeMillis()) != null) {
+                    continue;
+                }
+            }
+            try {
+                Resource resource = fetch(subUrl, Math.min(budget, MAX_RESOURCE_BYTES));
+                if (resource != null) {
+                    put(subUrl, resource);
+                    budget -= resource.body.length;
+                }
+            }
+            catch (IOException e) {
+                if (DEBUG) {
+                    DkLogs.log(this, "Could not prefetch %s: %s", subUrl, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return fetched resource, or null if it cannot be served from cache (not 200,
+     * redirected, not storable, sets a cookie or larger than given size).
+     */
+    private Resource fetch(String url, int maxBytes) throws IOException {
+        HttpUrl httpUrl = HttpUrl.get(url);
+        Request request = new Request.Builder().url(httpUrl).get().build();
+
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+
+            // Redirected page would resolve its relative urls against the requested url
+            if (response.code() != 200 || body == null || !response.request().url().equals(httpUrl)) {
+                return null;
+            }
+            CacheControl cacheControl = response.cacheControl();
+            if (cacheControl.noStore() || body.contentLength() > maxBytes) {
+                return null;
+            }
+            // Cookies of an anonymous response must not replace the ones of the user
+            if (response.header("Set-Cookie") != null) {
+                return null;
+            }
+
+            byte[] bytes = readAtMost(body.byteStream(), maxBytes);
+            if (bytes == null) {
+                return null;
+            }
+
+            // WebView needs the type to use a served resource
+            MediaType mediaType = body.contentType();
+            if (mediaType == null) {
+                return null;
+            }
+            String mimeType = mediaType.type() + "/" + mediaType.subtype();
+            Charset charset = mediaType.charset();
+
+            Headers headers = response.headers();
+            HashMap<String, String> headerMap = new HashMap<>();
+            for (String name : headers.names()) {
+                headerMap.put(name, TextUtils.join(", ", headers.values(name)));
+            }
+
+            // Reason phrase is empty on http/2, but WebView requires one
+            String reasonPhrase = response.message().isEmpty() ? "OK" : response.message();
+
+            return new Resource(response.code(), reasonPhrase, headerMap, mimeType,
+                    charset == null ? null : charset.name(), bytes, System.currentTimeMillis());
+        }
+    }
+
+    // Null if the stream is longer than given size
+    private static byte[] readAtMost(InputStream is, int maxBytes) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream(Math.min(maxBytes, 16 << 10));
+        byte[] buffer = new byte[8 << 10];
+        int total = 0;
+        int count;
+
+        while ((count = is.read(buffer)) != -1) {
+            total += count;
+            if (total > maxBytes) {
+                return null;
+            }
+            os.write(buffer, 0, count);
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * @return absolute urls of stylesheets and scripts of given html, in document order.
+     */
+    static List<String> findSubresources(String baseUrl, Resource html) {
+        // Only ascii markup is scanned, so any byte-preserving charset works
+        String text = new String(html.body, StandardCharsets.ISO_8859_1);
+        HttpUrl base = HttpUrl.get(baseUrl);
+        ArrayList<String> urls = new ArrayList<>();
+
+        collect(text, STYLESHEET, HREF, base, urls);
+        collect(text, SCRIPT, SRC, base, urls);
+
+        return urls.size() > MAX_SUBRESOURCES ? urls.subList(0, MAX_SUBRESOURCES) : urls;
+    }
+
+    private static void collect(String html, Pattern tagPattern, Pattern attrPattern, HttpUrl base, List<String> out) {
+        Matcher tag = tagPattern.matcher(html);
+
+        while (tag.find() && out.size() < MAX_SUBRESOURCES) {
+            Matcher attr = attrPattern.matcher(tag.group());
+            if (!attr.find()) {
+                continue;
+            }
+            String ref = attr.group(1) != null ? attr.group(1) : attr.group(2) != null ? attr.group(2) : attr.group(3);
+            HttpUrl url = base.resolve(ref.trim().replace("&amp;", "&"));
+
+            if (url != null && !out.contains(url.toString())) {
+                out.add(url.toString());
+            }
+        }
+    }
+
+    private synchronized void put(String url, Resource resource) {
+        Resource old = cache.put(url, resource);
+        if (old != null) {
+            cacheBytes -= old.body.length;
+        }
+        cacheBytes += resource.body.length;
+
+        Iterator<Map.Entry<String, Resource>> it = cache.entrySet().iterator();
+        while (cacheBytes > MAX_CACHE_BYTES && it.hasNext()) {
+            cacheBytes -= it.next().getValue().body.length;
+            it.remove();
+        }
+    }
+
+    // Must hold the lock
+    private Resource getFresh(String url, long now) {
+        Resource resource = cache.get(url);
+
+        if (resource != null && now - resource.fetchedAt > CACHE_TTL_MILLIS) {
+            cache.remove(url);
+            cacheBytes -= resource.body.length;
+            return null;
+        }
+        return resource;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.appnews.service;
+
+import java.util.ArrayList;
+
+/**
+ * Cancel signal of a load. Requests made for the load register to it, so they are aborted
+ * while in flight instead of only having their results ignored.
+ * <p></p>
+ * Thread-safe.
+ */
+public class Cancellation {
+    /**
+     * Never cancelled, for loads which are not bound to anything.
+     */
+    public static final Cancellation NONE = new Cancellation();
+
+    private final ArrayList<Runnable> actions = new ArrayList<>();
+    private volatile boolean isCancelled;
+
+    public boolean isCancelled() {
+        return isCancelled;
+    }
+
+    /**
+     * Marks cancelled and runs registered actions, on calling thread.
+     */
+    public void cancel() {
+        if (this == NONE) {
+            return;
+        }
+
+        ArrayList<Runnable> cancelActions;
+        synchronized (this) {
+            if (isCancelled) {
+                return;
+            }
+            isCancelled = true;
+            cancelActions = new ArrayList<>(actions);
+            actions.clear();
+        }
+
+        for (Runnable action : cancelActions) {
+            action.run();
+        }
+    }
+
+    /**
+     * Registers action to run when cancelled, it is run now if already cancelled.
+     */
+    public void register(Runnable action) {
+        if (this == NONE) {
+            return;
+        }
+        synchronized (this) {
+            if (!isCancelled) {
+                actions.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    public void unregister(Runnable action) {
+        if (this == NONE) {
+            return;
+        }
+        synchronized (this) {
+            actions.remove(action);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.appnews.service;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tool.compet.core.util.DkLogs;
+
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Listens to the Hacker News firebase database: /v0/topstories for the front page
+ * and /v0/updates for changed items. Firebase keeps one connection open and sends
+ * only changed values.
+ */
+public class FirebaseRealtimeSource implements RealtimeSource {
+    public static final String DATABASE_URL = "https://hacker-news.firebaseio.com";
+
+    private final DatabaseReference topStories;
+    private final DatabaseReference updatedItems;
+    private ValueEventListener topStoriesListener;
+    private ValueEventListener updatedItemsListener;
+
+    public FirebaseRealtimeSource() {
+        FirebaseDatabase database = FirebaseDatabase.getInstance(DATABASE_URL);
+        topStories = database.getReference("v0/topstories");
+        updatedItems = database.getReference("v0/updates/items");
+    }
+
+    @Override
+    public void start(Listener listener) {
+        stop();
+
+        topStoriesListener = topStories.addValueEventListener(new IdsListener() {
+            @Override
+            void onIds(List<String> ids) {
+                listener.onTopStoriesChanged(ids);
+            }
+        });
+        updatedItemsListener = updatedItems.addValueEventListener(new IdsListener() {
+            @Override
+            void onIds(List<String> ids) {
+                listener.onItemsChanged(ids);
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        if (topStoriesListener != null) {
+            topStories.removeEventListener(topStoriesListener);
+            topStoriesListener = null;
+        }
+        if (updatedItemsListener != null) {
+            updatedItems.removeEventListener(updatedItemsListener);
+            updatedItemsListener = null;
+        }
+    }
+
+    // Both nodes are arrays of item ids
+    private abstract class IdsListener implements ValueEventListener {
+        abstract void onIds(List<String> ids);
+
+        @Override
+        public void onDataChange(@NonNull DataSnapshot snapshot) {
+            ArrayList<String> ids = new ArrayList<>((int) snapshot.getChildrenCount());
+
+            for (DataSnapshot child : snapshot.getChildren()) {
+                Object value = child.getValue();
+                if (value != null) {
+                    ids.add(String.valueOf(value));
+                }
+            }
+            onIds(ids);
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+            if (DEBUG) {
+                DkLogs.log(FirebaseRealtimeSource.this, "Listening cancelled: %s", error.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.appnews.service;
+
+import com.example.appnews.presentation.home.NewModel;
+import com.example.appnews.presentation.home.NewModelTypeAdapter;
+
+import java.io.IOException;
+
+import tool.compet.core.util.DkStrings;
+
+/**
+ * Endpoints of Hacker News api which are used by the app.
+ */
+public class HnApi {
+    public static final String BASE_URL = "https://hacker-news.firebaseio.com/v0/";
+
+    private final HnTransport transport;
+    private final String baseUrl;
+
+    public HnApi() {
+        this(OkHttpTransport.getIns(), BASE_URL);
+    }
+
+    public HnApi(HnTransport transport, String baseUrl) {
+        this.transport = transport;
+        this.baseUrl = baseUrl;
+    }
+
+    public String[] loadTopStoryIds() throws IOException {
+        return loadTopStoryIds(Cancellation.NONE);
+    }
+
+    public String[] loadTopStoryIds(Cancellation cancellation) throws IOException {
+        return transport.get(baseUrl + "topstories.json", NewModelTypeAdapter::decodeIds, cancellation);
+    }
+
+    public NewModel loadItem(String id) throws IOException {
+        return loadItem(id, Cancellation.NONE);
+    }
+
+    public NewModel loadItem(String id, Cancellation cancellation) throws IOException {
+        String url = DkStrings.format("%sitem/%s.json", baseUrl, id);
+        return transport.get(url, NewModelTypeAdapter.getIns()::decode, cancellation);
+    }
+}
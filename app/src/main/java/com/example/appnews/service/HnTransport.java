@@ -0,0 +1,28 @@
+package com.example.appnews.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Network layer for talking to Hacker News api. All requests of the app go through
+ * one transport so they share its connections instead of opening a new one per item.
+ */
+public interface HnTransport {
+    interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * Performs GET request to given url and passes response body to the reader.
+     * Body is closed after reader returns.
+     *
+     * @throws IOException when request failed or server did not response 2xx.
+     */
+    <T> T get(String url, BodyReader<T> reader) throws IOException;
+
+    /**
+     * Same as {@link #get(String, BodyReader)}, but the request is aborted when given
+     * cancellation is cancelled, and then IOException is thrown.
+     */
+    <T> T get(String url, BodyReader<T> reader, Cancellation cancellation) throws IOException;
+}
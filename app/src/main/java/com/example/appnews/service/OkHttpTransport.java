@@ -0,0 +1,127 @@
+package com.example.appnews.service;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Transport backed by one shared OkHttpClient. Connections are kept alive in the pool and
+ * reused across requests, HTTP/2 is negotiated over TLS when server supports it (so requests
+ * to same host are multiplexed on one socket), and gzip is requested and decoded transparently.
+ * Number of concurrent requests per host is limited for both blocking and enqueued calls.
+ */
+public class OkHttpTransport implements HnTransport {
+    public static final int MAX_REQUESTS_PER_HOST = 8;
+
+    private static OkHttpTransport INS;
+
+    private final OkHttpClient client;
+    private final int maxRequestsPerHost;
+    private final ConcurrentHashMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private OkHttpTransport(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        client = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxRequestsPerHost, 5, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    public static OkHttpTransport getIns() {
+        if (INS == null) {
+            synchronized (OkHttpTransport.class) {
+                if (INS == null) {
+                    INS = new OkHttpTransport(MAX_REQUESTS_PER_HOST);
+                }
+            }
+        }
+        return INS;
+    }
+
+    /**
+     * Shared client, give it to other http stacks (for eg,. Retrofit) so they use same pool.
+     */
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    @Override
+    public <T> T get(String url, BodyReader<T> reader) throws IOException {
+        return get(url, reader, Cancellation.NONE);
+    }
+
+    @Override
+    public <T> T get(String url, BodyReader<T> reader, Cancellation cancellation) throws IOException {
+        if (cancellation.isCancelled()) {
+            throw new IOException("Cancelled request to " + url);
+        }
+
+        HttpUrl httpUrl = HttpUrl.get(url);
+        Semaphore permits = permitsOf(httpUrl.host());
+
+        try {
+            permits.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for connection to " + httpUrl.host(), e);
+        }
+
+        try {
+            Request request = new Request.Builder().url(httpUrl).get().build();
+            Call call = client.newCall(request);
+            Runnable abort = call::cancel;
+
+            // Cancelling the call fails its blocking read right away
+            cancellation.register(abort);
+
+            try (Response response = call.execute()) {
+                ResponseBody body = response.body();
+
+                if (!response.isSuccessful() || body == null) {
+                    throw new IOException("Unexpected response " + response.code() + " for " + url);
+                }
+
+                return reader.read(body.byteStream());
+            }
+            finally {
+                cancellation.unregister(abort);
+            }
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    private Semaphore permitsOf(String host) {
+        Semaphore permits = hostPermits.get(host);
+
+        if (permits == null) {
+            Semaphore created = new Semaphore(maxRequestsPerHost);
+            permits = hostPermits.putIfAbsent(host, created);
+
+            if (permits == null) {
+                permits = created;
+            }
+        }
+
+        return permits;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.appnews.service;
+
+import java.util.List;
+
+/**
+ * Pushes changes of Hacker News data as they happen, instead of being polled.
+ */
+public interface RealtimeSource {
+    /**
+     * Callbacks are invoked on main thread.
+     */
+    interface Listener {
+        /**
+         * Called with current top story ids once started, then whenever they change.
+         */
+        void onTopStoriesChanged(List<String> ids);
+
+        /**
+         * Called with ids of recently changed items, whenever they change.
+         */
+        void onItemsChanged(List<String> ids);
+    }
+
+    void start(Listener listener);
+
+    void stop();
+}
@@ -1,20 +0,0 @@
-package com.example.appnews.service;
-
-import retrofit2.Retrofit;
-import retrofit2.converter.gson.GsonConverterFactory;
-
-public class RetrofitClient {
- 
-    private static Retrofit retrofit = null;
-    private static String BASE_URL = "https://hacker-news.firebaseio.com/v0/";
-
-    public static Retrofit getClient() {
-        if (retrofit==null) {
-            retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .addConverterFactory(GsonConverterFactory.create())
-                    .build();
-        }
-        return retrofit;
-    }
-}
\ No newline at end of file
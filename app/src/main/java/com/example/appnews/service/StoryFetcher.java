@@ -0,0 +1,195 @@
+package com.example.appnews.service;
+
+import com.example.appnews.presentation.home.NewModel;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tool.compet.core.type.DkCallback;
+import tool.compet.core.util.DkLogs;
+
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Fetches items of an id list with a bounded number of requests in flight.
+ * Results are delivered to the callback in ranking order: an item is passed on as soon as
+ * it and every item ranked above it have arrived, so the list grows from the top while
+ * slower items further down are still loading.
+ */
+public class StoryFetcher {
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+
+    public interface ItemSource {
+        NewModel loadItem(String id) throws Exception;
+    }
+
+    private final ItemSource source;
+    private final int maxConcurrency;
+    private final ExecutorService executor;
+    private volatile boolean isCancel;
+
+    public StoryFetcher(ItemSource source) {
+        this(source, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    public StoryFetcher(ItemSource source, int maxConcurrency) {
+        this.source = source;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.executor = Executors.newFixedThreadPool(this.maxConcurrency, new WorkerFactory());
+    }
+
+    /**
+     * Blocks until all ids were fetched (or the fetcher was cancelled or shut down). The callback
+     * is invoked from worker threads, but never concurrently and always in the order of given ids.
+     * Items which failed to load are skipped.
+     */
+    public void fetch(List<String> ids, DkCallback<NewModel> callback) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        fetch(ids, callback, latch::countDown);
+        latch.await();
+    }
+
+    /**
+     * Like {@link #fetch(List, DkCallback)} but returns at once, given action is run (on any thread)
+     * when all ids were fetched or the fetcher was cancelled or shut down.
+     */
+    public void fetch(List<String> ids, DkCallback<NewModel> callback, Runnable onDone) {
+        final int count = ids.size();
+        if (count == 0) {
+            onDone.run();
+            return;
+        }
+
+        final int workerCount = Math.min(maxConcurrency, count);
+        final Batch batch = new Batch(ids, callback, workerCount, onDone);
+
+        for (int i = 0; i < workerCount; ++i) {
+            try {
+                executor.execute(new Worker(batch));
+            }
+            catch (RejectedExecutionException e) {
+                // Shut down, this worker will never run
+                batch.onWorkerDone();
+            }
+        }
+    }
+
+    /**
+     * Stops pulling new ids, requests in flight are left to finish.
+     */
+    public void cancel() {
+        isCancel = true;
+    }
+
+    public boolean isCancelled() {
+        return isCancel;
+    }
+
+    /**
+     * Releases worker threads, this fetcher cannot be used anymore. Loads in flight are
+     * interrupted, and fetch calls which wait for them or for queued workers return.
+     */
+    public void shutdown() {
+        isCancel = true;
+
+        // Queued workers are dropped without running, so finish their fetch calls here
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Worker) {
+                ((Worker) task).batch.onWorkerDone();
+            }
+        }
+    }
+
+    private static class Worker implements Runnable {
+        final Batch batch;
+
+        Worker(Batch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                batch.work();
+            }
+            finally {
+                batch.onWorkerDone();
+            }
+        }
+    }
+
+    private class Batch {
+        final List<String> ids;
+        final DkCallback<NewModel> callback;
+        final NewModel[] results;
+        final boolean[] done;
+        final AtomicInteger cursor = new AtomicInteger();
+        final AtomicInteger workerCount;
+        final Runnable onDone;
+
+        // Index of next item to deliver, guarded by this
+        int emitIndex;
+
+        Batch(List<String> ids, DkCallback<NewModel> callback, int workerCount, Runnable onDone) {
+            this.ids = ids;
+            this.callback = callback;
+            this.workerCount = new AtomicInteger(workerCount);
+            this.onDone = onDone;
+            this.results = new NewModel[ids.size()];
+            this.done = new boolean[ids.size()];
+        }
+
+        void work() {
+            int index;
+            while (!isCancel && (index = cursor.getAndIncrement()) < results.length) {
+                NewModel model = null;
+                try {
+                    model = source.loadItem(ids.get(index));
+                }
+                catch (Exception e) {
+                    if (DEBUG && !isCancel) {
+                        DkLogs.logex(StoryFetcher.this, e);
+                    }
+                }
+                complete(index, model);
+            }
+        }
+
+        void onWorkerDone() {
+            if (workerCount.decrementAndGet() == 0) {
+                onDone.run();
+            }
+        }
+
+        synchronized void complete(int index, NewModel model) {
+            results[index] = model;
+            done[index] = true;
+
+            // Deliver the contiguous completed prefix
+            while (emitIndex < done.length && done[emitIndex]) {
+                NewModel next = results[emitIndex];
+                results[emitIndex++] = null;
+
+                if (next != null && !isCancel) {
+                    callback.call(next);
+                }
+            }
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "story-fetcher-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.appnews.persistence;
+
+import com.example.appnews.presentation.home.NewModel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ItemCacheTest {
+    private File dir;
+    private ItemCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("items").toFile();
+        cache = new ItemCache(dir);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static NewModel item(int id, String type) {
+        NewModel model = new NewModel();
+        model.id = id;
+        model.type = type;
+        model.by = "pg";
+        model.title = "title " + id;
+        model.score = 42;
+        model.descendants = 3;
+        model.time = 1_590_000_000L;
+        model.kids = new int[] {1, 2, 3};
+        return model;
+    }
+
+    private void age(int id, long millis) {
+        File file = new File(dir, id + ".json");
+        assertTrue(file.setLastModified(System.currentTimeMillis() - millis));
+    }
+
+    @Test
+    public void readsBackCachedItem() {
+        assertNull(cache.get("1"));
+
+        cache.put(item(1, "story"));
+        ItemCache.Entry entry = cache.get("1");
+
+        assertNotNull(entry);
+        assertFalse(entry.isStale);
+        assertEquals(1, entry.model.id);
+        assertEquals("title 1", entry.model.title);
+        assertEquals(42, entry.model.score);
+        assertEquals(3, entry.model.descendants);
+        assertArrayEquals(new int[] {1, 2, 3}, entry.model.kids);
+    }
+
+    @Test
+    public void staleAfterTtlOfItemType() {
+        cache.put(item(1, "story"));
+        cache.put(item(2, "job"));
+        age(1, ItemCache.STORY_TTL_MILLIS + 1000);
+        age(2, ItemCache.STORY_TTL_MILLIS + 1000);
+
+        // Stale entries are still returned so they can be shown while revalidating
+        assertTrue(cache.get("1").isStale);
+        assertFalse(cache.get("2").isStale);
+    }
+
+    @Test
+    public void dropsBrokenEntry() throws IOException {
+        try (FileOutputStream os = new FileOutputStream(new File(dir, "5.json"))) {
+            os.write("{\"id\": 5, \"title\": \"trunc".getBytes());
+        }
+
+        assertNull(cache.get("5"));
+        assertFalse(new File(dir, "5.json").exists());
+    }
+
+    @Test
+    public void cachesTopStoryIds() {
+        assertNull(cache.getTopStoryIds());
+
+        List<String> ids = Arrays.asList("23412187", "23411977", "23408617");
+        cache.putTopStoryIds(ids);
+
+        assertEquals(ids, cache.getTopStoryIds());
+        assertFalse(cache.isTopStoryIdsStale());
+    }
+
+    @Test
+    public void trimsOldEntries() {
+        cache.put(item(1, "story"));
+        cache.put(item(2, "story"));
+        age(1, ItemCache.MAX_AGE_MILLIS + 1000);
+
+        cache.trim();
+
+        assertNull(cache.get("1"));
+        assertNotNull(cache.get("2"));
+    }
+}
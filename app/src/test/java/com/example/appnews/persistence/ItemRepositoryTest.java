@@ -0,0 +1,133 @@
+package com.example.appnews.persistence;
+
+import com.example.appnews.presentation.home.NewModel;
+import com.example.appnews.service.Cancellation;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ItemRepositoryTest {
+    private final AtomicInteger fetchCount = new AtomicInteger();
+    // Fetches block until released, so callers pile up on the call in flight
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ItemRepository repository = new ItemRepository((id, cancellation) -> {
+        fetchCount.incrementAndGet();
+        CountDownLatch aborted = new CountDownLatch(1);
+        cancellation.register(aborted::countDown);
+        try {
+            while (!release.await(10, TimeUnit.MILLISECONDS)) {
+                if (aborted.getCount() == 0) {
+                    throw new IOException("Aborted");
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+        if (id.equals("404")) {
+            throw new IOException("Not found");
+        }
+        NewModel model = new NewModel();
+        model.id = Integer.parseInt(id);
+        model.type = "story";
+        return model;
+    }, 16);
+
+    @Test
+    public void sharesCallInFlightAndServesFromMemory() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<NewModel>> results = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                results.add(executor.submit(() -> repository.get("1", new Cancellation())));
+            }
+            waitForFetchCount(1);
+            Thread.sleep(50);
+            release.countDown();
+
+            NewModel first = results.get(0).get();
+            for (Future<NewModel> result : results) {
+                assertSame(first, result.get());
+            }
+            assertEquals(1, fetchCount.get());
+
+            // Fresh in memory
+            assertSame(first, repository.get("1", Cancellation.NONE));
+            assertSame(first, repository.peek("1"));
+            assertEquals(1, fetchCount.get());
+
+            // Changed item is fetched again
+            repository.invalidate(Collections.singletonList("1"));
+            assertNull(repository.peek("1"));
+            assertNotSame(first, repository.get("1", Cancellation.NONE));
+            assertEquals(2, fetchCount.get());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void waiterFetchesAgainWhenStarterCancelled() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Cancellation starterCancellation = new Cancellation();
+            Future<NewModel> starter = executor.submit(() -> repository.get("2", starterCancellation));
+            waitForFetchCount(1);
+            Future<NewModel> waiter = executor.submit(() -> repository.get("2", new Cancellation()));
+            Thread.sleep(50);
+
+            starterCancellation.cancel();
+            waitForFetchCount(2);
+            release.countDown();
+
+            assertEquals(2, waiter.get().id);
+            try {
+                starter.get();
+                fail("Cancelled caller must fail");
+            }
+            catch (Exception e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failureIsNotCached() {
+        release.countDown();
+
+        for (int i = 1; i <= 2; ++i) {
+            try {
+                repository.get("404", Cancellation.NONE);
+                fail();
+            }
+            catch (IOException e) {
+                assertEquals(i, fetchCount.get());
+            }
+        }
+    }
+
+    private void waitForFetchCount(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fetchCount.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, fetchCount.get());
+    }
+}
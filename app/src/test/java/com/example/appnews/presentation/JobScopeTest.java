@@ -0,0 +1,169 @@
+package com.example.appnews.presentation;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tool.compet.core.stream.scheduler.DkScheduler;
+
+import static org.junit.Assert.*;
+
+/**
+ * Background jobs are queued and run by the test, main thread posts run inline.
+ */
+public class JobScopeTest {
+    private final QueueScheduler io = new QueueScheduler();
+    private final JobScope jobs = new JobScope(io, new InlineScheduler());
+    private final List<String> results = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+
+    @Test
+    public void deliversResult() {
+        jobs.run("a", cancellation -> "result", results::add, errors::add);
+        assertTrue(jobs.isRunning("a"));
+
+        io.runAll();
+        assertEquals(1, results.size());
+        assertEquals("result", results.get(0));
+        assertFalse(jobs.isRunning("a"));
+    }
+
+    @Test
+    public void runsSameKeyInFlightOnce() {
+        AtomicInteger runCount = new AtomicInteger();
+        JobScope.Work<String> work = cancellation -> "item " + runCount.incrementAndGet();
+
+        jobs.run("item:1", work, results::add, null);
+        jobs.run("item:1", work, results::add, null);
+        jobs.run("item:2", work, results::add, null);
+        io.runAll();
+
+        assertEquals(2, runCount.get());
+        assertEquals(3, results.size());
+        assertEquals(results.get(0), results.get(1));
+
+        // Not in flight anymore, so loads again
+        jobs.run("item:1", work, results::add, null);
+        io.runAll();
+        assertEquals(3, runCount.get());
+    }
+
+    @Test
+    public void cancelAllAbortsRequestsAndDropsResults() {
+        AtomicInteger runCount = new AtomicInteger();
+        AtomicInteger abortCount = new AtomicInteger();
+
+        // Cancelled before it starts
+        jobs.run("queued", cancellation -> "queued " + runCount.incrementAndGet(), results::add, errors::add);
+
+        // Cancelled while its request is in flight, request fails as aborted
+        jobs.<String>run("running", cancellation -> {
+            cancellation.register(abortCount::incrementAndGet);
+            jobs.cancelAll();
+            throw new Exception("aborted");
+        }, results::add, errors::add);
+
+        jobs.getCancellation().register(abortCount::incrementAndGet);
+
+        io.runLast();
+        io.runAll();
+
+        assertEquals(0, runCount.get());
+        assertEquals(2, abortCount.get());
+        assertTrue(results.isEmpty());
+        assertTrue(errors.isEmpty());
+
+        // Usable again with a fresh cancellation
+        assertFalse(jobs.getCancellation().isCancelled());
+        jobs.run("queued", cancellation -> "again", results::add, errors::add);
+        io.runAll();
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void deliversError() {
+        jobs.<String>run("a", cancellation -> {
+            throw new IllegalStateException("failed");
+        }, results::add, errors::add);
+        io.runAll();
+
+        assertTrue(results.isEmpty());
+        assertEquals(1, errors.size());
+        assertFalse(jobs.isRunning("a"));
+    }
+
+    private static class QueueScheduler extends InlineScheduler {
+        final ArrayDeque<Callable<Object>> tasks = new ArrayDeque<>();
+
+        @Override
+        public void schedule(Callable<Object> task, long delay, TimeUnit unit, boolean isSerial) {
+            tasks.add(task);
+        }
+
+        @Override
+        public boolean cancel(Callable<Object> task, boolean mayInterruptThread) {
+            return tasks.remove(task);
+        }
+
+        void runLast() {
+            call(tasks.pollLast());
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                call(tasks.poll());
+            }
+        }
+
+        private static void call(Callable<Object> task) {
+            try {
+                task.call();
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static class InlineScheduler implements DkScheduler<Object> {
+        @Override
+        public void scheduleNow(Runnable task) {
+            task.run();
+        }
+
+        @Override
+        public void scheduleNow(Runnable task, boolean isSerial) {
+            task.run();
+        }
+
+        @Override
+        public void schedule(Runnable task, long delay, TimeUnit unit, boolean isSerial) {
+            task.run();
+        }
+
+        @Override
+        public void scheduleNow(Callable<Object> task) throws Exception {
+            schedule(task, 0, TimeUnit.MILLISECONDS, true);
+        }
+
+        @Override
+        public void scheduleNow(Callable<Object> task, boolean isSerial) throws Exception {
+            schedule(task, 0, TimeUnit.MILLISECONDS, isSerial);
+        }
+
+        @Override
+        public void schedule(Callable<Object> task, long delay, TimeUnit unit, boolean isSerial) throws Exception {
+            task.call();
+        }
+
+        @Override
+        public boolean cancel(Callable<Object> task, boolean mayInterruptThread) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.appnews.presentation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TitleSearchIndexTest {
+    @Test
+    public void matchesWordPrefixesInAnyOrder() {
+        TitleSearchIndex index = new TitleSearchIndex();
+        index.put(1, "Ask HN: How do you back up your photos?");
+        index.put(2, "Show HN: A tiny SQLite browser");
+        index.put(3, "SQLite is not a toy database");
+
+        assertNull(index.search(""));
+        assertNull(index.search("  ,"));
+        assertArrayEquals(new int[] {1, 2}, index.search("hn"));
+        assertArrayEquals(new int[] {2, 3}, index.search("SQL"));
+        assertArrayEquals(new int[] {2}, index.search("sqlite sh"));
+        assertArrayEquals(new int[] {1}, index.search("photo ask"));
+        assertArrayEquals(new int[0], index.search("postgres"));
+    }
+
+    @Test
+    public void matchesInsideWords() {
+        TitleSearchIndex index = new TitleSearchIndex();
+        index.put(1, "Rust compiler internals");
+        index.put(2, "In code we trust");
+        index.put(3, "Thrust vectoring");
+
+        assertArrayEquals(new int[] {1, 2, 3}, index.search("rust"));
+        assertArrayEquals(new int[] {2}, index.search("trust"));
+        assertArrayEquals(new int[] {1}, index.search("piler rust"));
+        // Short words match word starts only
+        assertArrayEquals(new int[] {1}, index.search("ru"));
+        // So typing third char widens result, not narrows it
+        assertArrayEquals(new int[] {1, 2, 3}, index.search("rus"));
+
+        index.remove(2);
+        assertArrayEquals(new int[] {1, 3}, index.search("rus"));
+        assertArrayEquals(new int[0], index.search("truth"));
+    }
+
+    @Test
+    public void narrowsWhileTyping() {
+        TitleSearchIndex index = new TitleSearchIndex();
+        index.put(1, "Rust compiler internals");
+        index.put(2, "Rusty old Java code");
+        index.put(3, "Java memory model");
+
+        assertArrayEquals(new int[] {1, 2}, index.search("r"));
+        assertArrayEquals(new int[] {1, 2}, index.search("ru"));
+        assertArrayEquals(new int[] {2}, index.search("rusty"));
+        assertArrayEquals(new int[] {2}, index.search("rusty j"));
+        // Deleted chars, search again from index
+        assertArrayEquals(new int[] {2, 3}, index.search("j"));
+    }
+
+    @Test
+    public void followsChangesOfTitles() {
+        TitleSearchIndex index = new TitleSearchIndex();
+        index.put(1, "Linux kernel release");
+        index.put(2, "Kernel bypass networking");
+
+        assertArrayEquals(new int[] {1, 2}, index.search("kern"));
+
+        index.remove(1);
+        assertArrayEquals(new int[] {2}, index.search("kerne"));
+
+        index.put(2, "Something else");
+        index.put(7, "Kernel of truth");
+        assertArrayEquals(new int[] {7}, index.search("kernel"));
+        assertEquals(2, index.size());
+
+        index.clear();
+        assertArrayEquals(new int[0], index.search("kernel"));
+    }
+}
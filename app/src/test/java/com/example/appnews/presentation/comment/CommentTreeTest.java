@@ -0,0 +1,228 @@
+package com.example.appnews.presentation.comment;
+
+import com.example.appnews.persistence.ItemRepository;
+import com.example.appnews.presentation.home.NewModel;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the tree synchronously (waves and their results on calling thread) over a generated
+ * thread, and checks rows against what the listener was told.
+ */
+public class CommentTreeTest {
+    private final Map<Integer, NewModel> items = new HashMap<>();
+    private final AtomicInteger fetchCount = new AtomicInteger();
+    private final List<Integer> shownIds = new ArrayList<>();
+    private CommentTree tree;
+
+    @After
+    public void tearDown() {
+        if (tree != null) {
+            tree.release();
+        }
+    }
+
+    // Each comment at given depth has fanOut[depth] replies
+    private NewModel story(int topCount, int... fanOut) {
+        int[] nextId = {1};
+        NewModel story = new NewModel();
+        story.id = 0;
+        story.kids = addKids(0, topCount, 0, fanOut, nextId);
+        return story;
+    }
+
+    private int[] addKids(int parent, int count, int depth, int[] fanOut, int[] nextId) {
+        int[] kids = new int[count];
+        for (int i = 0; i < count; ++i) {
+            NewModel comment = new NewModel();
+            comment.id = nextId[0]++;
+            comment.parent = parent;
+            comment.by = "user" + comment.id;
+            comment.text = "text " + comment.id;
+            comment.type = "comment";
+            comment.time = 1_590_000_000L;
+            if (depth < fanOut.length) {
+                comment.kids = addKids(comment.id, fanOut[depth], depth + 1, fanOut, nextId);
+            }
+            items.put(comment.id, comment);
+            kids[i] = comment.id;
+        }
+        return kids;
+    }
+
+    private CommentTree newTree(NewModel story) {
+        return newTree(story, (id, cancellation) -> {
+            fetchCount.incrementAndGet();
+            return items.get(Integer.parseInt(id));
+        }, Runnable::run);
+    }
+
+    private CommentTree newTree(NewModel story, ItemRepository.Source source, Executor executor) {
+        tree = new CommentTree(story, source, executor, Runnable::run, html -> html, new CommentTree.Listener() {
+            @Override
+            public void onRowsInserted(int position, int count) {
+                for (int i = 0; i < count; ++i) {
+                    shownIds.add(position + i, tree.getRow(position + i).getId());
+                }
+            }
+
+            @Override
+            public void onRowsRemoved(int position, int count) {
+                shownIds.subList(position, position + count).clear();
+            }
+
+            @Override
+            public void onRowChanged(int position) {
+                assertTrue(position >= 0 && position < shownIds.size());
+            }
+        });
+        return tree;
+    }
+
+    private void assertRowsMatchListener() {
+        assertEquals(tree.getRowCount(), shownIds.size());
+        for (int i = 0; i < shownIds.size(); ++i) {
+            assertEquals((int) shownIds.get(i), tree.getRow(i).getId());
+        }
+    }
+
+    @Test
+    public void flattensWaveDepthFirstWithDepths() {
+        newTree(story(2, 2, 1, 1)).start();
+
+        // 2 top, 2 replies each, 1 reply each, deeper level is collapsed
+        assertRowsMatchListener();
+        assertEquals(2 + 4 + 4, tree.getRowCount());
+
+        CommentTree.Node first = tree.getRow(0);
+        assertEquals(0, first.getDepth());
+        assertEquals(1, tree.getRow(1).getDepth());
+        assertEquals(2, tree.getRow(2).getDepth());
+        assertEquals(1, tree.getRow(3).getDepth());
+        assertEquals("user" + first.getId(), first.getBy());
+        assertEquals("text " + first.getId(), first.getText().toString());
+
+        CommentTree.Node deepest = tree.getRow(2);
+        assertFalse(deepest.isExpanded());
+        assertEquals(1, deepest.getKidCount());
+    }
+
+    @Test
+    public void expandsLazilyAndDropsCollapsedSubtree() {
+        newTree(story(1, 1, 1, 1, 1)).start();
+        assertEquals(3, tree.getRowCount());
+
+        // Expand comment at depth 2
+        int fetchedBefore = fetchCount.get();
+        tree.onRowClick(2);
+        assertRowsMatchListener();
+        assertEquals(5, tree.getRowCount());
+        assertEquals(2, fetchCount.get() - fetchedBefore);
+
+        // Collapse top comment, whole subtree goes away
+        tree.onRowClick(0);
+        assertRowsMatchListener();
+        assertEquals(1, tree.getRowCount());
+        assertFalse(tree.getRow(0).isExpanded());
+
+        // Expand it again, a wave under it loads 3 levels
+        tree.onRowClick(0);
+        assertRowsMatchListener();
+        assertEquals(4, tree.getRowCount());
+    }
+
+    @Test
+    public void pagesLargeThreadWithinBudget() {
+        // 1200 top comments with 5 replies each, each reply has 3 replies
+        newTree(story(1200, 5, 3)).start();
+        assertRowsMatchListener();
+
+        assertTrue(fetchCount.get() <= CommentTree.WAVE_BUDGET);
+        assertTrue(tree.getRowCount() <= CommentTree.WAVE_BUDGET + CommentTree.PAGE_SIZE);
+
+        // Last row loads more top comments
+        CommentTree.Node more = tree.getRow(tree.getRowCount() - 1);
+        assertTrue(more.isMore());
+        assertEquals(0, more.getDepth());
+        assertEquals(1200 - CommentTree.PAGE_SIZE, more.getRemainingCount());
+
+        int topCount = countDepth(0);
+        tree.onRowClick(tree.getRowCount() - 1);
+        assertRowsMatchListener();
+        assertEquals(topCount + CommentTree.PAGE_SIZE, countDepth(0));
+        assertTrue(tree.getRow(tree.getRowCount() - 1).isMore());
+    }
+
+    @Test
+    public void skipsDeadAndKeepsDeletedWithReplies() {
+        NewModel story = story(3, 1);
+        NewModel dead = items.get(story.kids[0]);
+        dead.dead = true;
+        NewModel deleted = items.get(story.kids[1]);
+        deleted.deleted = true;
+        deleted.by = null;
+        deleted.text = null;
+
+        newTree(story).start();
+        assertRowsMatchListener();
+
+        // Deleted one with its reply, then last one with its reply
+        assertEquals(4, tree.getRowCount());
+        assertTrue(tree.getRow(0).isDeleted());
+        assertEquals(story.kids[1], tree.getRow(0).getId());
+    }
+
+    @Test
+    public void releaseAbortsWaveInFlight() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // Blocks until the load is cancelled, like a request in flight
+        newTree(story(1), (id, cancellation) -> {
+            CountDownLatch cancelled = new CountDownLatch(1);
+            cancellation.register(cancelled::countDown);
+            loading.countDown();
+            try {
+                cancelled.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            aborted.countDown();
+            return null;
+        }, executor).start();
+
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        tree.release();
+
+        assertTrue(aborted.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.isShutdown());
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(0, tree.getRowCount());
+    }
+
+    private int countDepth(int depth) {
+        int count = 0;
+        for (int i = 0; i < tree.getRowCount(); ++i) {
+            if (!tree.getRow(i).isMore() && tree.getRow(i).getDepth() == depth) {
+                ++count;
+            }
+        }
+        return count;
+    }
+}
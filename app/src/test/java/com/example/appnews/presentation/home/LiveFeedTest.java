@@ -0,0 +1,78 @@
+package com.example.appnews.presentation.home;
+
+import com.example.appnews.service.FakeRealtimeSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LiveFeedTest {
+    private final FakeRealtimeSource source = new FakeRealtimeSource();
+    private final List<List<String>> feeds = new ArrayList<>();
+    private final List<List<String>> changedStories = new ArrayList<>();
+    private LiveFeed liveFeed;
+
+    @Before
+    public void setUp() {
+        liveFeed = new LiveFeed(source, new LiveFeed.Listener() {
+            @Override
+            public void onFeedChanged(ArrayList<String> ids) {
+                feeds.add(ids);
+            }
+
+            @Override
+            public void onStoriesChanged(List<String> ids) {
+                changedStories.add(ids);
+            }
+        });
+        liveFeed.setCurrentIds(Arrays.asList("1", "2", "3"));
+        liveFeed.start();
+    }
+
+    @Test
+    public void skipsSameTopList() {
+        source.pushTopStories("1", "2", "3");
+        assertTrue(feeds.isEmpty());
+    }
+
+    @Test
+    public void forwardsChangedTopListOnce() {
+        source.pushTopStories("4", "1", "2");
+        source.pushTopStories("4", "1", "2");
+
+        assertEquals(1, feeds.size());
+        assertEquals(Arrays.asList("4", "1", "2"), feeds.get(0));
+    }
+
+    @Test
+    public void forwardsOnlyUpdatesOfFeed() {
+        source.pushUpdates("9", "2", "8");
+        source.pushUpdates("7");
+
+        assertEquals(1, changedStories.size());
+        assertEquals(Arrays.asList("2"), changedStories.get(0));
+
+        // New top list makes its stories tracked
+        source.pushTopStories("7", "1");
+        source.pushUpdates("7", "2");
+        assertEquals(Arrays.asList("7"), changedStories.get(1));
+    }
+
+    @Test
+    public void ignoresPushesAfterStop() {
+        liveFeed.stop();
+        source.pushTopStories("5");
+        source.pushUpdates("1");
+
+        assertTrue(feeds.isEmpty());
+        assertTrue(changedStories.isEmpty());
+
+        liveFeed.start();
+        assertEquals(2, source.getStartCount());
+    }
+}
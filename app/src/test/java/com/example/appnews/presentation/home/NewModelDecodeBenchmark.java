@@ -0,0 +1,142 @@
+package com.example.appnews.presentation.home;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares old decode path (read body line by line into a String, then parse with
+ * reflective pretty-printing Gson) with streaming {@link NewModelTypeAdapter}
+ * on recorded item payloads.
+ */
+public class NewModelDecodeBenchmark {
+    private static final String[] PAYLOADS = {
+            "{\n" +
+                    "  \"by\" : \"dhouston\",\n" +
+                    "  \"descendants\" : 71,\n" +
+                    "  \"id\" : 8863,\n" +
+                    "  \"kids\" : [ 8952, 9224, 8917, 8884, 8887, 8943, 8869, 8958, 9005, 9671, 8940, 9067, 8908, 9055, 8865, 8881, 8872, 8873, 8955, 10403, 8903, 8928, 9125, 8998, 8901, 8902, 8907, 8894, 8878, 8870, 8980, 8934, 8876 ],\n" +
+                    "  \"score\" : 111,\n" +
+                    "  \"time\" : 1175714200,\n" +
+                    "  \"title\" : \"My YC app: Dropbox - Throw away your USB drive\",\n" +
+                    "  \"type\" : \"story\",\n" +
+                    "  \"url\" : \"http://www.getdropbox.com/u/2/screencast.html\"\n" +
+                    "}",
+            "{\n" +
+                    "  \"by\" : \"tel\",\n" +
+                    "  \"descendants\" : 16,\n" +
+                    "  \"id\" : 121003,\n" +
+                    "  \"kids\" : [ 121016, 121109, 121168 ],\n" +
+                    "  \"score\" : 25,\n" +
+                    "  \"text\" : \"<i>or</i> HN: the Next Iteration<p>I get the impression that with Arc being released a lot of people who never had time for HN before are suddenly dropping in more often.\",\n" +
+                    "  \"time\" : 1203647620,\n" +
+                    "  \"title\" : \"Ask HN: The Arc Effect\",\n" +
+                    "  \"type\" : \"story\"\n" +
+                    "}",
+            "{\n" +
+                    "  \"by\" : \"justin\",\n" +
+                    "  \"id\" : 192327,\n" +
+                    "  \"score\" : 6,\n" +
+                    "  \"text\" : \"Justin.tv is the biggest live video site online. We serve hundreds of thousands of video streams a day.\",\n" +
+                    "  \"time\" : 1210981217,\n" +
+                    "  \"title\" : \"Justin.tv is looking for a Lead Flash Engineer!\",\n" +
+                    "  \"type\" : \"job\",\n" +
+                    "  \"url\" : \"\"\n" +
+                    "}"
+    };
+
+    private static final int WARMUP_ROUNDS = 5_000;
+    private static final int MEASURE_ROUNDS = 50_000;
+
+    private final Gson oldGson = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd HH:mm:ss")
+            .excludeFieldsWithoutExposeAnnotation()
+            .setPrettyPrinting()
+            .create();
+
+    private final byte[][] bodies = new byte[PAYLOADS.length][];
+
+    public NewModelDecodeBenchmark() {
+        for (int i = 0; i < PAYLOADS.length; ++i) {
+            bodies[i] = PAYLOADS[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private NewModel decodeOld(InputStream is) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        String line;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
+            while ((line = br.readLine()) != null) {
+                sb.append(line).append(System.lineSeparator());
+            }
+        }
+        return oldGson.fromJson(sb.toString(), NewModel.class);
+    }
+
+    private NewModel decodeNew(InputStream is) throws Exception {
+        return NewModelTypeAdapter.getIns().decode(is);
+    }
+
+    @Test
+    public void decodesSameAsOldPath() throws Exception {
+        for (byte[] body : bodies) {
+            NewModel expected = decodeOld(new ByteArrayInputStream(body));
+            NewModel actual = decodeNew(new ByteArrayInputStream(body));
+
+            assertEquals(expected.id, actual.id);
+            assertEquals(expected.by, actual.by);
+            assertEquals(expected.descendants, actual.descendants);
+            assertEquals(expected.score, actual.score);
+            assertEquals(expected.time, actual.time);
+            assertEquals(expected.title, actual.title);
+            assertEquals(expected.type, actual.type);
+            assertEquals(expected.url, actual.url);
+            assertEquals(expected.text, actual.text);
+            assertArrayEquals(expected.kids, actual.kids);
+        }
+    }
+
+    @Test
+    public void decodesIdList() throws Exception {
+        String json = "[ 23412187, 23411977, 23408617 ]";
+        String[] ids = NewModelTypeAdapter.decodeIds(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertArrayEquals(new String[] {"23412187", "23411977", "23408617"}, ids);
+    }
+
+    @Ignore("Benchmark, run by hand")
+    @Test
+    public void benchmark() throws Exception {
+        long sink = 0;
+
+        for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+            sink += decodeOld(new ByteArrayInputStream(bodies[i % bodies.length])).id;
+            sink += decodeNew(new ByteArrayInputStream(bodies[i % bodies.length])).id;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; ++i) {
+            sink += decodeOld(new ByteArrayInputStream(bodies[i % bodies.length])).id;
+        }
+        long oldNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; ++i) {
+            sink += decodeNew(new ByteArrayInputStream(bodies[i % bodies.length])).id;
+        }
+        long newNanos = System.nanoTime() - start;
+
+        System.out.printf("decode item: old %.2f us/op, streaming %.2f us/op (sink %d)%n",
+                oldNanos / 1000.0 / MEASURE_ROUNDS, newNanos / 1000.0 / MEASURE_ROUNDS, sink);
+    }
+}
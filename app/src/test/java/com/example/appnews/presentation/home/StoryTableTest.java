@@ -0,0 +1,122 @@
+package com.example.appnews.presentation.home;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class StoryTableTest {
+    private static NewModel story(int id, String by, int kidCount) {
+        NewModel model = new NewModel();
+        model.id = id;
+        model.by = new String(by);
+        model.type = new String("story");
+        model.title = "title " + id;
+        model.url = "https://example.com/" + id;
+        model.score = id % 100;
+        model.descendants = kidCount;
+        model.time = 1_590_000_000L + id;
+        model.kids = new int[kidCount];
+        for (int i = 0; i < kidCount; ++i) {
+            model.kids[i] = id * 1000 + i;
+        }
+        return model;
+    }
+
+    private static void assertStory(StoryTable table, StoryTable.Row row, int position, int id, int kidCount) {
+        assertTrue(table.moveTo(row, position));
+        assertEquals(id, row.getId());
+        assertEquals("title " + id, row.getTitle());
+        assertEquals(id % 100, row.getScore());
+        assertEquals(1_590_000_000L + id, row.getTime());
+        assertEquals(kidCount, row.getKidCount());
+        for (int i = 0; i < kidCount; ++i) {
+            assertEquals(id * 1000 + i, row.getKid(i));
+        }
+    }
+
+    @Test
+    public void readsBackThroughFlyweight() {
+        StoryTable table = new StoryTable();
+        StoryTable.Row row = table.newRow();
+        table.reset(500);
+
+        for (int position = 0; position < 500; ++position) {
+            table.put(position, story(position + 1, "user" + (position % 3), position % 40));
+        }
+        for (int position = 0; position < 500; ++position) {
+            assertStory(table, row, position, position + 1, position % 40);
+        }
+
+        NewModel model = table.toModel(7);
+        assertEquals(8, model.id);
+        assertEquals(7, model.kids.length);
+        assertEquals(8000, model.kids[0]);
+    }
+
+    @Test
+    public void internsAuthorAndType() {
+        StoryTable table = new StoryTable();
+        StoryTable.Row first = table.newRow();
+        StoryTable.Row second = table.newRow();
+        table.reset(2);
+        table.put(0, story(1, "pg", 0));
+        table.put(1, story(2, "pg", 0));
+
+        table.moveTo(first, 0);
+        table.moveTo(second, 1);
+        assertSame(first.getBy(), second.getBy());
+        assertSame(first.getType(), second.getType());
+    }
+
+    @Test
+    public void recyclesRowsAndKidsOfDroppedPositions() {
+        StoryTable table = new StoryTable();
+        StoryTable.Row row = table.newRow();
+        table.reset(2000);
+
+        // Scroll through the feed keeping a window of 100 positions
+        for (int position = 0; position < 2000; ++position) {
+            table.put(position, story(position + 1, "user", 30));
+            if (position >= 100) {
+                table.remove(position - 100);
+                assertFalse(table.isLoaded(position - 100));
+            }
+        }
+        for (int position = 1900; position < 2000; ++position) {
+            assertStory(table, row, position, position + 1, 30);
+        }
+
+        // Re-load a dropped range
+        for (int position = 0; position < 20; ++position) {
+            table.put(position, story(position + 1, "user", 5));
+        }
+        for (int position = 0; position < 20; ++position) {
+            assertStory(table, row, position, position + 1, 5);
+        }
+    }
+
+    @Test
+    public void remapsLoadedStoriesById() {
+        StoryTable table = new StoryTable();
+        StoryTable.Row row = table.newRow();
+        table.reset(4);
+        for (int position = 0; position < 4; ++position) {
+            table.put(position, story(position + 1, "user", position));
+        }
+
+        // Story 2 went away, 4 moved to top and 9 is new
+        table.remap(Arrays.asList("4", "1", "9", "3"));
+
+        assertEquals(4, table.size());
+        assertStory(table, row, 0, 4, 3);
+        assertStory(table, row, 1, 1, 0);
+        assertFalse(table.isLoaded(2));
+        assertStory(table, row, 3, 3, 2);
+
+        // Row of story 2 is recycled
+        table.put(2, story(9, "user", 1));
+        assertStory(table, row, 2, 9, 1);
+    }
+}
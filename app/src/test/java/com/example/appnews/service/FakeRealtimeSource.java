@@ -0,0 +1,34 @@
+package com.example.appnews.service;
+
+import java.util.Arrays;
+
+/**
+ * Realtime source driven by tests, pushes what test tells on calling thread.
+ */
+public class FakeRealtimeSource implements RealtimeSource {
+    private Listener listener;
+    private int startCount;
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        ++startCount;
+    }
+
+    @Override
+    public void stop() {
+        // Keep listener, so pushes after stop reach it like late callbacks would
+    }
+
+    public int getStartCount() {
+        return startCount;
+    }
+
+    public void pushTopStories(String... ids) {
+        listener.onTopStoriesChanged(Arrays.asList(ids));
+    }
+
+    public void pushUpdates(String... ids) {
+        listener.onItemsChanged(Arrays.asList(ids));
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.appnews.service;
+
+import com.example.appnews.presentation.home.NewModel;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the fetcher against a local stand-in of the item endpoint which answers
+ * each item after an injected delay.
+ */
+public class StoryFetcherTest {
+    private HttpServer server;
+    private final Map<String, Long> delays = new HashMap<>();
+    // Runs when a request arrives, before it is answered
+    private volatile RequestHook hook = id -> {};
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final Gson gson = new Gson();
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v0/item/", exchange -> {
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            try {
+                String path = exchange.getRequestURI().getPath();
+                String id = path.substring(path.lastIndexOf('/') + 1, path.indexOf(".json"));
+                hook.onRequest(id);
+                Long delay = delays.get(id);
+                if (delay != null) {
+                    Thread.sleep(delay);
+                }
+                byte[] body = ("{\"id\":" + id + ",\"title\":\"story " + id + "\",\"type\":\"story\"}")
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+            }
+            catch (InterruptedException e) {
+                exchange.sendResponseHeaders(500, -1);
+            }
+            finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    private interface RequestHook {
+        void onRequest(String id) throws InterruptedException;
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private NewModel load(String id) throws Exception {
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/v0/item/" + id + ".json");
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        try (InputStreamReader reader = new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, NewModel.class);
+        }
+    }
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 1; i <= count; ++i) {
+            ids.add(String.valueOf(i));
+        }
+        return ids;
+    }
+
+    @Test
+    public void keepsRankingOrder() throws Exception {
+        List<String> ids = ids(20);
+        for (String id : ids) {
+            // later items answer first
+            delays.put(id, (long) (21 - Integer.parseInt(id)) * 10);
+        }
+
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        StoryFetcher fetcher = new StoryFetcher(this::load, 8);
+        try {
+            fetcher.fetch(ids, model -> received.add(model.id));
+        }
+        finally {
+            fetcher.shutdown();
+        }
+
+        assertEquals(20, received.size());
+        for (int i = 0; i < received.size(); ++i) {
+            assertEquals(i + 1, (int) received.get(i));
+        }
+    }
+
+    @Test
+    public void boundsRequestsInFlight() throws Exception {
+        List<String> ids = ids(32);
+        for (String id : ids) {
+            delays.put(id, 50L);
+        }
+
+        StoryFetcher fetcher = new StoryFetcher(this::load, 4);
+        try {
+            fetcher.fetch(ids, model -> {});
+        }
+        finally {
+            fetcher.shutdown();
+        }
+
+        assertTrue("max in flight: " + maxInFlight.get(), maxInFlight.get() <= 4);
+        assertTrue(maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void runsRequestsConcurrently() throws Exception {
+        // Each request waits until 8 requests are in flight, a serial loop would never get there
+        CountDownLatch arrivals = new CountDownLatch(8);
+        AtomicInteger timeoutCount = new AtomicInteger();
+        hook = id -> {
+            arrivals.countDown();
+            if (!arrivals.await(5, TimeUnit.SECONDS)) {
+                timeoutCount.incrementAndGet();
+            }
+        };
+
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        StoryFetcher fetcher = new StoryFetcher(this::load, 8);
+        try {
+            fetcher.fetch(ids(16), model -> received.add(model.id));
+        }
+        finally {
+            fetcher.shutdown();
+        }
+
+        assertEquals(0, timeoutCount.get());
+        assertEquals(8, maxInFlight.get());
+        assertEquals(16, received.size());
+    }
+
+    @Test
+    public void streamsTopItemsBeforeSlowTail() throws Exception {
+        // Last item is answered only after items above it were delivered
+        CountDownLatch topDelivered = new CountDownLatch(1);
+        AtomicBoolean isTailReleasedByTop = new AtomicBoolean();
+        hook = id -> {
+            if (id.equals("10")) {
+                isTailReleasedByTop.set(topDelivered.await(5, TimeUnit.SECONDS));
+            }
+        };
+
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        StoryFetcher fetcher = new StoryFetcher(this::load, 8);
+        try {
+            fetcher.fetch(ids(10), model -> {
+                received.add(model.id);
+                if (model.id == 9) {
+                    topDelivered.countDown();
+                }
+            });
+        }
+        finally {
+            fetcher.shutdown();
+        }
+
+        assertTrue(isTailReleasedByTop.get());
+        assertEquals(10, received.size());
+        assertEquals(10, (int) received.get(9));
+    }
+
+    @Test
+    public void shutdownReleasesWaitingFetches() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        // One worker thread, so the second fetch waits for a queued worker
+        StoryFetcher fetcher = new StoryFetcher(id -> {
+            started.countDown();
+            new CountDownLatch(1).await();
+            return null;
+        }, 1);
+
+        Thread first = new Thread(() -> fetchQuietly(fetcher));
+        Thread second = new Thread(() -> fetchQuietly(fetcher));
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        second.start();
+        Thread.sleep(50);
+
+        fetcher.shutdown();
+        first.join(5000);
+        second.join(5000);
+
+        assertFalse(first.isAlive());
+        assertFalse(second.isAlive());
+
+        // Fetch after shutdown does not wait for workers which never run
+        fetchQuietly(fetcher);
+    }
+
+    private static void fetchQuietly(StoryFetcher fetcher) {
+        try {
+            fetcher.fetch(ids(4), model -> {});
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -16,18 +16,42 @@
 
 package tool.compet.core.datetime;
 
-import java.text.DateFormat;
+import java.text.FieldPosition;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Locale;
 
 /**
  * This class, provides common basic operations for datetime.
+ * <p></p>
+ * Formatting is thread-safe and does not compile pattern per call: compiled formatters
+ * are cached per (pattern, locale) in each thread, since SimpleDateFormat is not thread-safe.
+ * Cached formatters keep the timezone at their creation, call {@link #onTimeZoneChanged()}
+ * when default timezone was changed.
  */
 public class DkDateTimes {
+	private static final long SECOND_MILLIS = 1000L;
+	private static final long MINUTE_MILLIS = 60 * SECOND_MILLIS;
+	private static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+	private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+	// Older than this, relative time is formatted as absolute time
+	private static final long RELATIVE_LIMIT_MILLIS = 30 * DAY_MILLIS;
+
+	// Bumped when timezone was changed, caches of older generation are cleared
+	private static volatile int generation;
+
+	private static final ThreadLocal<Formatters> formatters = new ThreadLocal<Formatters>() {
+		@Override
+		protected Formatters initialValue() {
+			return new Formatters();
+		}
+	};
+
 	public static long getCurrentTime() {
-		return new Date().getTime();
+		return System.currentTimeMillis();
 	}
 
 	public static int[] getCurrentTimeDetail() {
@@ -55,8 +79,101 @@ public class DkDateTimes {
 	}
 
 	public static String formatTime(long millis, String pattern, Locale locale) {
-		Date date = new Date(millis);
-		DateFormat formatter = new SimpleDateFormat(pattern, locale);
-		return formatter.format(date);
+		return formatters.get().format(millis, pattern, locale).toString();
+	}
+
+	/**
+	 * Appends formatted datetime to given builder, without allocating a String.
+	 *
+	 * @return given builder.
+	 */
+	public static StringBuilder formatTime(long millis, String pattern, Locale locale, StringBuilder out) {
+		return out.append(formatters.get().format(millis, pattern, locale));
+	}
+
+	/**
+	 * @return relative time from now, for eg,. "5 minutes ago".
+	 * @see #formatRelativeTime(long, long, StringBuilder)
+	 */
+	public static String formatRelativeTime(long millis) {
+		StringBuilder out = formatters.get().relativeBuilder;
+		out.setLength(0);
+		return formatRelativeTime(millis, getCurrentTime(), out).toString();
+	}
+
+	/**
+	 * Appends relative time of given time to given now time, as "just now", "N minutes ago",
+	 * "N hours ago" or "N days ago". Older than 30 days is appended as absolute time in US format.
+	 * Does not allocate except when falls back to absolute time.
+	 *
+	 * @return given builder.
+	 */
+	public static StringBuilder formatRelativeTime(long millis, long nowMillis, StringBuilder out) {
+		long elapsed = Math.max(0, nowMillis - millis);
+
+		if (elapsed < MINUTE_MILLIS) {
+			return out.append("just now");
+		}
+		if (elapsed < HOUR_MILLIS) {
+			return appendAgo(out, elapsed / MINUTE_MILLIS, " minute");
+		}
+		if (elapsed < DAY_MILLIS) {
+			return appendAgo(out, elapsed / HOUR_MILLIS, " hour");
+		}
+		if (elapsed < RELATIVE_LIMIT_MILLIS) {
+			return appendAgo(out, elapsed / DAY_MILLIS, " day");
+		}
+		return formatTime(millis, DkDateTime$.DATE_FORMAT_US, Locale.US, out);
+	}
+
+	/**
+	 * Drops cached formatters of all threads, so next formatting uses new default timezone.
+	 */
+	public static void onTimeZoneChanged() {
+		++generation;
+	}
+
+	private static StringBuilder appendAgo(StringBuilder out, long count, String unit) {
+		out.append(count).append(unit);
+		if (count > 1) {
+			out.append('s');
+		}
+		return out.append(" ago");
+	}
+
+	// Formatters and reusable buffers of one thread
+	private static class Formatters {
+		// Keyed by locale then pattern, so lookup does not allocate a key
+		final HashMap<Locale, HashMap<String, SimpleDateFormat>> formatsOfLocale = new HashMap<>();
+		final Date date = new Date();
+		final StringBuffer buffer = new StringBuffer(32);
+		final FieldPosition fieldPosition = new FieldPosition(0);
+		final StringBuilder relativeBuilder = new StringBuilder(32);
+		int generation = DkDateTimes.generation;
+
+		// Result is valid until next call in this thread
+		StringBuffer format(long millis, String pattern, Locale locale) {
+			date.setTime(millis);
+			buffer.setLength(0);
+			return get(pattern, locale).format(date, buffer, fieldPosition);
+		}
+
+		SimpleDateFormat get(String pattern, Locale locale) {
+			if (generation != DkDateTimes.generation) {
+				generation = DkDateTimes.generation;
+				formatsOfLocale.clear();
+			}
+
+			HashMap<String, SimpleDateFormat> formats = formatsOfLocale.get(locale);
+			if (formats == null) {
+				formatsOfLocale.put(locale, formats = new HashMap<>());
+			}
+
+			SimpleDateFormat format = formats.get(pattern);
+			if (format == null) {
+				formats.put(pattern, format = new SimpleDateFormat(pattern, locale));
+			}
+			return format;
+		}
 	}
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 DarkCompet. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tool.compet.core.graphic;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+
+/**
+ * Thread-safe size-bounded pool of unused mutable bitmaps, to be reused as
+ * BitmapFactory.Options#inBitmap instead of allocating a new bitmap per decode.
+ * <p></p>
+ * Only put bitmaps which are not shown and not referenced anymore, since their pixels
+ * will be overwritten by next decode.
+ */
+public class DkBitmapPool {
+	private final long maxSize;
+	// Oldest first
+	private final ArrayList<Bitmap> bitmaps = new ArrayList<>();
+	private long size;
+
+	public DkBitmapPool(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public synchronized void put(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmaps.contains(bitmap)) {
+			return;
+		}
+
+		long bitmapSize = DkBitmaps.getSize(bitmap);
+		if (bitmapSize > maxSize) {
+			return;
+		}
+
+		while (size + bitmapSize > maxSize && !bitmaps.isEmpty()) {
+			size -= DkBitmaps.getSize(bitmaps.remove(0));
+		}
+		bitmaps.add(bitmap);
+		size += bitmapSize;
+	}
+
+	/**
+	 * Takes out the smallest bitmap which can hold given size and config as inBitmap.
+	 *
+	 * @return null if no such bitmap.
+	 */
+	public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+		long requiredSize = (long) width * height * bytesPerPixel(config);
+		int bestIndex = -1;
+		long bestSize = Long.MAX_VALUE;
+
+		for (int index = bitmaps.size() - 1; index >= 0; --index) {
+			Bitmap bitmap = bitmaps.get(index);
+			long bitmapSize = DkBitmaps.getSize(bitmap);
+
+			if (bitmap.getConfig() == config && bitmapSize >= requiredSize && bitmapSize < bestSize) {
+				bestIndex = index;
+				bestSize = bitmapSize;
+			}
+		}
+
+		if (bestIndex < 0) {
+			return null;
+		}
+		size -= bestSize;
+		return bitmaps.remove(bestIndex);
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized void clear() {
+		bitmaps.clear();
+		size = 0;
+	}
+
+	static int bytesPerPixel(Bitmap.Config config) {
+		if (config == Bitmap.Config.ALPHA_8) {
+			return 1;
+		}
+		if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+			return 2;
+		}
+		return 4;
+	}
+}
@@ -126,6 +126,64 @@ public final class DkBitmaps {
 		return res;
 	}
 
+	/**
+	 * @return largest power of 2 sample size which keeps decoded size at least required size,
+	 * so decoded bitmap is not larger than needed but still sharp when shown in required size.
+	 */
+	public static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+		int inSampleSize = 1;
+
+		if (reqWidth > 0 && reqHeight > 0) {
+			while (width / (inSampleSize << 1) >= reqWidth && height / (inSampleSize << 1) >= reqHeight) {
+				inSampleSize <<= 1;
+			}
+		}
+		return inSampleSize;
+	}
+
+	/**
+	 * Decodes given encoded image subsampled to required size, into a bitmap taken from
+	 * given pool when one fits, so decoding while scrolling does not allocate new bitmaps.
+	 *
+	 * @param pool nullable, to decode without reusing.
+	 * @return decoded mutable bitmap, or null if data is not an image.
+	 */
+	public static Bitmap decodeSampled(byte[] data, int reqWidth, int reqHeight, DkBitmapPool pool) {
+		BitmapFactory.Options opts = new BitmapFactory.Options();
+		opts.inJustDecodeBounds = true;
+		BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+
+		if (opts.outWidth <= 0 || opts.outHeight <= 0) {
+			return null;
+		}
+
+		opts.inJustDecodeBounds = false;
+		opts.inSampleSize = calculateInSampleSize(opts.outWidth, opts.outHeight, reqWidth, reqHeight);
+		opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+		opts.inMutable = true;
+
+		if (pool != null) {
+			// Rounded up, decoder may round up too
+			int sampledWidth = (opts.outWidth + opts.inSampleSize - 1) / opts.inSampleSize;
+			int sampledHeight = (opts.outHeight + opts.inSampleSize - 1) / opts.inSampleSize;
+			opts.inBitmap = pool.get(sampledWidth, sampledHeight, opts.inPreferredConfig);
+		}
+
+		try {
+			return BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+		}
+		catch (IllegalArgumentException e) {
+			// Decoder could not reuse the bitmap (for eg,. indexed color png), decode without it
+			if (opts.inBitmap == null) {
+				throw e;
+			}
+			pool.put(opts.inBitmap);
+			opts.inBitmap = null;
+
+			return BitmapFactory.decodeByteArray(data, 0, data.length, opts);
+		}
+	}
+
 	public static Bitmap decodeRegion(InputStream is, int left, int top, int right, int bottom) throws IOException {
 		return decodeRegion(is, left, top, right, bottom, null);
 	}
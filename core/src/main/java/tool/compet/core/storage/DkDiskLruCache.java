@@ -16,4 +16,214 @@
 
 package tool.compet.core.storage;
 
-public class DkDiskLruCache {}
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tool.compet.core.util.DkLogs;
+
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Thread-safe size-bounded cache of files in a directory. Each key is stored in one file
+ * named by hash of the key. When total size exceeds max size, least recently used files
+ * are deleted. Recency is kept in last modified time of files, so it survives restarts.
+ * <p></p>
+ * Entries are written to a temporary file first, then renamed, so readers never see
+ * a partially written entry.
+ */
+public class DkDiskLruCache {
+	public interface Writer {
+		void write(OutputStream os) throws IOException;
+	}
+
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final AtomicInteger tempId = new AtomicInteger();
+
+	private final File dir;
+	private final long maxSize;
+	// File name to size, in access order (least recently used first). Null until loaded.
+	private LinkedHashMap<String, Long> entries;
+	private long size;
+
+	public DkDiskLruCache(File dir, long maxSize) {
+		this.dir = dir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return file of given key, or null if not cached. Do not modify the file,
+	 * and note that it may be deleted by later puts.
+	 */
+	public synchronized File get(String key) {
+		loadIfNeeded();
+
+		String name = fileNameOf(key);
+		if (entries.get(name) == null) {
+			return null;
+		}
+
+		File file = new File(dir, name);
+		if (!file.exists()) {
+			size -= entries.remove(name);
+			return null;
+		}
+		file.setLastModified(System.currentTimeMillis());
+
+		return file;
+	}
+
+	/**
+	 * Writes an entry of given key, replacing old one. Writing is done out of the lock,
+	 * so concurrent puts of different keys do not wait for each other.
+	 *
+	 * @return true if written, false if writer failed (then nothing is changed).
+	 */
+	public boolean put(String key, Writer writer) {
+		synchronized (this) {
+			loadIfNeeded();
+		}
+
+		String name = fileNameOf(key);
+		File temp = new File(dir, name + '.' + tempId.incrementAndGet() + TEMP_SUFFIX);
+
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(temp))) {
+			writer.write(os);
+		}
+		catch (IOException e) {
+			temp.delete();
+			if (DEBUG) {
+				DkLogs.logex(this, e);
+			}
+			return false;
+		}
+
+		synchronized (this) {
+			File file = new File(dir, name);
+			Long oldSize = entries.remove(name);
+			if (oldSize != null) {
+				size -= oldSize;
+			}
+
+			if (!temp.renameTo(file)) {
+				file.delete();
+				temp.delete();
+				return false;
+			}
+
+			long fileSize = file.length();
+			entries.put(name, fileSize);
+			size += fileSize;
+
+			trimToSize(maxSize);
+		}
+		return true;
+	}
+
+	public synchronized void remove(String key) {
+		loadIfNeeded();
+
+		String name = fileNameOf(key);
+		Long fileSize = entries.remove(name);
+
+		if (fileSize != null) {
+			size -= fileSize;
+			new File(dir, name).delete();
+		}
+	}
+
+	public synchronized long getSize() {
+		loadIfNeeded();
+		return size;
+	}
+
+	public synchronized void clear() {
+		loadIfNeeded();
+		trimToSize(0);
+	}
+
+	private void trimToSize(long newSize) {
+		Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+
+		while (size > newSize && it.hasNext()) {
+			Map.Entry<String, Long> entry = it.next();
+			new File(dir, entry.getKey()).delete();
+			size -= entry.getValue();
+			it.remove();
+		}
+	}
+
+	// Indexes existing files by their last modified time, at first use
+	private void loadIfNeeded() {
+		if (entries != null) {
+			return;
+		}
+		entries = new LinkedHashMap<>(16, 0.75f, true);
+		size = 0;
+
+		if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+			if (DEBUG) {
+				DkLogs.log(this, "Could not create cache dir: " + dir.getPath());
+			}
+			return;
+		}
+
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		long[] lastModifieds = new long[files.length];
+		for (int i = 0; i < files.length; ++i) {
+			lastModifieds[i] = files[i].lastModified();
+		}
+		Integer[] order = new Integer[files.length];
+		for (int i = 0; i < order.length; ++i) {
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Long.compare(lastModifieds[a], lastModifieds[b]));
+
+		for (int index : order) {
+			File file = files[index];
+
+			// Left by a crash while writing
+			if (file.getName().endsWith(TEMP_SUFFIX)) {
+				file.delete();
+				continue;
+			}
+			long fileSize = file.length();
+			entries.put(file.getName(), fileSize);
+			size += fileSize;
+		}
+
+		trimToSize(maxSize);
+	}
+
+	private static String fileNameOf(String key) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] hash = digest.digest(key.getBytes(Charset.forName("UTF-8")));
+			StringBuilder name = new StringBuilder(hash.length << 1);
+
+			for (byte b : hash) {
+				name.append(Character.forDigit((b >> 4) & 0xf, 16));
+				name.append(Character.forDigit(b & 0xf, 16));
+			}
+			return name.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			// Every platform has SHA-1
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -23,8 +23,9 @@ import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
 import tool.compet.core.graphic.DkBitmaps;
@@ -35,6 +36,10 @@ import static tool.compet.core.BuildConfig.DEBUG;
 /**
  * Thread-safeのメモリキャッシュクラスです。各オブジェクトには優先度と期限が付きますので、
  * キャッシュしたオブジェクトを優先度と期限によって削除できます。
+ * <p></p>
+ * Size-bounded LRU: when size exceeds max size, lower priority objects are removed first,
+ * and among same priority, least recently used ones first. Listeners are called inside
+ * the lock of this cache, on the thread which caused the removal.
  */
 public class DkLruCache {
 	public interface Listener {
@@ -45,12 +50,13 @@ public class DkLruCache {
 
 	private long size;
 	private long maxSize;
-	private TreeMap<String, Snapshot> cache;
+	// In access order, least recently used first
+	private LinkedHashMap<String, Snapshot> cache;
 	private ArrayList<Listener> listeners = new ArrayList<>();
 
 	private DkLruCache() {
 		maxSize = Runtime.getRuntime().maxMemory() >> 2;
-		cache = new TreeMap<>();
+		cache = new LinkedHashMap<>(16, 0.75f, true);
 
 		if (DEBUG) {
 			DkLogs.log(this, "Initial cache's maxSize: " + maxSize);
@@ -94,7 +100,18 @@ public class DkLruCache {
 		long more = snapshot.size;
 		removeExpiredObjects();
 
-		if (size + more >= maxSize) {
+		Snapshot old = cache.remove(key);
+		if (old != null) {
+			size -= old.size;
+
+			if (old.target != snapshot.target) {
+				for (Listener listener : listeners) {
+					listener.onRemoved(key, old);
+				}
+			}
+		}
+
+		if (size + more > maxSize) {
 			trimToSize(maxSize - more);
 		}
 		if (DEBUG) {
@@ -107,7 +124,7 @@ public class DkLruCache {
 	}
 
 	public synchronized void remove(String key) {
-		Snapshot snapshot = cache.get(key);
+		Snapshot snapshot = cache.remove(key);
 
 		if (snapshot != null) {
 			if (DEBUG) {
@@ -117,8 +134,6 @@ public class DkLruCache {
 			size -= snapshot.size;
 		}
 
-		cache.remove(key);
-
 		for (Listener listener : listeners) {
 			listener.onRemoved(key, snapshot);
 		}
@@ -129,12 +144,24 @@ public class DkLruCache {
 		Snapshot snapshot = cache.get(key);
 
 		if (snapshot != null) {
+			if (snapshot.isExpired(SystemClock.uptimeMillis())) {
+				remove(key);
+				return null;
+			}
 			return (T) snapshot.target;
 		}
 
 		return null;
 	}
 
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
 	/**
 	 * 優先度の昇順でnewSizeに下がるまでオブジェクトを削除していきます。
 	 */
@@ -145,14 +172,32 @@ public class DkLruCache {
 
 		long curSize = size;
 
-		// Remove low priority and older objects from start to end
-		while (curSize > newSize) {
-			Map.Entry<String, Snapshot> entry = cache.pollFirstEntry();
-			Snapshot snapshot = entry.getValue();
-			curSize -= snapshot.size;
+		if (curSize > newSize) {
+			TreeSet<Integer> priorities = new TreeSet<>();
+			for (Snapshot snapshot : cache.values()) {
+				priorities.add(snapshot.priority);
+			}
+
+			// Remove low priority objects first, least recently used first in same priority
+			for (int priority : priorities) {
+				Iterator<Map.Entry<String, Snapshot>> it = cache.entrySet().iterator();
+
+				while (curSize > newSize && it.hasNext()) {
+					Map.Entry<String, Snapshot> entry = it.next();
+					Snapshot snapshot = entry.getValue();
 
-			for (Listener listener : listeners) {
-				listener.onRemoved(entry.getKey(), snapshot);
+					if (snapshot.priority == priority) {
+						curSize -= snapshot.size;
+						it.remove();
+
+						for (Listener listener : listeners) {
+							listener.onRemoved(entry.getKey(), snapshot);
+						}
+					}
+				}
+				if (curSize <= newSize) {
+					break;
+				}
 			}
 		}
 		if (DEBUG) {
@@ -174,7 +219,7 @@ public class DkLruCache {
 			Map.Entry<String, Snapshot> entry = it.next();
 			Snapshot snapshot = entry.getValue();
 
-			if (snapshot.expiredTime >= now) {
+			if (snapshot.isExpired(now)) {
 				curSize -= snapshot.size;
 				it.remove();
 
@@ -191,13 +236,13 @@ public class DkLruCache {
 		size = curSize < 0 ? 0 : curSize;
 	}
 
-	public void register(Listener listener) {
+	public synchronized void register(Listener listener) {
 		if (!listeners.contains(listener)) {
 			listeners.add(listener);
 		}
 	}
 
-	public void unregister(Listener listener) {
+	public synchronized void unregister(Listener listener) {
 		listeners.remove(listener);
 	}
 
@@ -206,7 +251,7 @@ public class DkLruCache {
 		// 基本的に昇順で0から10までの数字で十分だと思います。
 		int priority;
 
-		// SystemClock.uptimeMillis()の時間、デフォルト値は無限値です。
+		// SystemClock.uptimeMillis()の時間、デフォルト値(0)は無限値です。
 		// 期限切れたものはキャッシュから削除されます
 		long expiredTime;
 
@@ -237,10 +282,14 @@ public class DkLruCache {
 		}
 
 		public Snapshot setExpiredTime(long duration, TimeUnit timeUnit) {
-			this.expiredTime = SystemClock.uptimeMillis() + timeUnit.toNanos(duration);
+			this.expiredTime = SystemClock.uptimeMillis() + timeUnit.toMillis(duration);
 			return this;
 		}
 
+		boolean isExpired(long uptimeMillis) {
+			return expiredTime > 0 && expiredTime <= uptimeMillis;
+		}
+
 		public Snapshot setSize(long size) {
 			this.size = size;
 			return this;
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2018 DarkCompet. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tool.compet.core.stream.observable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+import tool.compet.core.stream.scheduler.DkScheduler;
+
+/**
+ * Collects items of upper node into lists, and sends a list when it has max count of items,
+ * or (if duration is given) when duration passed since first item of the list.
+ * Empty lists are not sent. On completion, remaining items are sent before completion.
+ * <p></p>
+ * Each subscription has at most one scheduled timer, it is armed by first item of a list
+ * and re-arms itself for remaining time when it fires early. Lists which reach max count are sent
+ * on thread of upper node, lists which time out are sent on thread of the scheduler. Events are sent
+ * one at a time, never while holding the lock of the node (see {@link SerializedDownstream}).
+ */
+public class BufferObservable<T> extends DownstreamObservable<T, List<T>> {
+	private final int maxCount;
+	// Zero if lists are sent by count only
+	private final long durationNanos;
+	private final DkScheduler<T> scheduler;
+
+	BufferObservable(DkObservable<T> parent, int maxCount, long duration, TimeUnit unit, DkScheduler<T> scheduler) {
+		super(parent);
+		this.maxCount = maxCount;
+		this.durationNanos = unit.toNanos(duration);
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	protected void performSubscribe(DkObserver<List<T>> child) {
+		parent.subscribe(new BufferObserver<>(child, maxCount, durationNanos, scheduler));
+	}
+
+	static class BufferObserver<T> extends DkControllable<T> {
+		final DkObserver<List<T>> downstream;
+		final int maxCount;
+		final long durationNanos;
+		final DkScheduler<T> scheduler;
+		final SerializedDownstream<List<T>> events;
+
+		// Below are guarded by lock, events are offered inside the lock and sent after leaving it
+		private final Object lock = new Object();
+		private ArrayList<T> buffer;
+		// Time of first item of the buffer
+		private long startNanos;
+		private boolean isTimerArmed;
+		private boolean isTerminated;
+
+		BufferObserver(DkObserver<List<T>> child, int maxCount, long durationNanos, DkScheduler<T> scheduler) {
+			// Lists are sent to lower node by this node only
+			super(null);
+			this.downstream = child;
+			this.events = new SerializedDownstream<>(child);
+			this.maxCount = maxCount;
+			this.durationNanos = durationNanos;
+			this.scheduler = scheduler;
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+			attachParent(controllable);
+			downstream.onSubscribe(this);
+		}
+
+		/**
+		 * A list of count-only buffer needs max count of items. Demand of timed buffer is not served
+		 * since lists may be sent before full, upper node emits as fast as it can.
+		 */
+		@Override
+		public void request(long n) {
+			if (n <= 0 || durationNanos > 0) {
+				return;
+			}
+			long itemCount = n > UNBOUNDED / maxCount ? UNBOUNDED : n * maxCount;
+			super.request(itemCount);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptThread) {
+			boolean ok = super.cancel(mayInterruptThread);
+
+			synchronized (lock) {
+				isTerminated = true;
+				buffer = null;
+				stopTimerLocked();
+			}
+			return ok;
+		}
+
+		@Override
+		public void onNext(T item) {
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				if (buffer == null) {
+					buffer = new ArrayList<>(Math.min(maxCount, 16));
+					startNanos = System.nanoTime();
+
+					if (durationNanos > 0) {
+						armTimerLocked(durationNanos);
+					}
+				}
+				buffer.add(item);
+
+				if (buffer.size() >= maxCount) {
+					sendBufferLocked();
+				}
+			}
+			events.drain();
+		}
+
+		/**
+		 * Called when timer fires.
+		 */
+		@Override
+		public T call() {
+			synchronized (lock) {
+				isTimerArmed = false;
+
+				// Buffer was sent by count, next item arms the timer again
+				if (isTerminated || buffer == null) {
+					return null;
+				}
+
+				long remainingNanos = startNanos + durationNanos - System.nanoTime();
+				if (remainingNanos > 0) {
+					armTimerLocked(remainingNanos);
+				}
+				else {
+					sendBufferLocked();
+				}
+			}
+			events.drain();
+			return null;
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				isTerminated = true;
+				buffer = null;
+				stopTimerLocked();
+
+				events.offerError(e);
+			}
+			events.drain();
+		}
+
+		@Override
+		public void onComplete() {
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				isTerminated = true;
+				stopTimerLocked();
+				sendBufferLocked();
+
+				events.offerComplete();
+			}
+			events.drain();
+		}
+
+		@Override
+		public void onFinal() {
+			synchronized (lock) {
+				isTerminated = true;
+				buffer = null;
+				stopTimerLocked();
+
+				events.offerFinal();
+			}
+			events.drain();
+		}
+
+		private void sendBufferLocked() {
+			if (buffer != null) {
+				ArrayList<T> items = buffer;
+				buffer = null;
+				events.offerNext(items);
+			}
+		}
+
+		// Schedules the timer unless it is scheduled already
+		private void armTimerLocked(long delayNanos) {
+			if (isTimerArmed || isTerminated) {
+				return;
+			}
+			isTimerArmed = true;
+
+			try {
+				scheduler.schedule(this, delayNanos, TimeUnit.NANOSECONDS, false);
+			}
+			catch (Exception e) {
+				isTerminated = true;
+				isTimerArmed = false;
+				buffer = null;
+				events.offerError(e);
+			}
+		}
+
+		private void stopTimerLocked() {
+			if (isTimerArmed) {
+				isTimerArmed = false;
+				scheduler.cancel(this, false);
+			}
+		}
+	}
+}
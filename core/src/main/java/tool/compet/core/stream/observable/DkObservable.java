@@ -16,6 +16,7 @@
 
 package tool.compet.core.stream.observable;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
@@ -119,7 +120,8 @@ public abstract class DkObservable<T> {
     * pass result R to lower node.
     */
    public <R> DkObservable<R> map(DkThrowableFunction<T, R> function) {
-      return new MapObservable<>(this, function);
+      DkObservable<R> fused = FusedObservable.map(this, function);
+      return fused != null ? fused : new MapObservable<>(this, function);
    }
 
    /**
@@ -127,7 +129,8 @@ public abstract class DkObservable<T> {
     * NULL param to lower node. So even though succeed or fail, stream will be switched to #onNext() at this node.
     */
    public DkObservable<T> tryCatch() {
-      return new TryCatchObservable<>(this);
+      DkObservable<T> fused = FusedObservable.tryCatch(this);
+      return fused != null ? fused : new TryCatchObservable<>(this);
    }
 
    /**
@@ -141,10 +144,134 @@ public abstract class DkObservable<T> {
       return new FlatMapObservable<>(this, function);
    }
 
+   /**
+    * Buffers items which come while lower node has no demand (see {@link DkControllable#request(long)}),
+    * and sends them when requested. If more than given capacity of items are waiting, the stream is
+    * cancelled and lower node receives #onError().
+    */
+   public DkObservable<T> onBackpressureBuffer(int capacity) {
+      return new OnBackpressureObservable<>(this, OnBackpressureObservable.MODE_BUFFER, capacity);
+   }
+
+   /**
+    * Drops items which come while lower node has no demand (see {@link DkControllable#request(long)}).
+    */
+   public DkObservable<T> onBackpressureDrop() {
+      return new OnBackpressureObservable<>(this, OnBackpressureObservable.MODE_DROP, 0);
+   }
+
+   /**
+    * Keeps only latest item which comes while lower node has no demand (see {@link DkControllable#request(long)}),
+    * and sends it when requested. It is useful to show progress on main thread without flooding it.
+    */
+   public DkObservable<T> onBackpressureLatest() {
+      return new OnBackpressureObservable<>(this, OnBackpressureObservable.MODE_LATEST, 1);
+   }
+
+   /**
+    * Like #flatMap() but subscribes at most given number of converted observables at once,
+    * in background. Items are sent to lower node in order of arrival.
+    */
+   public <R> DkObservable<R> flatMap(DkThrowableFunction<T, DkObservable<R>> function, int maxConcurrency) {
+      return flatMap(function, maxConcurrency, DkSchedulers.io());
+   }
+
+   /**
+    * Like #flatMap() but subscribes at most given number of converted observables at once,
+    * on given scheduler. Items are sent to lower node in order of arrival.
+    */
+   public <R> DkObservable<R> flatMap(DkThrowableFunction<T, DkObservable<R>> function, int maxConcurrency, DkScheduler<R> scheduler) {
+      return new ParallelFlatMapObservable<>(this, function, maxConcurrency, false, scheduler);
+   }
+
+   /**
+    * Subscribes at most given number of converted observables at once in background, but sends
+    * their items to lower node in order of upper items, for eg,. to fetch items of an id list
+    * in parallel and show them in order of the list.
+    */
+   public <R> DkObservable<R> concatMapEager(DkThrowableFunction<T, DkObservable<R>> function, int maxConcurrency) {
+      return concatMapEager(function, maxConcurrency, DkSchedulers.io());
+   }
+
+   /**
+    * Like {@link #concatMapEager(DkThrowableFunction, int)} but subscribes converted observables on given scheduler.
+    */
+   public <R> DkObservable<R> concatMapEager(DkThrowableFunction<T, DkObservable<R>> function, int maxConcurrency, DkScheduler<R> scheduler) {
+      return new ParallelFlatMapObservable<>(this, function, maxConcurrency, true, scheduler);
+   }
+
    public DkObservable<T> delay(long duration, TimeUnit unit) {
       return new DelayObservable<>(this, unit.toMillis(duration));
    }
 
+   /**
+    * Collects items into lists of given count, the last list may be shorter.
+    */
+   public DkObservable<List<T>> buffer(int count) {
+      return new BufferObservable<>(this, count, 0, TimeUnit.NANOSECONDS, null);
+   }
+
+   /**
+    * Collects items into lists, and sends a list when given duration passed since its first item,
+    * or when it has given max count of items. Lists are timed in background.
+    */
+   public DkObservable<List<T>> buffer(long duration, TimeUnit unit, int maxCount) {
+      return buffer(duration, unit, maxCount, DkSchedulers.io());
+   }
+
+   /**
+    * Like {@link #buffer(long, TimeUnit, int)} but lists are timed on given scheduler.
+    */
+   public DkObservable<List<T>> buffer(long duration, TimeUnit unit, int maxCount, DkScheduler<T> scheduler) {
+      return new BufferObservable<>(this, maxCount, duration, unit, scheduler);
+   }
+
+   /**
+    * Sends an item only when no other item came for given duration after it, for eg,. to search
+    * when user stopped typing. Items are sent in background.
+    */
+   public DkObservable<T> debounce(long duration, TimeUnit unit) {
+      return debounce(duration, unit, DkSchedulers.io());
+   }
+
+   public DkObservable<T> debounce(long duration, TimeUnit unit, DkScheduler<T> scheduler) {
+      return new ThrottleObservable<>(this, ThrottleObservable.MODE_DEBOUNCE, duration, unit, scheduler);
+   }
+
+   /**
+    * Sends an item, then ignores items for given duration, for eg,. to ignore double clicks.
+    */
+   public DkObservable<T> throttleFirst(long duration, TimeUnit unit) {
+      return throttleFirst(duration, unit, DkSchedulers.io());
+   }
+
+   public DkObservable<T> throttleFirst(long duration, TimeUnit unit, DkScheduler<T> scheduler) {
+      return new ThrottleObservable<>(this, ThrottleObservable.MODE_THROTTLE_FIRST, duration, unit, scheduler);
+   }
+
+   /**
+    * Sends latest item at end of given duration which starts at an item, so a burst of items
+    * produces one item per duration. Items are sent in background.
+    */
+   public DkObservable<T> throttleLast(long duration, TimeUnit unit) {
+      return throttleLast(duration, unit, DkSchedulers.io());
+   }
+
+   public DkObservable<T> throttleLast(long duration, TimeUnit unit, DkScheduler<T> scheduler) {
+      return new ThrottleObservable<>(this, ThrottleObservable.MODE_THROTTLE_LAST, duration, unit, scheduler);
+   }
+
+   /**
+    * Sends latest item (if a new one came) at each given period while subscribed. Items are sent in background.
+    */
+   public DkObservable<T> sample(long period, TimeUnit unit) {
+      return sample(period, unit, DkSchedulers.io());
+   }
+
+   public DkObservable<T> sample(long period, TimeUnit unit, DkScheduler<T> scheduler) {
+      return new ThrottleObservable<>(this, ThrottleObservable.MODE_SAMPLE, period, unit, scheduler);
+   }
+
    public DkObservable<T> scheduleInBackground() {
       return scheduleIn(DkSchedulers.io(), 0, TimeUnit.MILLISECONDS, false);
    }
@@ -171,6 +298,11 @@ public abstract class DkObservable<T> {
       return new ScheduleOnObservable<>(this, scheduler, delay, unit, isSerial);
    }
 
+   /**
+    * Sends events to lower node on given scheduler. Note that upper items after first
+    * {@link ObserveOnObservable#PREFETCH} ones are requested from given scheduler, so an upper node which
+    * emits on requesting thread (for eg,. #from()) runs there unless #scheduleIn() is above this node.
+    */
    public DkObservable<T> observeOn(DkScheduler<T> scheduler) {
       return observeOn(scheduler, 0L, TimeUnit.MILLISECONDS, true);
    }
@@ -211,7 +343,8 @@ public abstract class DkObservable<T> {
     * this function does not affect flow of current stream even if action throws exception.
     */
    public DkObservable<T> doOnNext(DkThrowableCallback<T> action) {
-      return new OnNextObservable<>(this, action);
+      DkObservable<T> fused = FusedObservable.doOnNext(this, action);
+      return fused != null ? fused : new OnNextObservable<>(this, action);
    }
 
    /**
@@ -16,12 +16,31 @@
 
 package tool.compet.core.stream.observable;
 
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import tool.compet.core.stream.function.DkThrowableFunction;
-import tool.compet.core.stream.observer.AbsFlatMapObserver;
-import tool.compet.core.stream.observer.DkObserver;
 import tool.compet.core.stream.observer.DkBenchMarkObserver;
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
 
+import static tool.compet.core.BuildConfig.DEBUG;
+
+/**
+ * Converts each item of upper node to an inner observable, and subscribes it at once on thread
+ * of upper node. Items of inners are sent to lower node as they come.
+ * <p></p>
+ * Number of items changes at this node, so demand of lower node (see {@link DkControllable#request(long)})
+ * is not forwarded: upper node is requested {@link #MAX_INNERS} items at first, and one more each time
+ * an inner finished.
+ * <p></p>
+ * First error from upper node or an inner cancels the others and is sent to lower node at once.
+ * #onComplete() and #onFinal() are sent once, after upper node and all inners finished.
+ */
 public class FlatMapObservable<T, R> extends DownstreamObservable<T, R> {
+	// Inners which run at once when upper node supports demand
+	public static final int MAX_INNERS = 128;
+
 	private final DkThrowableFunction<T, DkObservable<R>> converter;
 
 	FlatMapObservable(DkObservable<T> parent, DkThrowableFunction<T, DkObservable<R>> converter) {
@@ -34,30 +53,195 @@ public class FlatMapObservable<T, R> extends DownstreamObservable<T, R> {
 		parent.subscribe(new FlatMapObserver<>(child, converter));
 	}
 
-	static class FlatMapObserver<T, R> extends AbsFlatMapObserver<T, R> {
+	static class FlatMapObserver<T, R> extends DkControllable<T> {
+		final DkObserver<R> downstream;
 		final DkThrowableFunction<T, DkObservable<R>> converter;
+		// Controllable which serves demand of this node
+		volatile DkControllable upstream;
+
+		// Upper node and inners which did not finish yet, terminal events are sent when it reaches 0
+		private final AtomicInteger activeCount = new AtomicInteger(1);
+		private volatile boolean isUpstreamComplete;
+
+		// Below are guarded by lock
+		private final Object lock = new Object();
+		private final ArrayList<InnerObserver> activeInners = new ArrayList<>();
+		private Throwable error;
 
 		FlatMapObserver(DkObserver<R> child, DkThrowableFunction<T, DkObservable<R>> converter) {
-			super(child);
+			// Items are sent to lower node by inners
+			super(null);
+			this.downstream = child;
 			this.converter = converter;
 		}
 
 		@Override
-		public void onNext(T result) {
+		public void onSubscribe(DkControllable controllable) {
+			attachParent(controllable);
+
+			// This may be called many times, only request first controllable
+			if (upstream == null && controllable != null) {
+				upstream = controllable;
+				controllable.request(MAX_INNERS);
+			}
+
+			downstream.onSubscribe(this);
+		}
+
+		/**
+		 * Demand of lower node is not served, upper node is requested per finished inner.
+		 */
+		@Override
+		public void request(long n) {
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptThread) {
+			boolean ok = super.cancel(mayInterruptThread);
+			cancelInners(mayInterruptThread);
+			return ok;
+		}
+
+		@Override
+		public void onNext(T item) {
+			if (isStopped()) {
+				return;
+			}
+
+			DkObservable<R> observable;
 			try {
-				DkObservable<R> nextObservable = converter.apply(result);
+				observable = converter.apply(item);
+			}
+			catch (Exception e) {
+				fail(e);
+				return;
+			}
+
+			// If converter null, we can considere this flatMap is normal map
+			if (observable == null) {
+				downstream.onNext(null);
+				requestNext();
+				return;
+			}
+
+			InnerObserver inner = new InnerObserver();
+			synchronized (lock) {
+				activeInners.add(inner);
+			}
+			activeCount.incrementAndGet();
+
+			// Run on same thread with upper node
+			observable.subscribe(DEBUG ? new DkBenchMarkObserver<>(inner) : inner);
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			fail(e);
+		}
+
+		@Override
+		public void onComplete() {
+			isUpstreamComplete = true;
+		}
 
-				// If converter null, we can considere this flatMap is normal map
-				if (nextObservable == null) {
-					child.onNext(null);
+		@Override
+		public void onFinal() {
+			finishOne();
+		}
+
+		private boolean isStopped() {
+			synchronized (lock) {
+				return error != null || isCancel;
+			}
+		}
+
+		private void requestNext() {
+			DkControllable upstream = this.upstream;
+			if (upstream != null && !isStopped()) {
+				upstream.request(1);
+			}
+		}
+
+		private void fail(Throwable e) {
+			synchronized (lock) {
+				if (error != null) {
 					return;
 				}
+				error = e;
+			}
 
-				// Run on same thread with upper node
-				nextObservable.subscribe(new DkBenchMarkObserver<>(child));
+			DkControllable parent = this.parent;
+			if (parent != null) {
+				parent.cancel(false);
 			}
-			catch (Exception e) {
-				child.onError(e);
+			cancelInners(false);
+
+			downstream.onError(e);
+		}
+
+		private void cancelInners(boolean mayInterruptThread) {
+			ArrayList<InnerObserver> inners;
+			synchronized (lock) {
+				inners = new ArrayList<>(activeInners);
+			}
+			for (InnerObserver inner : inners) {
+				DkControllable controllable = inner.controllable;
+				if (controllable != null) {
+					controllable.cancel(mayInterruptThread);
+				}
+			}
+		}
+
+		// Called when upper node or an inner finished, last one sends terminal events
+		private void finishOne() {
+			if (activeCount.decrementAndGet() != 0) {
+				return;
+			}
+
+			boolean isComplete;
+			synchronized (lock) {
+				isComplete = isUpstreamComplete && error == null && !isCancel;
+			}
+			if (isComplete) {
+				downstream.onComplete();
+			}
+			downstream.onFinal();
+		}
+
+		class InnerObserver implements DkObserver<R> {
+			volatile DkControllable controllable;
+
+			@Override
+			public void onSubscribe(DkControllable controllable) {
+				if (this.controllable == null) {
+					this.controllable = controllable;
+				}
+			}
+
+			@Override
+			public void onNext(R item) {
+				if (!isStopped()) {
+					downstream.onNext(item);
+				}
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				fail(e);
+			}
+
+			@Override
+			public void onComplete() {
+			}
+
+			@Override
+			public void onFinal() {
+				synchronized (lock) {
+					activeInners.remove(this);
+				}
+				// Free slot is given to next upper item
+				requestNext();
+				finishOne();
 			}
 		}
 	}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2018 DarkCompet. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tool.compet.core.stream.observable;
+
+import tool.compet.core.stream.function.DkThrowableCallback;
+import tool.compet.core.stream.function.DkThrowableFunction;
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+import tool.compet.core.util.DkLogs;
+
+/**
+ * Adjacent stateless nodes (#map(), #doOnNext(), #tryCatch()) collapsed at assembly time into one node,
+ * so a long chain subscribes one observer instead of one per node, and an item passes the nodes
+ * in a loop instead of a virtual call per node. Events behave same as in separated nodes.
+ */
+public class FusedObservable<T> extends DkObservable<T> {
+	private static final int MAP = 1;
+	private static final int ON_NEXT = 2;
+	private static final int TRY_CATCH = 3;
+
+	// Upper node which is not fusable
+	private final DkObservable<?> source;
+	// Kinds of collapsed nodes from upper to lower, and their functions at same index.
+	// Functions are kept in typed arrays since casting them per item is costly
+	private final int[] kinds;
+	private final DkThrowableFunction[] mappers;
+	private final DkThrowableCallback[] actions;
+
+	private FusedObservable(DkObservable<?> source, int[] kinds, DkThrowableFunction[] mappers, DkThrowableCallback[] actions) {
+		this.source = source;
+		this.kinds = kinds;
+		this.mappers = mappers;
+		this.actions = actions;
+	}
+
+	/**
+	 * @return fused node of given parent and a map node, or null if parent is not fusable.
+	 */
+	static <T, R> DkObservable<R> map(DkObservable<T> parent, DkThrowableFunction<T, R> function) {
+		return append(parent, MAP, function);
+	}
+
+	/**
+	 * @return fused node of given parent and a doOnNext node, or null if parent is not fusable.
+	 */
+	static <T> DkObservable<T> doOnNext(DkObservable<T> parent, DkThrowableCallback<T> action) {
+		return append(parent, ON_NEXT, action);
+	}
+
+	/**
+	 * @return fused node of given parent and a tryCatch node, or null if parent is not fusable.
+	 */
+	static <T> DkObservable<T> tryCatch(DkObservable<T> parent) {
+		return append(parent, TRY_CATCH, null);
+	}
+
+	private static <R> DkObservable<R> append(DkObservable<?> parent, int kind, Object function) {
+		DkObservable<?> source;
+		int count;
+
+		if (parent instanceof FusedObservable) {
+			source = ((FusedObservable<?>) parent).source;
+			count = ((FusedObservable<?>) parent).kinds.length + 1;
+		}
+		else if (parent instanceof MapObservable) {
+			source = ((MapObservable<?, ?>) parent).parent;
+			count = 2;
+		}
+		else if (parent instanceof OnNextObservable || parent instanceof TryCatchObservable) {
+			source = parent.parent;
+			count = 2;
+		}
+		else {
+			return null;
+		}
+
+		// Nodes are immutable since they may be subscribed many times, so copy
+		int[] kinds = new int[count];
+		DkThrowableFunction[] mappers = new DkThrowableFunction[count];
+		DkThrowableCallback[] actions = new DkThrowableCallback[count];
+
+		if (parent instanceof FusedObservable) {
+			FusedObservable<?> fused = (FusedObservable<?>) parent;
+			System.arraycopy(fused.kinds, 0, kinds, 0, count - 1);
+			System.arraycopy(fused.mappers, 0, mappers, 0, count - 1);
+			System.arraycopy(fused.actions, 0, actions, 0, count - 1);
+		}
+		else if (parent instanceof MapObservable) {
+			kinds[0] = MAP;
+			mappers[0] = ((MapObservable<?, ?>) parent).converter;
+		}
+		else if (parent instanceof OnNextObservable) {
+			kinds[0] = ON_NEXT;
+			actions[0] = ((OnNextObservable<?>) parent).action;
+		}
+		else {
+			kinds[0] = TRY_CATCH;
+		}
+
+		kinds[count - 1] = kind;
+		if (kind == MAP) {
+			mappers[count - 1] = (DkThrowableFunction) function;
+		}
+		else if (kind == ON_NEXT) {
+			actions[count - 1] = (DkThrowableCallback) function;
+		}
+
+		return new FusedObservable<>(source, kinds, mappers, actions);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void performSubscribe(DkObserver<T> child) {
+		((DkObservable<Object>) source).subscribe(new FusedObserver<>(child, kinds, mappers, actions));
+	}
+
+	static class FusedObserver<R> implements DkObserver<Object> {
+		final DkObserver<R> child;
+		final int[] kinds;
+		final DkThrowableFunction[] mappers;
+		final DkThrowableCallback[] actions;
+
+		FusedObserver(DkObserver<R> child, int[] kinds, DkThrowableFunction[] mappers, DkThrowableCallback[] actions) {
+			this.child = child;
+			this.kinds = kinds;
+			this.mappers = mappers;
+			this.actions = actions;
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+			child.onSubscribe(controllable);
+		}
+
+		@Override
+		public void onNext(Object item) {
+			onNextFrom(0, item);
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			onErrorFrom(0, e);
+		}
+
+		@Override
+		public void onComplete() {
+			child.onComplete();
+		}
+
+		@Override
+		public void onFinal() {
+			child.onFinal();
+		}
+
+		// Passes given item to nodes from given index
+		@SuppressWarnings("unchecked")
+		private void onNextFrom(int start, Object item) {
+			final int[] kinds = this.kinds;
+			final DkThrowableFunction[] mappers = this.mappers;
+			final DkThrowableCallback[] actions = this.actions;
+			// Last passed map node, like separated map node it sends failure of itself
+			// and lower nodes as error to lower nodes
+			int catcher = -1;
+
+			try {
+				for (int index = start, count = kinds.length; index < count; ++index) {
+					DkThrowableFunction mapper = mappers[index];
+					if (mapper != null) {
+						catcher = index;
+						item = mapper.apply(item);
+						continue;
+					}
+					DkThrowableCallback action = actions[index];
+					if (action != null) {
+						try {
+							action.call(item);
+						}
+						catch (Exception e) {
+							DkLogs.logex(this, e);
+						}
+					}
+				}
+
+				child.onNext((R) item);
+			}
+			catch (Exception e) {
+				onFailure(start, catcher, e);
+			}
+		}
+
+		// Sends failure to nodes below catcher, and failure of that to nodes below upper map node
+		private void onFailure(int start, int catcher, Exception e) {
+			while (true) {
+				if (catcher < 0) {
+					// Only unchecked exception can come here, from child which has no map node above
+					throw (RuntimeException) e;
+				}
+				try {
+					onErrorFrom(catcher + 1, e);
+					return;
+				}
+				catch (RuntimeException lowerError) {
+					e = lowerError;
+					do {
+						--catcher;
+					}
+					while (catcher >= start && kinds[catcher] != MAP);
+
+					if (catcher < start) {
+						catcher = -1;
+					}
+				}
+			}
+		}
+
+		// Passes given error to nodes from given index, first tryCatch node switches it to null item
+		private void onErrorFrom(int index, Throwable e) {
+			for (int count = kinds.length; index < count; ++index) {
+				if (kinds[index] == TRY_CATCH) {
+					onNextFrom(index + 1, null);
+					return;
+				}
+			}
+			child.onError(e);
+		}
+	}
+}
@@ -19,11 +19,11 @@ package tool.compet.core.stream.observable;
 import java.util.Arrays;
 import java.util.Collections;
 
+import tool.compet.core.stream.observable.GodIterableObservable.DkIterableObserver;
 import tool.compet.core.stream.observer.DkObserver;
-import tool.compet.core.stream.observer.DkControllable;
 
 /**
- * God observable node.
+ * God observable node. Like {@link GodIterableObservable}, it supports flow control.
  */
 public class GodArrayObservable<T> extends DkObservable<T> {
 	private final Iterable<T> items;
@@ -38,46 +38,7 @@ public class GodArrayObservable<T> extends DkObservable<T> {
 
 	@Override
 	protected void performSubscribe(DkObserver<T> child) {
-		ArrayObserver<T> wrapper = new ArrayObserver<>(child);
+		DkIterableObserver<T> wrapper = new DkIterableObserver<>(child);
 		wrapper.start(items);
 	}
-
-	static class ArrayObserver<T> extends DkControllable<T> {
-		ArrayObserver(DkObserver<T> child) {
-			super(child);
-		}
-
-		void start(Iterable<T> items) {
-			try {
-				onSubscribe(this);
-
-				if (isCancel) {
-					isCanceled = true;
-					return;
-				}
-
-				for (T item : items) {
-					if (isCancel) {
-						isCanceled = true;
-						return;
-					}
-					onNext(item);
-				}
-
-				onComplete();
-			}
-			catch (Exception e) {
-				onError(e);
-			}
-			finally {
-				onFinal();
-			}
-		}
-
-		@Override
-		public void onSubscribe(DkControllable controllable) {
-			parent = null;
-			child.onSubscribe(controllable);
-		}
-	}
 }
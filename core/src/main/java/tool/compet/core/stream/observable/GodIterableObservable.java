@@ -16,11 +16,17 @@
 
 package tool.compet.core.stream.observable;
 
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import tool.compet.core.stream.observer.DkObserver;
 import tool.compet.core.stream.observer.DkControllable;
 
 /**
- * God observable node.
+ * God observable node. It supports flow control: if child requests items via
+ * {@link DkControllable#request(long)} while subscribing, items are emitted only when requested,
+ * on the thread which requested them, otherwise all items are emitted at once.
  */
 public class GodIterableObservable<T> extends DkObservable<T> {
 	private final Iterable<T> items;
@@ -36,6 +42,16 @@ public class GodIterableObservable<T> extends DkObservable<T> {
 	}
 
 	static class DkIterableObserver<T> extends DkControllable<T> implements DkObserver<T> {
+		// Items requested but not emitted yet
+		private final AtomicLong requested = new AtomicLong();
+		// Number of drain calls which were missed while draining, serializes emission
+		private final AtomicInteger wip = new AtomicInteger();
+		private volatile boolean isFlowControlled;
+		private volatile boolean isStarted;
+		// Below are accessed only inside start() or drain()
+		private Iterator<T> iterator;
+		private boolean isDone;
+
 		DkIterableObserver(DkObserver<T> child) {
 			super(child);
 		}
@@ -46,15 +62,70 @@ public class GodIterableObservable<T> extends DkObservable<T> {
 
 				if (isCancel) {
 					isCanceled = true;
+					onFinal();
 					return;
 				}
 
-				for (T item : items) {
+				iterator = items.iterator();
+			}
+			catch (Exception e) {
+				onError(e);
+				onFinal();
+				return;
+			}
+
+			if (isFlowControlled) {
+				isStarted = true;
+				drain();
+			}
+			else {
+				emitAll();
+			}
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+			parent = null;
+			child.onSubscribe(controllable);
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				return;
+			}
+			long current;
+			do {
+				current = requested.get();
+			}
+			while (!requested.compareAndSet(current, addRequested(current, n)));
+
+			isFlowControlled = true;
+
+			if (isStarted) {
+				drain();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptThread) {
+			boolean ok = super.cancel(mayInterruptThread);
+
+			// Finish now if waiting for demand, since maybe nobody requests anymore
+			if (isStarted) {
+				drain();
+			}
+			return ok;
+		}
+
+		private void emitAll() {
+			try {
+				while (iterator.hasNext()) {
 					if (isCancel) {
 						isCanceled = true;
-						break;
+						return;
 					}
-					child.onNext(item);
+					child.onNext(iterator.next());
 				}
 
 				child.onComplete();
@@ -67,10 +138,74 @@ public class GodIterableObservable<T> extends DkObservable<T> {
 			}
 		}
 
-		@Override
-		public void onSubscribe(DkControllable controllable) {
-			parent = null;
-			child.onSubscribe(controllable);
+		// Emits requested items, only one thread emits at a time
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+
+			try {
+				while (true) {
+					long n = requested.get();
+					long emitted = 0;
+
+					while (true) {
+						if (isCancel) {
+							isCanceled = true;
+							finish(false);
+							return;
+						}
+						if (emitted == n) {
+							break;
+						}
+						if (!iterator.hasNext()) {
+							finish(true);
+							return;
+						}
+						child.onNext(iterator.next());
+						++emitted;
+					}
+
+					// Complete without waiting for next request
+					if (!iterator.hasNext()) {
+						finish(true);
+						return;
+					}
+					if (n != UNBOUNDED) {
+						requested.addAndGet(-emitted);
+					}
+
+					missed = wip.addAndGet(-missed);
+					if (missed == 0) {
+						return;
+					}
+				}
+			}
+			catch (Exception e) {
+				if (!isDone) {
+					isDone = true;
+					onError(e);
+					onFinal();
+				}
+			}
+		}
+
+		// Note that wip is left non-zero, so later requests do nothing
+		private void finish(boolean isComplete) {
+			isDone = true;
+
+			try {
+				if (isComplete) {
+					child.onComplete();
+				}
+			}
+			catch (Exception e) {
+				onError(e);
+			}
+			finally {
+				onFinal();
+			}
 		}
 	}
 }
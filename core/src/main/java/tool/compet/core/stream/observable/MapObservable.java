@@ -21,7 +21,7 @@ import tool.compet.core.stream.observer.AbsMapObserver;
 import tool.compet.core.stream.observer.DkObserver;
 
 public class MapObservable<T, R> extends DownstreamObservable<T, R> {
-	private final DkThrowableFunction<T, R> converter;
+	final DkThrowableFunction<T, R> converter;
 
 	MapObservable(DkObservable<T> parent, DkThrowableFunction<T, R> converter) {
 		super(parent);
@@ -17,6 +17,7 @@
 package tool.compet.core.stream.observable;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import tool.compet.core.stream.observer.DkObserver;
 import tool.compet.core.stream.observer.DkControllable;
@@ -24,7 +25,29 @@ import tool.compet.core.stream.observer.Observer;
 import tool.compet.core.stream.scheduler.DkScheduler;
 import tool.compet.core.util.DkLogs;
 
+/**
+ * Sends events to lower node on given scheduler. To bound number of items which wait on the scheduler
+ * (for eg,. posted to main thread), it requests {@link #PREFETCH} items from upper node,
+ * and requests more when lower node received some of them.
+ * <p></p>
+ * Items are queued, and one drain task on the scheduler sends them in batches (at most
+ * {@link #MAX_BATCH} items or {@link #TIME_SLICE_NANOS} per hop, then it yields the thread),
+ * so cost of switching thread is paid per batch, not per item. Events are sent in order,
+ * #onFinal() after all items. Upper node must send #onFinal() once, after all of its items.
+ * <p></p>
+ * Requests after the first {@link #PREFETCH} items are made by the drain task. Upper nodes which emit
+ * on thread which requests (for eg,. iterable God node) then emit, and run nodes between them and
+ * this node, on given scheduler. Put #scheduleIn() above this node to keep that work on its scheduler.
+ */
 public class ObserveOnObservable<T> extends DkObservable<T> {
+	public static final int PREFETCH = 128;
+	// Upper node is requested again when this number of items were received by lower node
+	private static final int REPLENISH = PREFETCH - (PREFETCH >> 2);
+
+	public static final int MAX_BATCH = PREFETCH;
+	// Leaves room for drawing a frame when draining on main thread
+	public static final long TIME_SLICE_NANOS = 4_000_000;
+
 	private final DkScheduler<T> scheduler;
 	private final long delay;
 	private final TimeUnit timeUnit;
@@ -48,6 +71,22 @@ public class ObserveOnObservable<T> extends DkObservable<T> {
 		final long delay;
 		final TimeUnit timeUnit;
 		final boolean isSerial;
+		// Controllable which serves demand of this node
+		volatile DkControllable upstream;
+
+		// Upper node is producer, drain task is consumer. Upper node may send items from many threads
+		// (for eg,. inners of flatMap which run on other schedulers), so producers take turns on the queue.
+		final SpscLinkedQueue<T> queue = new SpscLinkedQueue<>(PREFETCH);
+		// Number of drain requests which were missed while draining, non-zero while drain task is scheduled
+		final AtomicInteger wip = new AtomicInteger();
+		final Runnable drainTask = this::drain;
+		volatile boolean isDone;
+		volatile Throwable error;
+		volatile boolean isFinalReceived;
+
+		// Below are accessed by drain task only
+		boolean isTerminalSent;
+		int consumed;
 
 		ObserveOnObserver(DkObserver<T> child, DkScheduler<T> scheduler, long delay, TimeUnit timeUnit, boolean isSerial) {
 			super(child);
@@ -59,6 +98,12 @@ public class ObserveOnObservable<T> extends DkObservable<T> {
 
 		@Override
 		public void onSubscribe(DkControllable controllable) {
+			// This may be called many times, only request first controllable
+			if (upstream == null && controllable != null) {
+				upstream = controllable;
+				controllable.request(PREFETCH);
+			}
+
 			try {
 				scheduler.schedule(() -> child.onSubscribe(controllable), delay, timeUnit, isSerial);
 			}
@@ -69,28 +114,113 @@ public class ObserveOnObservable<T> extends DkObservable<T> {
 
 		@Override
 		public void onNext(T result) {
-			try {
-				scheduler.schedule(() -> child.onNext(result), delay, timeUnit, isSerial);
-			}
-			catch (Exception e) {
-				DkLogs.logex(this, e);
+			synchronized (queue) {
+				queue.offer(result);
 			}
+			scheduleDrain();
 		}
 
 		@Override
 		public void onError(Throwable throwable) {
+			error = throwable;
+			isDone = true;
+			scheduleDrain();
+		}
+
+		@Override
+		public void onComplete() {
+			isDone = true;
+			scheduleDrain();
+		}
+
+		@Override
+		public void onFinal() {
+			isFinalReceived = true;
+			scheduleDrain();
+		}
+
+		private void scheduleDrain() {
+			if (wip.getAndIncrement() == 0) {
+				schedule();
+			}
+		}
+
+		private void schedule() {
 			try {
-				scheduler.scheduleNow(() -> child.onError(throwable), isSerial);
+				scheduler.schedule(drainTask, delay, timeUnit, isSerial);
 			}
 			catch (Exception e) {
 				DkLogs.logex(this, e);
 			}
 		}
 
-		@Override
-		public void onComplete() {
+		// Runs on scheduler
+		private void drain() {
+			int missed = 1;
+			int emitted = 0;
+			long startTime = System.nanoTime();
+
+			while (true) {
+				while (true) {
+					DkControllable upstream = this.upstream;
+					if (upstream != null && upstream.isCanceled()) {
+						queue.clear();
+					}
+
+					// Read in order of events, so after final was received nothing is missed
+					boolean isFinal = isFinalReceived;
+					boolean done = isDone;
+					Object value = queue.poll();
+
+					if (value == null) {
+						if (done && !isTerminalSent) {
+							isTerminalSent = true;
+							sendTerminal();
+						}
+						if (isFinal) {
+							// Leave wip non-zero, so nothing is scheduled anymore
+							child.onFinal();
+							return;
+						}
+						break;
+					}
+
+					try {
+						child.onNext(SpscLinkedQueue.unwrap(value));
+					}
+					catch (Exception e) {
+						DkLogs.logex(this, e);
+					}
+
+					if (++consumed == REPLENISH && upstream != null) {
+						consumed = 0;
+						upstream.request(REPLENISH);
+					}
+
+					// Yield the thread, drain is continued in next hop. Since wip is left non-zero,
+					// upper node does not schedule another drain meanwhile.
+					if (++emitted == MAX_BATCH || ((emitted & 15) == 0 && System.nanoTime() - startTime > TIME_SLICE_NANOS)) {
+						schedule();
+						return;
+					}
+				}
+
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		private void sendTerminal() {
+			Throwable error = this.error;
 			try {
-				scheduler.scheduleNow(child::onComplete, isSerial);
+				if (error != null) {
+					child.onError(error);
+				}
+				else {
+					child.onComplete();
+				}
 			}
 			catch (Exception e) {
 				DkLogs.logex(this, e);
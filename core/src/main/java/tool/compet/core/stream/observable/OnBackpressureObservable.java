@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2018 DarkCompet. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tool.compet.core.stream.observable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+
+/**
+ * Lets a lower node which requests items (via {@link DkControllable#request(long)}) follow an upper node
+ * which emits as fast as it can. Items which come while lower node has no demand are buffered up to
+ * a capacity, dropped, or replaced by latest one depends on mode. If lower node never requests,
+ * items are passed through.
+ * <p></p>
+ * Items are sent to lower node on thread of upper node, or on thread which requests them.
+ */
+public class OnBackpressureObservable<T> extends DkObservable<T> {
+	// Buffer items, fail with error when buffer is full
+	static final int MODE_BUFFER = 1;
+	// Drop items which come without demand
+	static final int MODE_DROP = 2;
+	// Keep only latest item which comes without demand
+	static final int MODE_LATEST = 3;
+
+	private final int mode;
+	private final int capacity;
+
+	OnBackpressureObservable(DkObservable<T> parent, int mode, int capacity) {
+		super(parent);
+		this.mode = mode;
+		this.capacity = capacity;
+	}
+
+	@Override
+	protected void performSubscribe(DkObserver<T> child) {
+		parent.subscribe(new OnBackpressureObserver<>(child, mode, capacity));
+	}
+
+	static class OnBackpressureObserver<T> extends DkControllable<T> {
+		// Stands for null item in the queue
+		private static final Object NULL = new Object();
+
+		final int mode;
+		final int capacity;
+
+		// Below are guarded by lock
+		private final Object lock = new Object();
+		private final ArrayDeque<Object> queue = new ArrayDeque<>();
+		// Items requested by lower node but not sent yet
+		private long requested = UNBOUNDED;
+		private boolean isFlowControlled;
+		private boolean isTerminated;
+		private Throwable error;
+		private boolean isFinalReceived;
+		private boolean isTerminalSent;
+		private boolean isFinished;
+
+		// Number of drain calls which were missed while draining, serializes sending
+		private final AtomicInteger wip = new AtomicInteger();
+
+		OnBackpressureObserver(DkObserver<T> child, int mode, int capacity) {
+			super(child);
+			this.mode = mode;
+			this.capacity = capacity;
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+			// Upper node is not requested, so it emits as fast as it can
+			parent = controllable;
+			child.onSubscribe(this);
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				return;
+			}
+			synchronized (lock) {
+				if (isFlowControlled) {
+					requested = addRequested(requested, n);
+				}
+				else {
+					isFlowControlled = true;
+					requested = n;
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void onNext(T item) {
+			boolean isOverflow = false;
+
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				Object value = item == null ? NULL : item;
+
+				if (queue.size() < requested) {
+					queue.offer(value);
+				}
+				else if (mode == MODE_BUFFER) {
+					if (queue.size() - requested < capacity) {
+						queue.offer(value);
+					}
+					else {
+						isOverflow = true;
+						isTerminated = true;
+						error = new IllegalStateException("Buffer of " + capacity + " items is full, lower node is too slow");
+						queue.clear();
+					}
+				}
+				else if (mode == MODE_LATEST) {
+					// At most one item over demand
+					if (queue.size() > requested) {
+						queue.pollLast();
+					}
+					queue.offer(value);
+				}
+				// MODE_DROP: nobody wants the item
+			}
+
+			if (isOverflow) {
+				// Stop upper node, error is sent to lower node by drain
+				DkControllable parent = this.parent;
+				if (parent != null) {
+					parent.cancel(false);
+				}
+			}
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				isTerminated = true;
+				error = e;
+			}
+			drain();
+		}
+
+		@Override
+		public void onComplete() {
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				isTerminated = true;
+			}
+			drain();
+		}
+
+		@Override
+		public void onFinal() {
+			synchronized (lock) {
+				isFinalReceived = true;
+			}
+			drain();
+		}
+
+		// Sends queued items as requested, then terminal event and final event.
+		// Only one thread sends at a time.
+		@SuppressWarnings("unchecked")
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+
+			while (true) {
+				while (true) {
+					Object item = null;
+					boolean isTerminal = false;
+					boolean isFinal = false;
+					Throwable error = null;
+
+					synchronized (lock) {
+						if (isFinished) {
+							return;
+						}
+						if (isCancel) {
+							queue.clear();
+						}
+
+						if (!queue.isEmpty() && requested > 0) {
+							item = queue.poll();
+							if (requested != UNBOUNDED) {
+								--requested;
+							}
+						}
+						else if (queue.isEmpty() && isTerminated && !isTerminalSent) {
+							isTerminal = true;
+							isTerminalSent = true;
+							error = this.error;
+						}
+						else if (queue.isEmpty() && isFinalReceived && (isTerminalSent || !isTerminated)) {
+							// Upper node may finish without terminal event, for eg,. when cancelled
+							isFinal = true;
+							isFinished = true;
+						}
+						else {
+							break;
+						}
+					}
+
+					if (item != null) {
+						child.onNext(item == NULL ? null : (T) item);
+					}
+					else if (isTerminal) {
+						if (error != null) {
+							child.onError(error);
+						}
+						else {
+							child.onComplete();
+						}
+					}
+					else if (isFinal) {
+						child.onFinal();
+						return;
+					}
+				}
+
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+}
@@ -22,11 +22,10 @@ import tool.compet.core.stream.observer.Observer;
 import tool.compet.core.util.DkLogs;
 
 public class OnNextObservable<T> extends DkObservable<T> {
-	private final DkObservable<T> parent;
-	private final DkThrowableCallback<T> action;
+	final DkThrowableCallback<T> action;
 
 	OnNextObservable(DkObservable<T> parent, DkThrowableCallback<T> action) {
-		this.parent = parent;
+		super(parent);
 		this.action = action;
 	}
 
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2018 DarkCompet. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tool.compet.core.stream.observable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tool.compet.core.stream.function.DkThrowableFunction;
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+import tool.compet.core.stream.scheduler.DkScheduler;
+
+/**
+ * Converts each item of upper node to an inner observable, and subscribes at most given number
+ * of inner observables at once on given scheduler. Items of inner observables are sent to lower node
+ * one at a time, in order of arrival, or in order of upper items if ordered (items of an inner which
+ * finished early are kept until inners before it finished).
+ * <p></p>
+ * Upper node is requested (see {@link DkControllable#request(long)}) only as many items as free slots,
+ * items of an upper node which does not support demand wait in a queue.
+ * <p></p>
+ * First error from upper node or an inner cancels the others and is sent to lower node at once.
+ * #onFinal() is sent after upper node and all inners finished.
+ */
+public class ParallelFlatMapObservable<T, R> extends DownstreamObservable<T, R> {
+	private final DkThrowableFunction<T, DkObservable<R>> converter;
+	private final int maxConcurrency;
+	private final boolean isOrdered;
+	private final DkScheduler<R> scheduler;
+
+	ParallelFlatMapObservable(DkObservable<T> parent, DkThrowableFunction<T, DkObservable<R>> converter,
+		int maxConcurrency, boolean isOrdered, DkScheduler<R> scheduler) {
+
+		super(parent);
+
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("Invalid maxConcurrency: " + maxConcurrency);
+		}
+
+		this.converter = converter;
+		this.maxConcurrency = maxConcurrency;
+		this.isOrdered = isOrdered;
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	protected void performSubscribe(DkObserver<R> child) {
+		parent.subscribe(new ParallelFlatMapObserver<>(child, converter, maxConcurrency, isOrdered, scheduler));
+	}
+
+	static class ParallelFlatMapObserver<T, R> extends DkControllable<T> {
+		final DkObserver<R> downstream;
+		final DkThrowableFunction<T, DkObservable<R>> converter;
+		final int maxConcurrency;
+		final boolean isOrdered;
+		final DkScheduler<R> scheduler;
+		// Controllable which serves demand of this node
+		volatile DkControllable upstream;
+
+		// Below are guarded by lock
+		private final Object lock = new Object();
+		// Upper items which wait for a free slot
+		private final ArrayDeque<T> pendingItems = new ArrayDeque<>();
+		private final ArrayList<InnerObserver> activeInners = new ArrayList<>();
+		private boolean isUpstreamComplete;
+		private boolean isUpstreamFinal;
+		private Throwable error;
+
+		// Items of inners in arrival order if not ordered
+		private final ConcurrentLinkedQueue<Object> mergedQueue = new ConcurrentLinkedQueue<>();
+		// Inners in order of upper items if ordered, drain sends head inner's items first
+		private final ConcurrentLinkedQueue<InnerObserver> orderedInners = new ConcurrentLinkedQueue<>();
+
+		// Number of drain calls which were missed while draining, serializes sending
+		private final AtomicInteger wip = new AtomicInteger();
+		// Below are accessed by drain only
+		private boolean isTerminalSent;
+		private boolean isFinished;
+
+		ParallelFlatMapObserver(DkObserver<R> child, DkThrowableFunction<T, DkObservable<R>> converter,
+			int maxConcurrency, boolean isOrdered, DkScheduler<R> scheduler) {
+
+			// Items are sent to lower node by drain only
+			super(null);
+			this.downstream = child;
+			this.converter = converter;
+			this.maxConcurrency = maxConcurrency;
+			this.isOrdered = isOrdered;
+			this.scheduler = scheduler;
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+			attachParent(controllable);
+
+			// This may be called many times, only request first controllable
+			if (upstream == null && controllable != null) {
+				upstream = controllable;
+				controllable.request(maxConcurrency);
+			}
+
+			downstream.onSubscribe(this);
+		}
+
+		/**
+		 * Demand of lower node is not served, at most maxConcurrency inners emit at once.
+		 */
+		@Override
+		public void request(long n) {
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptThread) {
+			boolean ok = super.cancel(mayInterruptThread);
+			cancelInners(mayInterruptThread);
+			drain();
+			return ok;
+		}
+
+		@Override
+		public void onNext(T item) {
+			synchronized (lock) {
+				if (error != null || isCancel) {
+					return;
+				}
+				pendingItems.offer(item);
+			}
+			startInners();
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			fail(e);
+		}
+
+		@Override
+		public void onComplete() {
+			synchronized (lock) {
+				isUpstreamComplete = true;
+			}
+			drain();
+		}
+
+		@Override
+		public void onFinal() {
+			synchronized (lock) {
+				isUpstreamFinal = true;
+			}
+			drain();
+		}
+
+		private void startInners() {
+			while (true) {
+				InnerObserver inner;
+
+				synchronized (lock) {
+					if (activeInners.size() >= maxConcurrency || pendingItems.isEmpty()) {
+						return;
+					}
+					inner = new InnerObserver(pendingItems.poll());
+					activeInners.add(inner);
+
+					if (isOrdered) {
+						orderedInners.offer(inner);
+					}
+				}
+
+				try {
+					scheduler.scheduleNow(inner, false);
+				}
+				catch (Exception e) {
+					inner.onError(e);
+					inner.onFinal();
+				}
+			}
+		}
+
+		private void fail(Throwable e) {
+			synchronized (lock) {
+				if (error != null) {
+					return;
+				}
+				error = e;
+				pendingItems.clear();
+			}
+
+			DkControllable parent = this.parent;
+			if (parent != null) {
+				parent.cancel(false);
+			}
+			cancelInners(false);
+			drain();
+		}
+
+		private void cancelInners(boolean mayInterruptThread) {
+			ArrayList<InnerObserver> inners;
+			synchronized (lock) {
+				pendingItems.clear();
+				inners = new ArrayList<>(activeInners);
+			}
+			for (InnerObserver inner : inners) {
+				DkControllable controllable = inner.controllable;
+				if (controllable != null) {
+					controllable.cancel(mayInterruptThread);
+				}
+			}
+		}
+
+		private void onInnerFinal(InnerObserver inner) {
+			boolean isRunning;
+			inner.isDone = true;
+			synchronized (lock) {
+				activeInners.remove(inner);
+				isRunning = error == null && !isCancel;
+			}
+
+			// Free slot is given to next upper item
+			DkControllable upstream = this.upstream;
+			if (isRunning && upstream != null) {
+				upstream.request(1);
+			}
+			startInners();
+			drain();
+		}
+
+		private boolean isStopped() {
+			synchronized (lock) {
+				return error != null || isCancel;
+			}
+		}
+
+		// Sends items of inners, then terminal and final events. Only one thread sends at a time.
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+
+			while (true) {
+				while (true) {
+					if (isFinished) {
+						return;
+					}
+
+					boolean isStopped;
+					Throwable error;
+					boolean isAllFinished;
+					boolean isComplete;
+					synchronized (lock) {
+						error = this.error;
+						isStopped = error != null || isCancel;
+						isAllFinished = isUpstreamFinal && activeInners.isEmpty() && pendingItems.isEmpty();
+						isComplete = isUpstreamComplete && !isStopped;
+					}
+
+					// Fail fast
+					if (error != null && !isTerminalSent) {
+						isTerminalSent = true;
+						mergedQueue.clear();
+						orderedInners.clear();
+						downstream.onError(error);
+						continue;
+					}
+					if (isStopped) {
+						mergedQueue.clear();
+						orderedInners.clear();
+					}
+
+					Object value = poll();
+					if (value != null) {
+						downstream.onNext(SpscLinkedQueue.unwrap(value));
+						continue;
+					}
+
+					// Polled nothing after everything finished, so nothing comes anymore
+					if (isAllFinished) {
+						isFinished = true;
+						if (!isTerminalSent && isComplete) {
+							isTerminalSent = true;
+							downstream.onComplete();
+						}
+						downstream.onFinal();
+						return;
+					}
+					break;
+				}
+
+				missed = wip.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+
+		// Called by drain only
+		private Object poll() {
+			if (!isOrdered) {
+				return mergedQueue.poll();
+			}
+			while (true) {
+				InnerObserver head = orderedInners.peek();
+				if (head == null) {
+					return null;
+				}
+				// Read done flag before polling, so items which came before done are not missed
+				boolean isDone = head.isDone;
+				Object value = head.queue.poll();
+				if (value != null) {
+					return value;
+				}
+				if (!isDone) {
+					return null;
+				}
+				orderedInners.poll();
+			}
+		}
+
+		class InnerObserver implements DkObserver<R>, Callable<R> {
+			final T item;
+			// Items of this inner if ordered
+			final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+			volatile DkControllable controllable;
+			volatile boolean isDone;
+
+			InnerObserver(T item) {
+				this.item = item;
+			}
+
+			// Runs on scheduler
+			@Override
+			public R call() {
+				DkObservable<R> observable;
+
+				try {
+					observable = isStopped() ? null : converter.apply(item);
+				}
+				catch (Exception e) {
+					onError(e);
+					onFinal();
+					return null;
+				}
+
+				if (isStopped()) {
+					onFinal();
+				}
+				// Like flatMap, null observable is considered as null item
+				else if (observable == null) {
+					onNext(null);
+					onFinal();
+				}
+				else {
+					observable.subscribe(this);
+				}
+				return null;
+			}
+
+			@Override
+			public void onSubscribe(DkControllable controllable) {
+				if (this.controllable == null) {
+					this.controllable = controllable;
+				}
+			}
+
+			@Override
+			public void onNext(R item) {
+				(isOrdered ? queue : mergedQueue).offer(SpscLinkedQueue.wrap(item));
+				drain();
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				fail(e);
+			}
+
+			@Override
+			public void onComplete() {
+			}
+
+			@Override
+			public void onFinal() {
+				onInnerFinal(this);
+			}
+		}
+	}
+}
@@ -49,6 +49,7 @@ public class ScheduleOnObservable<T> extends DkObservable<T> {
 	static class SchedulerOnObserver<T> extends DkControllable<T> {
 		final DkScheduler<T> service;
 		Callable<T> task;
+		boolean isSerial;
 
 		SchedulerOnObserver(DkObserver<T> child, DkScheduler<T> service) {
 			super(child);
@@ -56,6 +57,8 @@ public class ScheduleOnObservable<T> extends DkObservable<T> {
 		}
 
 		void start(DkObservable<T> parent, long delay, TimeUnit timeUnit, boolean isSerial) {
+			this.isSerial = isSerial;
+
 			// Give to children a chance to cancel scheduling
 			child.onSubscribe(this);
 
@@ -89,6 +92,23 @@ public class ScheduleOnObservable<T> extends DkObservable<T> {
 			}
 		}
 
+		@Override
+		public void request(long n) {
+			// Before parent subscribed, demand is kept until parent is attached on the service
+			if (parent == null) {
+				super.request(n);
+				return;
+			}
+
+			// Upper node emits on thread which requests, so keep emitting on the service
+			try {
+				service.scheduleNow(() -> SchedulerOnObserver.super.request(n), isSerial);
+			}
+			catch (Exception e) {
+				DkLogs.logex(this, e);
+			}
+		}
+
 		@Override
 		public boolean cancel(boolean mayInterruptThread) {
 			boolean ok = super.cancel(mayInterruptThread);
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018 DarkCompet. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tool.compet.core.stream.observable;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tool.compet.core.stream.observer.DkObserver;
+
+/**
+ * Sends events to lower node one at a time and in order they were offered, from any thread.
+ * A node offers events while holding its own lock, then calls {@link #drain()} after leaving it,
+ * so lower node is never called inside the lock (it may cancel, or wait for a thread which cancels).
+ */
+class SerializedDownstream<R> {
+	private static final Object COMPLETE = new Object();
+	private static final Object FINAL = new Object();
+
+	private final DkObserver<R> downstream;
+	private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+	// Number of drain calls which were missed while draining, serializes sending
+	private final AtomicInteger wip = new AtomicInteger();
+
+	SerializedDownstream(DkObserver<R> downstream) {
+		this.downstream = downstream;
+	}
+
+	void offerNext(R item) {
+		queue.offer(SpscLinkedQueue.wrap(item));
+	}
+
+	void offerError(Throwable e) {
+		queue.offer(new ErrorEvent(e));
+	}
+
+	void offerComplete() {
+		queue.offer(COMPLETE);
+	}
+
+	void offerFinal() {
+		queue.offer(FINAL);
+	}
+
+	/**
+	 * Sends offered events, only one thread sends at a time.
+	 */
+	void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+
+		while (true) {
+			Object event;
+			while ((event = queue.poll()) != null) {
+				if (event == COMPLETE) {
+					downstream.onComplete();
+				}
+				else if (event == FINAL) {
+					downstream.onFinal();
+				}
+				else if (event instanceof ErrorEvent) {
+					downstream.onError(((ErrorEvent) event).error);
+				}
+				else {
+					downstream.onNext(SpscLinkedQueue.unwrap(event));
+				}
+			}
+
+			missed = wip.addAndGet(-missed);
+			if (missed == 0) {
+				return;
+			}
+		}
+	}
+
+	private static class ErrorEvent {
+		final Throwable error;
+
+		ErrorEvent(Throwable error) {
+			this.error = error;
+		}
+	}
+}
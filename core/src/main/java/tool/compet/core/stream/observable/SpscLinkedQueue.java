@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2018 DarkCompet. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package tool.compet.core.stream.observable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free unbounded queue for one producer thread and one consumer thread at a time.
+ * Items are stored in fixed size chunks, last slot of a chunk links to next chunk, so offering
+ * allocates only when a chunk is full. Null items are allowed.
+ */
+class SpscLinkedQueue<E> {
+	// Stands for null item
+	private static final Object NULL = new Object();
+
+	private final int chunkSize;
+
+	// Accessed by producer only
+	private AtomicReferenceArray<Object> producerChunk;
+	private int producerIndex;
+
+	// Accessed by consumer only
+	private AtomicReferenceArray<Object> consumerChunk;
+	private int consumerIndex;
+
+	SpscLinkedQueue(int chunkSize) {
+		this.chunkSize = chunkSize;
+		this.producerChunk = this.consumerChunk = new AtomicReferenceArray<>(chunkSize + 1);
+	}
+
+	/**
+	 * Called by producer.
+	 */
+	void offer(E item) {
+		Object value = wrap(item);
+
+		if (producerIndex == chunkSize) {
+			AtomicReferenceArray<Object> next = new AtomicReferenceArray<>(chunkSize + 1);
+			next.lazySet(0, value);
+			// Publish the link after the item, so consumer which sees the link sees the item
+			producerChunk.lazySet(chunkSize, next);
+			producerChunk = next;
+			producerIndex = 1;
+		}
+		else {
+			producerChunk.lazySet(producerIndex++, value);
+		}
+	}
+
+	/**
+	 * Called by consumer.
+	 *
+	 * @return null if empty, otherwise polled value, pass it to {@link #unwrap(Object)} to get the item.
+	 */
+	@SuppressWarnings("unchecked")
+	Object poll() {
+		if (consumerIndex == chunkSize) {
+			Object next = consumerChunk.get(chunkSize);
+			if (next == null) {
+				return null;
+			}
+			consumerChunk = (AtomicReferenceArray<Object>) next;
+			consumerIndex = 0;
+		}
+
+		Object value = consumerChunk.get(consumerIndex);
+		if (value != null) {
+			// Let polled item be collected
+			consumerChunk.lazySet(consumerIndex++, null);
+		}
+		return value;
+	}
+
+	/**
+	 * @return given item, or a marker if it is null, for queues which do not accept null.
+	 */
+	static Object wrap(Object item) {
+		return item == null ? NULL : item;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <E> E unwrap(Object value) {
+		return value == NULL ? null : (E) value;
+	}
+
+	/**
+	 * Called by consumer.
+	 */
+	boolean isEmpty() {
+		if (consumerIndex == chunkSize) {
+			return consumerChunk.get(chunkSize) == null;
+		}
+		return consumerChunk.get(consumerIndex) == null;
+	}
+
+	/**
+	 * Called by consumer.
+	 */
+	void clear() {
+		while (poll() != null) {
+			// Drop
+		}
+	}
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2018 DarkCompet. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package tool.compet.core.stream.observable;
+
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+import tool.compet.core.stream.scheduler.DkScheduler;
+
+/**
+ * Rate-limits items of upper node by time: sends an item only after a quiet period (debounce),
+ * first item of each window (throttle first), last item of each window (throttle last),
+ * or latest item at each period (sample).
+ * <p></p>
+ * Each subscription has at most one scheduled timer. Items only update state, and the timer
+ * re-arms itself for remaining time when it fires early, instead of scheduling a task per item.
+ * Items are sent on thread of the scheduler, except throttle first which sends on thread of upper node.
+ * On completion, a pending latest item is sent before completion. Events are sent one at a time,
+ * never while holding the lock of the node (see {@link SerializedDownstream}).
+ */
+public class ThrottleObservable<T> extends DkObservable<T> {
+	// Send latest item when no item came for the duration
+	static final int MODE_DEBOUNCE = 1;
+	// Send first item, then ignore items for the duration
+	static final int MODE_THROTTLE_FIRST = 2;
+	// Send latest item at end of the duration which starts at an item
+	static final int MODE_THROTTLE_LAST = 3;
+	// Send latest item (if any new) at each period
+	static final int MODE_SAMPLE = 4;
+
+	private final int mode;
+	private final long durationNanos;
+	private final DkScheduler<T> scheduler;
+
+	ThrottleObservable(DkObservable<T> parent, int mode, long duration, TimeUnit unit, DkScheduler<T> scheduler) {
+		super(parent);
+		this.mode = mode;
+		this.durationNanos = unit.toNanos(duration);
+		this.scheduler = scheduler;
+	}
+
+	@Override
+	protected void performSubscribe(DkObserver<T> child) {
+		parent.subscribe(new ThrottleObserver<>(child, mode, durationNanos, scheduler));
+	}
+
+	static class ThrottleObserver<T> extends DkControllable<T> {
+		final int mode;
+		final long durationNanos;
+		final DkScheduler<T> scheduler;
+		final SerializedDownstream<T> events;
+
+		// Below are guarded by lock, events are offered inside the lock and sent after leaving it
+		private final Object lock = new Object();
+		private T latest;
+		private boolean hasLatest;
+		// Time of last item for debounce, or start of current window for throttle
+		private long markNanos;
+		private boolean isWindowOpen;
+		private boolean isTimerArmed;
+		private boolean isTerminated;
+
+		ThrottleObserver(DkObserver<T> child, int mode, long durationNanos, DkScheduler<T> scheduler) {
+			super(child);
+			this.mode = mode;
+			this.durationNanos = durationNanos;
+			this.scheduler = scheduler;
+			this.events = new SerializedDownstream<>(child);
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+			attachParent(controllable);
+
+			if (mode == MODE_SAMPLE) {
+				synchronized (lock) {
+					armTimerLocked(durationNanos);
+				}
+				events.drain();
+			}
+
+			child.onSubscribe(this);
+		}
+
+		/**
+		 * Demand of lower node is not served since items are dropped by time, upper node emits as fast as it can.
+		 */
+		@Override
+		public void request(long n) {
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptThread) {
+			boolean ok = super.cancel(mayInterruptThread);
+
+			synchronized (lock) {
+				isTerminated = true;
+				latest = null;
+				hasLatest = false;
+				stopTimerLocked();
+			}
+			return ok;
+		}
+
+		@Override
+		public void onNext(T item) {
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				switch (mode) {
+					case MODE_DEBOUNCE: {
+						latest = item;
+						hasLatest = true;
+						markNanos = System.nanoTime();
+						armTimerLocked(durationNanos);
+						break;
+					}
+					case MODE_THROTTLE_FIRST: {
+						if (!isWindowOpen) {
+							openWindowLocked();
+							events.offerNext(item);
+						}
+						break;
+					}
+					case MODE_THROTTLE_LAST: {
+						latest = item;
+						hasLatest = true;
+						if (!isWindowOpen) {
+							openWindowLocked();
+						}
+						break;
+					}
+					case MODE_SAMPLE: {
+						latest = item;
+						hasLatest = true;
+						break;
+					}
+				}
+			}
+			events.drain();
+		}
+
+		/**
+		 * Called when timer fires.
+		 */
+		@Override
+		public T call() {
+			synchronized (lock) {
+				isTimerArmed = false;
+
+				if (isTerminated) {
+					return null;
+				}
+				if (mode == MODE_SAMPLE) {
+					sendLatestLocked();
+					armTimerLocked(durationNanos);
+				}
+				else {
+					long remainingNanos = markNanos + durationNanos - System.nanoTime();
+					if (remainingNanos > 0) {
+						armTimerLocked(remainingNanos);
+					}
+					else {
+						isWindowOpen = false;
+						sendLatestLocked();
+					}
+				}
+			}
+			events.drain();
+			return null;
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				isTerminated = true;
+				latest = null;
+				hasLatest = false;
+				stopTimerLocked();
+
+				events.offerError(e);
+			}
+			events.drain();
+		}
+
+		@Override
+		public void onComplete() {
+			synchronized (lock) {
+				if (isTerminated) {
+					return;
+				}
+				isTerminated = true;
+				stopTimerLocked();
+				sendLatestLocked();
+
+				events.offerComplete();
+			}
+			events.drain();
+		}
+
+		@Override
+		public void onFinal() {
+			synchronized (lock) {
+				isTerminated = true;
+				latest = null;
+				hasLatest = false;
+				stopTimerLocked();
+
+				events.offerFinal();
+			}
+			events.drain();
+		}
+
+		private void openWindowLocked() {
+			isWindowOpen = true;
+			markNanos = System.nanoTime();
+			armTimerLocked(durationNanos);
+		}
+
+		private void sendLatestLocked() {
+			if (hasLatest) {
+				T item = latest;
+				latest = null;
+				hasLatest = false;
+				events.offerNext(item);
+			}
+		}
+
+		// Schedules the timer unless it is scheduled already
+		private void armTimerLocked(long delayNanos) {
+			if (isTimerArmed || isTerminated) {
+				return;
+			}
+			isTimerArmed = true;
+
+			try {
+				scheduler.schedule(this, delayNanos, TimeUnit.NANOSECONDS, false);
+			}
+			catch (Exception e) {
+				isTerminated = true;
+				isTimerArmed = false;
+				events.offerError(e);
+			}
+		}
+
+		private void stopTimerLocked() {
+			if (isTimerArmed) {
+				isTimerArmed = false;
+				scheduler.cancel(this, false);
+			}
+		}
+	}
+}
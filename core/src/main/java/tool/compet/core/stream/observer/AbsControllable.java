@@ -26,9 +26,17 @@ import static tool.compet.core.BuildConfig.DEBUG;
  * so we must
  */
 public abstract class AbsControllable {
+   /**
+    * Demand of a child which never called {@link #request(long)}, items are emitted as fast as possible.
+    */
+   public static final long UNBOUNDED = Long.MAX_VALUE;
+
    // Parent controllable
    protected DkControllable parent;
 
+   // Demand requested by child before parent was known, forwarded when parent is attached
+   private long pendingRequested;
+
    // Indicates child requested resume event
    protected volatile boolean isResume;
 
@@ -103,6 +111,55 @@ public abstract class AbsControllable {
       return ok;
    }
 
+   /**
+    * Asks upper nodes to emit given number of items more (flow control). A child which never calls this
+    * receives items as fast as upper node can emit, a child which calls it receives at most requested number
+    * of items from nodes which support flow control (iterable God node, backpressure node...).
+    * <p></p>
+    * Demand is forwarded to parent. Subclass should override if it serves the demand by itself.
+    */
+   public void request(long n) {
+      if (n <= 0) {
+         return;
+      }
+
+      DkControllable parent;
+      synchronized (this) {
+         parent = this.parent;
+
+         if (parent == null) {
+            pendingRequested = addRequested(pendingRequested, n);
+            return;
+         }
+      }
+
+      parent.request(n);
+   }
+
+   /**
+    * Sets parent of this node, and forwards demand which child requested before.
+    */
+   protected void attachParent(DkControllable controllable) {
+      long n;
+      synchronized (this) {
+         parent = controllable;
+         n = pendingRequested;
+         pendingRequested = 0;
+      }
+
+      if (n > 0 && controllable != null) {
+         controllable.request(n);
+      }
+   }
+
+   /**
+    * @return sum of given demands, capped at {@link #UNBOUNDED}.
+    */
+   protected static long addRequested(long requested, long n) {
+      long sum = requested + n;
+      return sum < 0 ? UNBOUNDED : sum;
+   }
+
    public boolean isResumed() {
       return isResumed;
    }
@@ -41,7 +41,7 @@ public class DkControllable<T> extends AbsControllable implements Callable<T>, D
 		if (controllable == this) {
 			DkLogs.complain(this, "Wrong implementation ! God observer must be parentless");
 		}
-		this.parent = controllable;
+		attachParent(controllable);
 		child.onSubscribe(controllable);
 	}
 
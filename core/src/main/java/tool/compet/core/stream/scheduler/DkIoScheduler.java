@@ -75,7 +75,24 @@ public class DkIoScheduler<T> implements DkScheduler<T> {
 			serialExecutor.schedule(task, delay, unit);
 		}
 		else {
-			schedulingTasks.put(task, parellelExecutor.schedule(task, delay, unit));
+			// Forget the task when done, parallel tasks are not cleaned up by anyone else.
+			// Only own entry is removed, since the task may have scheduled itself again while running.
+			final ParallelEntry entry = new ParallelEntry();
+			synchronized (entry) {
+				entry.future = parellelExecutor.schedule(() -> {
+					try {
+						return task.call();
+					}
+					finally {
+						// Wait until the entry was put
+						synchronized (entry) {
+							schedulingTasks.remove(task, entry.future);
+						}
+					}
+				}, delay, unit);
+
+				schedulingTasks.put(task, entry.future);
+			}
 		}
 	}
 
@@ -97,13 +114,17 @@ public class DkIoScheduler<T> implements DkScheduler<T> {
 		}
 
 		if (ok) {
-			schedulingTasks.remove(task);
+			schedulingTasks.remove(task, future);
 			return true;
 		}
 
 		return false;
 	}
 
+	private static class ParallelEntry {
+		ScheduledFuture<?> future;
+	}
+
 	static class DkSerialExecutor<T> {
 		final ScheduledExecutorService executor;
 		ConcurrentLinkedQueue<Callable<T>> pendingTasks;
@@ -16,6 +16,8 @@
 
 package tool.compet.core.stream.scheduler;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 import tool.compet.core.helper.DkExecutorService;
 
 public class DkSchedulers {
@@ -34,6 +36,14 @@ public class DkSchedulers {
 		return (DkScheduler<T>) IO;
 	}
 
+	/**
+	 * Creates a scheduler which runs tasks on given executor, for eg,. a single thread executor
+	 * dedicated to a database so its tasks never run concurrently.
+	 */
+	public static <T> DkScheduler<T> from(ScheduledExecutorService executor) {
+		return new DkIoScheduler<>(executor);
+	}
+
 	@SuppressWarnings("unchecked")
 	public static <T> DkScheduler<T> main() {
 		if (MAIN == null) {
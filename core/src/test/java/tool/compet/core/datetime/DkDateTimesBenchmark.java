@@ -0,0 +1,128 @@
+package tool.compet.core.datetime;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares old formatting (new SimpleDateFormat and Date per call) with cached formatters
+ * and relative time fast path, on times spread over recent days like list rows.
+ */
+public class DkDateTimesBenchmark {
+	private static final int WARMUP_ROUNDS = 20_000;
+	private static final int MEASURE_ROUNDS = 200_000;
+	private static final long NOW = 1_590_000_000_000L;
+
+	private static String formatOld(long millis) {
+		return new SimpleDateFormat(DkDateTime$.DATE_FORMAT_US, Locale.US).format(new Date(millis));
+	}
+
+	private static long timeAt(int i) {
+		// Within last 3 days, in seconds steps
+		return NOW - (i * 7919L % (3 * 24 * 3600)) * 1000L;
+	}
+
+	@Test
+	public void formatsSameAsSimpleDateFormat() {
+		for (int i = 0; i < 1000; ++i) {
+			long millis = timeAt(i);
+			assertEquals(formatOld(millis), DkDateTimes.formatTime(millis));
+		}
+		String pattern = DkDateTime$.DATE_FORMAT_JA;
+		assertEquals(new SimpleDateFormat(pattern, Locale.JAPAN).format(new Date(NOW)),
+			DkDateTimes.formatTime(NOW, pattern, Locale.JAPAN));
+	}
+
+	@Test
+	public void formatsRelativeTime() {
+		StringBuilder out = new StringBuilder();
+
+		assertEquals("just now", DkDateTimes.formatRelativeTime(NOW - 59_000, NOW, out).toString());
+		out.setLength(0);
+		assertEquals("just now", DkDateTimes.formatRelativeTime(NOW + 5_000, NOW, out).toString());
+		out.setLength(0);
+		assertEquals("1 minute ago", DkDateTimes.formatRelativeTime(NOW - 60_000, NOW, out).toString());
+		out.setLength(0);
+		assertEquals("59 minutes ago", DkDateTimes.formatRelativeTime(NOW - 3_599_000, NOW, out).toString());
+		out.setLength(0);
+		assertEquals("2 hours ago", DkDateTimes.formatRelativeTime(NOW - 7_200_000, NOW, out).toString());
+		out.setLength(0);
+		assertEquals("3 days ago", DkDateTimes.formatRelativeTime(NOW - 3 * 86_400_000L, NOW, out).toString());
+		out.setLength(0);
+
+		long old = NOW - 40 * 86_400_000L;
+		assertEquals(formatOld(old), DkDateTimes.formatRelativeTime(old, NOW, out).toString());
+	}
+
+	@Test
+	public void formatsConcurrently() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int task = 0; task < 8; ++task) {
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < 5_000; ++i) {
+						long millis = timeAt(i);
+						if (!formatOld(millis).equals(DkDateTimes.formatTime(millis))) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Ignore("Benchmark, run by hand")
+	@Test
+	public void benchmark() {
+		long sink = 0;
+		StringBuilder out = new StringBuilder(32);
+
+		for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+			sink += formatOld(timeAt(i)).length();
+			sink += DkDateTimes.formatTime(timeAt(i)).length();
+			out.setLength(0);
+			sink += DkDateTimes.formatRelativeTime(timeAt(i), NOW, out).length();
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURE_ROUNDS; ++i) {
+			sink += formatOld(timeAt(i)).length();
+		}
+		long oldNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < MEASURE_ROUNDS; ++i) {
+			sink += DkDateTimes.formatTime(timeAt(i)).length();
+		}
+		long cachedNanos = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < MEASURE_ROUNDS; ++i) {
+			out.setLength(0);
+			sink += DkDateTimes.formatRelativeTime(timeAt(i), NOW, out).length();
+		}
+		long relativeNanos = System.nanoTime() - start;
+
+		System.out.printf("format time: old %.3f us/op, cached %.3f us/op, relative %.3f us/op (sink %d)%n",
+			oldNanos / 1000.0 / MEASURE_ROUNDS, cachedNanos / 1000.0 / MEASURE_ROUNDS,
+			relativeNanos / 1000.0 / MEASURE_ROUNDS, sink);
+	}
+}
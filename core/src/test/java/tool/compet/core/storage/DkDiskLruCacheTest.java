@@ -0,0 +1,95 @@
+package tool.compet.core.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class DkDiskLruCacheTest {
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("disk-lru").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	private static DkDiskLruCache.Writer bytes(int count) {
+		return os -> os.write(new byte[count]);
+	}
+
+	@Test
+	public void readsBackAndReplaces() throws IOException {
+		DkDiskLruCache cache = new DkDiskLruCache(dir, 1000);
+		assertNull(cache.get("a"));
+
+		assertTrue(cache.put("a", os -> os.write("hello".getBytes("UTF-8"))));
+		File file = cache.get("a");
+		assertEquals("hello", new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+
+		assertTrue(cache.put("a", bytes(10)));
+		assertEquals(10, cache.getSize());
+		assertEquals(10, cache.get("a").length());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		DkDiskLruCache cache = new DkDiskLruCache(dir, 300);
+		cache.put("a", bytes(100));
+		cache.put("b", bytes(100));
+		cache.put("c", bytes(100));
+
+		// Touch a, so b is least recently used
+		assertNotNull(cache.get("a"));
+		cache.put("d", bytes(100));
+
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+		assertNotNull(cache.get("d"));
+		assertEquals(300, cache.getSize());
+	}
+
+	@Test
+	public void keepsOldEntryWhenWriterFails() {
+		DkDiskLruCache cache = new DkDiskLruCache(dir, 1000);
+		cache.put("a", bytes(50));
+
+		assertFalse(cache.put("a", os -> {
+			os.write(new byte[10]);
+			throw new IOException("Broken stream");
+		}));
+		assertEquals(50, cache.get("a").length());
+		assertEquals(1, dir.listFiles().length);
+	}
+
+	@Test
+	public void indexesExistingFilesOnOpen() {
+		DkDiskLruCache cache = new DkDiskLruCache(dir, 1000);
+		cache.put("a", bytes(100));
+		cache.put("b", bytes(200));
+
+		DkDiskLruCache reopened = new DkDiskLruCache(dir, 1000);
+		assertEquals(300, reopened.getSize());
+		assertNotNull(reopened.get("b"));
+
+		reopened.clear();
+		assertEquals(0, reopened.getSize());
+		assertEquals(0, dir.listFiles().length);
+	}
+}
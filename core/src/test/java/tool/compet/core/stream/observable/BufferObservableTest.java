@@ -0,0 +1,137 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.stream.observer.DkObserver;
+
+import static org.junit.Assert.*;
+
+public class BufferObservableTest {
+	private static final long DURATION_MILLIS = 20;
+
+	// Upper observer which the test sends events to
+	private DkObserver<Integer> upper;
+
+	private DkObservable<Integer> source() {
+		return DkObservable.fromEmitter(observer -> {
+			upper = observer;
+			observer.onSubscribe(null);
+		});
+	}
+
+	private static List<Integer> range(int from, int to) {
+		List<Integer> items = new ArrayList<>();
+		for (int i = from; i < to; ++i) {
+			items.add(i);
+		}
+		return items;
+	}
+
+	@Test
+	public void sendsListsOfCountAndRemainder() {
+		TestObserver<List<Integer>> observer = new TestObserver<>();
+		DkObservable.from(range(0, 10)).buffer(4).subscribe(observer);
+
+		assertEquals(Arrays.asList(range(0, 4), range(4, 8), range(8, 10)), observer.items);
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void requestsCountItemsPerList() {
+		TestObserver<List<Integer>> observer = new TestObserver<>(1);
+		DkObservable.from(range(0, 10)).buffer(4).subscribe(observer);
+		assertEquals(Collections.singletonList(range(0, 4)), observer.items);
+
+		observer.request(1);
+		assertEquals(Arrays.asList(range(0, 4), range(4, 8)), observer.items);
+		assertEquals(0, observer.completeCount);
+	}
+
+	@Test
+	public void sendsListOnTimeOrMaxCount() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<List<Integer>> observer = new TestObserver<>();
+		source().buffer(DURATION_MILLIS, TimeUnit.MILLISECONDS, 3, scheduler).subscribe(observer);
+
+		upper.onNext(1);
+		upper.onNext(2);
+		assertTrue(observer.items.isEmpty());
+		assertEquals(1, scheduler.tasks.size());
+
+		Thread.sleep(DURATION_MILLIS + 10);
+		scheduler.runAll();
+		assertEquals(Collections.singletonList(Arrays.asList(1, 2)), observer.items);
+		// Idle until next item
+		assertTrue(scheduler.tasks.isEmpty());
+
+		// Full list is sent at once, the timer of it stays single
+		upper.onNext(3);
+		upper.onNext(4);
+		upper.onNext(5);
+		upper.onNext(6);
+		assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4, 5)), observer.items);
+		assertEquals(1, scheduler.tasks.size());
+
+		upper.onComplete();
+		upper.onFinal();
+		assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4, 5), Collections.singletonList(6)), observer.items);
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+		assertTrue(scheduler.tasks.isEmpty());
+	}
+
+	@Test
+	public void errorDropsPendingList() {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<List<Integer>> observer = new TestObserver<>();
+		source().buffer(DURATION_MILLIS, TimeUnit.MILLISECONDS, 3, scheduler).subscribe(observer);
+
+		upper.onNext(1);
+		upper.onError(new RuntimeException());
+		upper.onFinal();
+
+		assertTrue(observer.items.isEmpty());
+		assertNotNull(observer.error);
+		assertEquals(1, observer.finalCount);
+		assertTrue(scheduler.tasks.isEmpty());
+	}
+
+	@Test
+	public void lowerNodeMayWaitForThreadWhichCancels() throws Exception {
+		List<Thread> cancellers = new ArrayList<>();
+		TestObserver<List<Integer>> observer = new TestObserver<List<Integer>>() {
+			@Override
+			public void onNext(List<Integer> item) {
+				super.onNext(item);
+
+				// Hands off to a thread which cancels, and waits for it
+				Thread canceller = new Thread(() -> controllable.cancel(false));
+				cancellers.add(canceller);
+				canceller.start();
+				try {
+					canceller.join(1000);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		source().buffer(2).subscribe(observer);
+
+		upper.onNext(1);
+		upper.onNext(2);
+		upper.onNext(3);
+		upper.onNext(4);
+
+		assertEquals(1, cancellers.size());
+		assertFalse(cancellers.get(0).isAlive());
+		assertEquals(Collections.singletonList(range(1, 3)), observer.items);
+	}
+}
@@ -0,0 +1,78 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FlatMapObservableTest {
+	private static List<Integer> range(int count) {
+		List<Integer> items = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			items.add(i);
+		}
+		return items;
+	}
+
+	@Test
+	public void requestsUpperPerFinishedInner() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<Integer> observer = new TestObserver<>();
+
+		// Half of inners are empty, so lower demand must not be counted in upper items
+		DkObservable.from(range(1000))
+			.flatMap(x -> x % 2 == 0 ? DkObservable.from(x) : DkObservable.from(Collections.<Integer>emptyList()))
+			.observeOn(scheduler)
+			.subscribe(observer);
+		scheduler.runAll();
+
+		assertEquals(500, observer.items.size());
+		for (int i = 0; i < 500; ++i) {
+			assertEquals(2 * i, (int) observer.items.get(i));
+		}
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void sendsOneFinalAfterAllInners() {
+		TestObserver<Integer> observer = new TestObserver<>();
+		AtomicInteger finalCountAtLastItem = new AtomicInteger(-1);
+
+		DkObservable.from(range(10))
+			.flatMap(x -> DkObservable.from(Collections.nCopies(3, x)))
+			.doOnNext(x -> finalCountAtLastItem.set(observer.finalCount))
+			.subscribe(observer);
+
+		assertEquals(30, observer.items.size());
+		assertEquals(0, finalCountAtLastItem.get());
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void errorOfInnerStopsUpper() {
+		TestObserver<Integer> observer = new TestObserver<>();
+		AtomicInteger convertedCount = new AtomicInteger();
+
+		DkObservable.from(range(100))
+			.flatMap(x -> {
+				convertedCount.incrementAndGet();
+				if (x == 3) {
+					throw new IllegalStateException();
+				}
+				return DkObservable.from(x);
+			})
+			.subscribe(observer);
+
+		assertTrue(observer.error instanceof IllegalStateException);
+		assertEquals(3, observer.items.size());
+		assertEquals(4, convertedCount.get());
+		assertEquals(0, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+	}
+}
@@ -0,0 +1,130 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures per-item and per-subscribe overhead of a 10 node chain of map, doOnNext and tryCatch,
+ * separated (one observer per node) and fused.
+ */
+public class FusedObservableBenchmark {
+	private static final int ITEM_COUNT = 1_000_000;
+	private static final int SUBSCRIBE_COUNT = 200_000;
+	private static final int ROUNDS = 15;
+
+	private static long sink;
+
+	private static DkObservable<Integer> fused(DkObservable<Integer> source) {
+		return source
+			.map(i -> i + 1)
+			.doOnNext(i -> sink += i)
+			.map(i -> i * 3)
+			.tryCatch()
+			.map(i -> i - 1)
+			.doOnNext(i -> sink ^= i)
+			.map(i -> i >> 1)
+			.map(i -> i + 7)
+			.doOnNext(i -> sink += i)
+			.map(i -> i & 0xffff);
+	}
+
+	private static DkObservable<Integer> separated(DkObservable<Integer> source) {
+		DkObservable<Integer> chain = new MapObservable<>(source, i -> i + 1);
+		chain = new OnNextObservable<>(chain, i -> sink += i);
+		chain = new MapObservable<>(chain, i -> i * 3);
+		chain = new TryCatchObservable<>(chain);
+		chain = new MapObservable<>(chain, i -> i - 1);
+		chain = new OnNextObservable<>(chain, i -> sink ^= i);
+		chain = new MapObservable<>(chain, i -> i >> 1);
+		chain = new MapObservable<>(chain, i -> i + 7);
+		chain = new OnNextObservable<>(chain, i -> sink += i);
+		return new MapObservable<>(chain, i -> i & 0xffff);
+	}
+
+	@Ignore("Benchmark, run by hand")
+	@Test
+	public void benchmark() {
+		List<Integer> items = new ArrayList<>(ITEM_COUNT);
+		for (int i = 0; i < ITEM_COUNT; ++i) {
+			items.add(i);
+		}
+		DkObservable<Integer> source = DkObservable.from(items);
+		DkObservable<Integer> single = DkObservable.from(1);
+
+		assertEquals(run(separated(source)), run(fused(source)));
+
+		long separatedItemNanos = Long.MAX_VALUE;
+		long fusedItemNanos = Long.MAX_VALUE;
+		long separatedSubscribeNanos = Long.MAX_VALUE;
+		long fusedSubscribeNanos = Long.MAX_VALUE;
+
+		// Best of rounds, first rounds warm up
+		for (int round = 0; round < ROUNDS; ++round) {
+			long start = System.nanoTime();
+			run(fused(source));
+			fusedItemNanos = Math.min(fusedItemNanos, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			run(separated(source));
+			separatedItemNanos = Math.min(separatedItemNanos, System.nanoTime() - start);
+
+			DkObservable<Integer> separatedSingle = separated(single);
+			start = System.nanoTime();
+			for (int i = 0; i < SUBSCRIBE_COUNT; ++i) {
+				run(separatedSingle);
+			}
+			separatedSubscribeNanos = Math.min(separatedSubscribeNanos, System.nanoTime() - start);
+
+			DkObservable<Integer> fusedSingle = fused(single);
+			start = System.nanoTime();
+			for (int i = 0; i < SUBSCRIBE_COUNT; ++i) {
+				run(fusedSingle);
+			}
+			fusedSubscribeNanos = Math.min(fusedSubscribeNanos, System.nanoTime() - start);
+		}
+
+		System.out.printf("10 node chain: separated %.1f ns/item, fused %.1f ns/item; "
+				+ "subscribe and 1 item: separated %.1f ns, fused %.1f ns (sink %d)%n",
+			separatedItemNanos / (double) ITEM_COUNT, fusedItemNanos / (double) ITEM_COUNT,
+			separatedSubscribeNanos / (double) SUBSCRIBE_COUNT, fusedSubscribeNanos / (double) SUBSCRIBE_COUNT, sink);
+	}
+
+	private static long run(DkObservable<Integer> chain) {
+		SumObserver observer = new SumObserver();
+		chain.subscribe(observer);
+		return observer.sum;
+	}
+
+	private static class SumObserver implements DkObserver<Integer> {
+		long sum;
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+		}
+
+		@Override
+		public void onNext(Integer item) {
+			sum += item;
+		}
+
+		@Override
+		public void onError(Throwable e) {
+		}
+
+		@Override
+		public void onComplete() {
+		}
+
+		@Override
+		public void onFinal() {
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+
+import static org.junit.Assert.*;
+
+public class FusedObservableTest {
+	private static final List<Integer> ITEMS = Arrays.asList(1, 2, 3, 4, 5, 6, 7);
+
+	// Records events as text, so fused and separated chains can be compared
+	private static class EventObserver implements DkObserver<Object> {
+		final List<String> events = new ArrayList<>();
+		final int failingItem;
+
+		EventObserver(int failingItem) {
+			this.failingItem = failingItem;
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+			events.add("subscribe");
+		}
+
+		@Override
+		public void onNext(Object item) {
+			events.add("next " + item);
+			if (item != null && item.equals(failingItem)) {
+				throw new IllegalStateException("Lower node failed at " + item);
+			}
+		}
+
+		@Override
+		public void onError(Throwable e) {
+			events.add("error " + e.getClass().getSimpleName());
+		}
+
+		@Override
+		public void onComplete() {
+			events.add("complete");
+		}
+
+		@Override
+		public void onFinal() {
+			events.add("final");
+		}
+	}
+
+	@Test
+	public void collapsesAdjacentNodes() {
+		DkObservable<Integer> source = DkObservable.from(ITEMS);
+		DkObservable<Integer> mapped = source.map(i -> i + 1);
+		assertTrue(mapped instanceof MapObservable);
+
+		DkObservable<Integer> chain = mapped.doOnNext(i -> {}).tryCatch().map(i -> i * 2);
+		assertTrue(chain instanceof FusedObservable);
+
+		// Not fusable node starts a new chain
+		assertTrue(chain.delay(1, TimeUnit.MILLISECONDS).map(i -> i) instanceof MapObservable);
+	}
+
+	@Test
+	public void branchesOfSameNodeAreIndependent() {
+		DkObservable<Integer> shared = DkObservable.from(ITEMS).map(i -> i * 10).map(i -> i + 1);
+		DkObservable<Integer> plus = shared.map(i -> i + 1);
+		DkObservable<Integer> minus = shared.map(i -> i - 1);
+
+		EventObserver plusObserver = new EventObserver(-1);
+		EventObserver minusObserver = new EventObserver(-1);
+		plus.subscribe(cast(plusObserver));
+		minus.subscribe(cast(minusObserver));
+
+		assertEquals("next 12", plusObserver.events.get(1));
+		assertEquals("next 10", minusObserver.events.get(1));
+	}
+
+	@Test
+	public void behavesLikeSeparatedNodes() {
+		for (int failingItem : new int[] {-1, 8, 6}) {
+			// 1/(i % 3) fails at 3 and 6, tryCatch switches it to null
+			List<String> fused = run(fused(), failingItem);
+			List<String> separated = run(separated(), failingItem);
+
+			assertEquals(separated, fused);
+		}
+
+		List<String> events = run(fused(), -1);
+		assertTrue(events.contains("next -1"));
+		assertEquals("complete", events.get(events.size() - 2));
+	}
+
+	@Test
+	public void errorWithoutTryCatchIsSentAsError() {
+		List<String> fused = run(DkObservable.from(ITEMS).map(i -> 6 / (i % 3)).map(i -> i + 1), 4);
+		List<String> separated = run(new MapObservable<>(new MapObservable<>(DkObservable.from(ITEMS), i -> 6 / (i % 3)), i -> i + 1), 4);
+
+		assertEquals(separated, fused);
+		assertTrue(fused.contains("error ArithmeticException"));
+		assertTrue(fused.contains("error IllegalStateException"));
+	}
+
+	private static DkObservable<Integer> fused() {
+		List<Integer> peeked = new ArrayList<>();
+		return DkObservable.from(ITEMS)
+			.map(i -> 6 / (i % 3))
+			.doOnNext(peeked::add)
+			.tryCatch()
+			.map(i -> i == null ? -1 : i + 2)
+			.doOnNext(i -> {
+				if (i == 5) {
+					throw new IllegalStateException("Ignored");
+				}
+			});
+	}
+
+	private static DkObservable<Integer> separated() {
+		List<Integer> peeked = new ArrayList<>();
+		DkObservable<Integer> chain = new MapObservable<>(DkObservable.from(ITEMS), i -> 6 / (i % 3));
+		chain = new OnNextObservable<>(chain, peeked::add);
+		chain = new TryCatchObservable<>(chain);
+		chain = new MapObservable<>(chain, i -> i == null ? -1 : i + 2);
+		chain = new OnNextObservable<>(chain, i -> {
+			if (i == 5) {
+				throw new IllegalStateException("Ignored");
+			}
+		});
+		return chain;
+	}
+
+	private static List<String> run(DkObservable<Integer> chain, int failingItem) {
+		EventObserver observer = new EventObserver(failingItem);
+		chain.subscribe(cast(observer));
+		return observer.events;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> DkObserver<T> cast(DkObserver<?> observer) {
+		return (DkObserver<T>) observer;
+	}
+}
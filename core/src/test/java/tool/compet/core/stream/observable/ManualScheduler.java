@@ -0,0 +1,71 @@
+package tool.compet.core.stream.observable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.stream.scheduler.DkScheduler;
+
+/**
+ * Queues tasks until the test runs them, like a busy main thread.
+ */
+class ManualScheduler<T> implements DkScheduler<T> {
+	final ArrayDeque<Callable<T>> tasks = new ArrayDeque<>();
+
+	int runAll() throws Exception {
+		int count = 0;
+		Callable<T> task;
+		while ((task = tasks.poll()) != null) {
+			task.call();
+			++count;
+		}
+		return count;
+	}
+
+	boolean runNext() throws Exception {
+		Callable<T> task = tasks.poll();
+		if (task == null) {
+			return false;
+		}
+		task.call();
+		return true;
+	}
+
+	@Override
+	public void scheduleNow(Runnable task) {
+		schedule(task, 0, TimeUnit.MILLISECONDS, true);
+	}
+
+	@Override
+	public void scheduleNow(Runnable task, boolean isSerial) {
+		schedule(task, 0, TimeUnit.MILLISECONDS, isSerial);
+	}
+
+	@Override
+	public void schedule(Runnable task, long delay, TimeUnit unit, boolean isSerial) {
+		schedule(() -> {
+			task.run();
+			return null;
+		}, delay, unit, isSerial);
+	}
+
+	@Override
+	public void scheduleNow(Callable<T> task) {
+		schedule(task, 0, TimeUnit.MILLISECONDS, true);
+	}
+
+	@Override
+	public void scheduleNow(Callable<T> task, boolean isSerial) {
+		schedule(task, 0, TimeUnit.MILLISECONDS, isSerial);
+	}
+
+	@Override
+	public void schedule(Callable<T> task, long delay, TimeUnit unit, boolean isSerial) {
+		tasks.offer(task);
+	}
+
+	@Override
+	public boolean cancel(Callable<T> task, boolean mayInterruptThread) {
+		return tasks.remove(task);
+	}
+}
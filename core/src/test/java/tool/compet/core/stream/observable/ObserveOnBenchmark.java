@@ -0,0 +1,201 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+import tool.compet.core.stream.observer.Observer;
+import tool.compet.core.stream.scheduler.DkScheduler;
+import tool.compet.core.stream.scheduler.DkSchedulers;
+
+import static org.junit.Assert.*;
+
+/**
+ * Emits 1M items through observeOn onto a single thread scheduler, and compares queue-drain
+ * (current) with scheduling one task per item (previous implementation).
+ */
+public class ObserveOnBenchmark {
+	private static final int ITEM_COUNT = 1_000_000;
+
+	private ScheduledExecutorService executor;
+	private CountingScheduler<Integer> scheduler;
+	private List<Integer> items;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newSingleThreadScheduledExecutor();
+		scheduler = new CountingScheduler<>(DkSchedulers.from(executor));
+		items = new ArrayList<>(ITEM_COUNT);
+		for (int i = 0; i < ITEM_COUNT; ++i) {
+			items.add(i);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Ignore("Benchmark, run by hand")
+	@Test
+	public void benchmark() throws Exception {
+		// Warmup
+		runDrain(items.subList(0, ITEM_COUNT / 10));
+		runPerItem(items.subList(0, ITEM_COUNT / 10));
+
+		scheduler.count.set(0);
+		long start = System.nanoTime();
+		long sum = runDrain(items);
+		long drainNanos = System.nanoTime() - start;
+		int drainTasks = scheduler.count.get();
+
+		scheduler.count.set(0);
+		start = System.nanoTime();
+		long perItemSum = runPerItem(items);
+		long perItemNanos = System.nanoTime() - start;
+		int perItemTasks = scheduler.count.get();
+
+		assertEquals(perItemSum, sum);
+		assertTrue(drainTasks <= ITEM_COUNT / ObserveOnObservable.MAX_BATCH * 2);
+		assertEquals(ITEM_COUNT + 2, perItemTasks);
+
+		System.out.printf("observeOn %d items: drain %.1f ns/item with %d tasks, per item task %.1f ns/item with %d tasks%n",
+			ITEM_COUNT, drainNanos / (double) ITEM_COUNT, drainTasks, perItemNanos / (double) ITEM_COUNT, perItemTasks);
+	}
+
+	private long runDrain(List<Integer> items) throws InterruptedException {
+		SumObserver observer = new SumObserver();
+		DkObservable.from(items).observeOn(scheduler).subscribe(observer);
+		return observer.await();
+	}
+
+	private long runPerItem(List<Integer> items) throws InterruptedException {
+		SumObserver observer = new SumObserver();
+		DkObservable.from(items).subscribe(new PerItemObserveOnObserver<>(observer, scheduler));
+		return observer.await();
+	}
+
+	private static class SumObserver implements DkObserver<Integer> {
+		final CountDownLatch finished = new CountDownLatch(1);
+		long sum;
+
+		long await() throws InterruptedException {
+			assertTrue(finished.await(60, TimeUnit.SECONDS));
+			return sum;
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+		}
+
+		@Override
+		public void onNext(Integer item) {
+			sum += item;
+		}
+
+		@Override
+		public void onError(Throwable e) {
+		}
+
+		@Override
+		public void onComplete() {
+			finished.countDown();
+		}
+
+		@Override
+		public void onFinal() {
+		}
+	}
+
+	// Previous observeOn: one scheduled task per event
+	private static class PerItemObserveOnObserver<T> extends Observer<T> {
+		final DkScheduler<T> scheduler;
+
+		PerItemObserveOnObserver(DkObserver<T> child, DkScheduler<T> scheduler) {
+			super(child);
+			this.scheduler = scheduler;
+		}
+
+		@Override
+		public void onSubscribe(DkControllable controllable) {
+			schedule(() -> child.onSubscribe(controllable));
+		}
+
+		@Override
+		public void onNext(T result) {
+			schedule(() -> child.onNext(result));
+		}
+
+		@Override
+		public void onComplete() {
+			schedule(child::onComplete);
+		}
+
+		private void schedule(Runnable task) {
+			try {
+				scheduler.schedule(task, 0, TimeUnit.MILLISECONDS, true);
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static class CountingScheduler<T> implements DkScheduler<T> {
+		final DkScheduler<T> scheduler;
+		final AtomicInteger count = new AtomicInteger();
+
+		CountingScheduler(DkScheduler<T> scheduler) {
+			this.scheduler = scheduler;
+		}
+
+		@Override
+		public void scheduleNow(Runnable task) throws Exception {
+			schedule(task, 0, TimeUnit.MILLISECONDS, true);
+		}
+
+		@Override
+		public void scheduleNow(Runnable task, boolean isSerial) throws Exception {
+			schedule(task, 0, TimeUnit.MILLISECONDS, isSerial);
+		}
+
+		@Override
+		public void schedule(Runnable task, long delay, TimeUnit unit, boolean isSerial) throws Exception {
+			count.incrementAndGet();
+			scheduler.schedule(task, delay, unit, isSerial);
+		}
+
+		@Override
+		public void scheduleNow(Callable<T> task) throws Exception {
+			schedule(task, 0, TimeUnit.MILLISECONDS, true);
+		}
+
+		@Override
+		public void scheduleNow(Callable<T> task, boolean isSerial) throws Exception {
+			schedule(task, 0, TimeUnit.MILLISECONDS, isSerial);
+		}
+
+		@Override
+		public void schedule(Callable<T> task, long delay, TimeUnit unit, boolean isSerial) throws Exception {
+			count.incrementAndGet();
+			scheduler.schedule(task, delay, unit, isSerial);
+		}
+
+		@Override
+		public boolean cancel(Callable<T> task, boolean mayInterruptThread) {
+			return scheduler.cancel(task, mayInterruptThread);
+		}
+	}
+}
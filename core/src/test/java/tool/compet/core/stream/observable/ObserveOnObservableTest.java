@@ -0,0 +1,197 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import tool.compet.core.stream.scheduler.DkScheduler;
+import tool.compet.core.stream.scheduler.DkSchedulers;
+
+import static org.junit.Assert.*;
+import static tool.compet.core.stream.observable.OnBackpressureObservableTest.waitFor;
+
+public class ObserveOnObservableTest {
+	private static List<Integer> range(int count) {
+		List<Integer> items = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			items.add(i);
+		}
+		return items;
+	}
+
+	// Emits given number of items as fast as it can, ignoring demand
+	private static DkObservable<Integer> burst(int count) {
+		return DkObservable.fromEmitter(observer -> {
+			observer.onSubscribe(null);
+			for (int i = 0; i < count; ++i) {
+				observer.onNext(i);
+			}
+			observer.onComplete();
+			observer.onFinal();
+		});
+	}
+
+	@Test
+	public void drainsInBatchesInOrder() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		List<String> events = new ArrayList<>();
+		TestObserver<Integer> observer = new TestObserver<Integer>() {
+			@Override
+			public void onComplete() {
+				events.add("complete at " + items.size());
+				super.onComplete();
+			}
+
+			@Override
+			public void onFinal() {
+				events.add("final at " + items.size());
+				super.onFinal();
+			}
+		};
+		burst(1000).observeOn(scheduler).subscribe(observer);
+
+		// Subscribe event and one drain task, not a task per item
+		assertEquals(2, scheduler.tasks.size());
+		assertTrue(observer.items.isEmpty());
+
+		int hopCount = 0;
+		while (!scheduler.tasks.isEmpty()) {
+			scheduler.tasks.poll().call();
+			++hopCount;
+			// Drain reschedules itself only
+			assertTrue(scheduler.tasks.size() <= 1);
+		}
+
+		// Subscribe hop, then each hop sends at most a batch. Time slice is checked every 16 items,
+		// so a hop sends at least 16 items however slow the machine is.
+		assertTrue(hopCount - 1 >= 1000 / ObserveOnObservable.MAX_BATCH);
+		assertTrue(hopCount - 1 <= 1000 / 16 + 1);
+		for (int i = 0; i < 1000; ++i) {
+			assertEquals(i, (int) observer.items.get(i));
+		}
+		// Final comes after all items, not when upper node finished
+		assertEquals("complete at 1000", events.get(0));
+		assertEquals("final at 1000", events.get(1));
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void sendsErrorAfterQueuedItems() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<Integer> observer = new TestObserver<>();
+		DkObservable.<Integer>fromEmitter(o -> {
+			o.onSubscribe(null);
+			o.onNext(1);
+			o.onNext(null);
+			o.onError(new IllegalStateException());
+			o.onFinal();
+		}).observeOn(scheduler).subscribe(observer);
+
+		assertNull(observer.error);
+		scheduler.runAll();
+
+		assertEquals(2, observer.items.size());
+		assertNull(observer.items.get(1));
+		assertTrue(observer.error instanceof IllegalStateException);
+		assertEquals(0, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void receivesAllItemsOfFlatMapInnersOnManyThreads() throws Exception {
+		ScheduledExecutorService innerExecutor = Executors.newScheduledThreadPool(4);
+		ScheduledExecutorService observeExecutor = Executors.newScheduledThreadPool(1);
+		try {
+			DkScheduler<Integer> innerScheduler = DkSchedulers.from(innerExecutor);
+			TestObserver<Integer> observer = new TestObserver<>();
+			List<Integer> upperItems = new ArrayList<>();
+			for (int i = 0; i < 1000; ++i) {
+				upperItems.add(i);
+			}
+
+			// Each inner sends its items and final on a worker thread, only last final ends the stream
+			DkObservable.from(upperItems)
+				.flatMap(x -> DkObservable.from(x).scheduleIn(innerScheduler, false))
+				.observeOn(DkSchedulers.from(observeExecutor))
+				.subscribe(observer);
+
+			waitFor(() -> observer.finalCount == 1);
+			assertEquals(1000, observer.items.size());
+			assertEquals(1000, new HashSet<>(observer.items).size());
+			assertEquals(1, observer.completeCount);
+			assertNull(observer.error);
+
+			// Nothing comes after final
+			Thread.sleep(50);
+			assertEquals(1000, observer.items.size());
+			assertEquals(1, observer.finalCount);
+		}
+		finally {
+			innerExecutor.shutdownNow();
+			observeExecutor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void drainRequestsLaterItemsOfIterableOnItsThread() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<Integer> observer = new TestObserver<>();
+		List<String> threads = Collections.synchronizedList(new ArrayList<>());
+		String subscribeThread = Thread.currentThread().getName();
+
+		DkObservable.from(range(300))
+			.doOnNext(i -> threads.add(Thread.currentThread().getName()))
+			.observeOn(scheduler)
+			.subscribe(observer);
+		assertEquals(ObserveOnObservable.PREFETCH, threads.size());
+
+		Thread drainThread = new Thread(() -> {
+			try {
+				scheduler.runAll();
+			}
+			catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}, "drain");
+		drainThread.start();
+		drainThread.join();
+
+		assertEquals(300, observer.items.size());
+		assertEquals(1, observer.finalCount);
+
+		// Iterable emits on thread which requests, so upper nodes run on the drain after first PREFETCH items
+		for (int i = 0; i < 300; ++i) {
+			assertEquals(i < ObserveOnObservable.PREFETCH ? subscribeThread : "drain", threads.get(i));
+		}
+	}
+
+	@Test
+	public void scheduleInKeepsUpperNodesOffDrainThread() throws Exception {
+		ScheduledExecutorService upperExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "upper"));
+		ScheduledExecutorService drainExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "drain"));
+		try {
+			TestObserver<Integer> observer = new TestObserver<>();
+			List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+			DkObservable.from(range(1000))
+				.doOnNext(i -> threads.add(Thread.currentThread().getName()))
+				.scheduleIn(DkSchedulers.from(upperExecutor))
+				.observeOn(DkSchedulers.from(drainExecutor))
+				.subscribe(observer);
+
+			waitFor(() -> observer.finalCount == 1);
+			assertEquals(1000, observer.items.size());
+			assertEquals(1000, threads.size());
+			assertEquals(Collections.singleton("upper"), new HashSet<>(threads));
+		}
+		finally {
+			upperExecutor.shutdownNow();
+			drainExecutor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import tool.compet.core.stream.scheduler.DkSchedulers;
+
+import static org.junit.Assert.*;
+
+public class OnBackpressureObservableTest {
+	private static List<Integer> range(int count) {
+		List<Integer> items = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			items.add(i);
+		}
+		return items;
+	}
+
+	// Emits given number of items as fast as it can, ignoring demand
+	private static DkObservable<Integer> burst(int count) {
+		return DkObservable.fromEmitter(observer -> {
+			observer.onSubscribe(null);
+			for (int i = 0; i < count; ++i) {
+				observer.onNext(i);
+			}
+			observer.onComplete();
+			observer.onFinal();
+		});
+	}
+
+	@Test
+	public void iterableEmitsOnlyRequestedItems() {
+		TestObserver<Integer> observer = new TestObserver<>(2);
+		DkObservable.from(range(10)).subscribe(observer);
+		assertEquals(Arrays.asList(0, 1), observer.items);
+
+		observer.request(3);
+		assertEquals(range(5), observer.items);
+		assertEquals(0, observer.completeCount);
+
+		// Completes as soon as last item was emitted
+		observer.request(5);
+		assertEquals(range(10), observer.items);
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+
+		observer.request(1);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void emitsAllWhenNotRequested() {
+		TestObserver<Integer> observer = new TestObserver<>();
+		DkObservable.from(range(1000)).map(i -> i * 2).subscribe(observer);
+
+		assertEquals(1000, observer.items.size());
+		assertEquals(1998, (int) observer.items.get(999));
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void requestsAcrossScheduleIn() throws Exception {
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		try {
+			List<String> threads = new ArrayList<>();
+			TestObserver<Integer> observer = new TestObserver<>(2);
+			DkObservable.from(range(10))
+				.doOnNext(i -> threads.add(Thread.currentThread().getName()))
+				.scheduleIn(DkSchedulers.from(executor))
+				.subscribe(observer);
+
+			// Demand requested before subscribing on the executor is kept
+			waitForSize(observer, 2);
+			Thread.sleep(50);
+			assertEquals(2, observer.items.size());
+
+			observer.request(8);
+			waitForSize(observer, 10);
+			waitFor(() -> observer.finalCount == 1);
+			assertEquals(1, observer.completeCount);
+
+			// Later items are emitted on the executor too, not on requesting thread
+			assertFalse(threads.contains(Thread.currentThread().getName()));
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void observeOnRequestsBoundedItems() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<Integer> observer = new TestObserver<>();
+		int[] emittedCount = new int[1];
+		DkObservable.from(range(1000))
+			.doOnNext(i -> ++emittedCount[0])
+			.observeOn(scheduler)
+			.subscribe(observer);
+
+		// Nothing more than first requested items wait for the busy scheduler
+		assertEquals(ObserveOnObservable.PREFETCH, emittedCount[0]);
+
+		while (!scheduler.tasks.isEmpty()) {
+			scheduler.tasks.poll().call();
+			assertTrue(emittedCount[0] - observer.items.size() <= ObserveOnObservable.PREFETCH);
+		}
+
+		assertEquals(range(1000), observer.items);
+		assertEquals(1, observer.completeCount);
+	}
+
+	@Test
+	public void latestKeepsLastItemWithoutDemand() {
+		TestObserver<Integer> observer = new TestObserver<>(1);
+		burst(1000).onBackpressureLatest().subscribe(observer);
+		assertEquals(Arrays.asList(0), observer.items);
+		assertEquals(0, observer.completeCount);
+		assertEquals(0, observer.finalCount);
+
+		observer.request(1);
+		assertEquals(Arrays.asList(0, 999), observer.items);
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void dropSendsOnlyRequestedItems() {
+		TestObserver<Integer> observer = new TestObserver<>(5);
+		burst(1000).onBackpressureDrop().subscribe(observer);
+
+		assertEquals(range(5), observer.items);
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void bufferSendsLaterAndFailsWhenFull() {
+		TestObserver<Integer> observer = new TestObserver<>(1);
+		burst(100).onBackpressureBuffer(200).subscribe(observer);
+		assertEquals(Arrays.asList(0), observer.items);
+
+		observer.request(Long.MAX_VALUE);
+		assertEquals(range(100), observer.items);
+		assertEquals(1, observer.completeCount);
+
+		TestObserver<Integer> slow = new TestObserver<>(1);
+		burst(100).onBackpressureBuffer(10).subscribe(slow);
+		assertEquals(Arrays.asList(0), slow.items);
+		assertTrue(slow.error instanceof IllegalStateException);
+		assertEquals(0, slow.completeCount);
+		assertEquals(1, slow.finalCount);
+	}
+
+	@Test
+	public void passesThroughWhenNotRequested() {
+		TestObserver<Integer> observer = new TestObserver<>();
+		burst(100).onBackpressureDrop().subscribe(observer);
+
+		assertEquals(range(100), observer.items);
+		assertEquals(1, observer.finalCount);
+	}
+
+	static void waitForSize(TestObserver<?> observer, int size) throws InterruptedException {
+		waitFor(() -> observer.items.size() >= size);
+		assertEquals(size, observer.items.size());
+	}
+
+	static void waitFor(Condition condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.isMet() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(condition.isMet());
+	}
+
+	interface Condition {
+		boolean isMet();
+	}
+}
@@ -0,0 +1,141 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tool.compet.core.stream.scheduler.DkScheduler;
+import tool.compet.core.stream.scheduler.DkSchedulers;
+
+import static org.junit.Assert.*;
+import static tool.compet.core.stream.observable.OnBackpressureObservableTest.waitFor;
+
+public class ParallelFlatMapObservableTest {
+	private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(8);
+	private final DkScheduler<Integer> scheduler = DkSchedulers.from(executor);
+	private final AtomicInteger runningCount = new AtomicInteger();
+	private final AtomicInteger maxRunningCount = new AtomicInteger();
+	private final AtomicInteger startCount = new AtomicInteger();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private static List<Integer> range(int count) {
+		List<Integer> items = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			items.add(i);
+		}
+		return items;
+	}
+
+	// Fetches given id slowly, earlier ids take longer
+	private DkObservable<Integer> fetch(int id, int count) {
+		return DkObservable.fromExecution(() -> {
+			startCount.incrementAndGet();
+			int running = runningCount.incrementAndGet();
+			maxRunningCount.accumulateAndGet(running, Math::max);
+			try {
+				Thread.sleep(2 + (count - id) % 7);
+				if (id < 0) {
+					throw new IllegalStateException("Not found: " + id);
+				}
+				return id * 10;
+			}
+			finally {
+				runningCount.decrementAndGet();
+			}
+		});
+	}
+
+	@Test
+	public void runsAtMostMaxConcurrency() throws Exception {
+		TestObserver<Integer> observer = new TestObserver<>();
+		DkObservable.from(range(40)).flatMap(id -> fetch(id, 40), 3, scheduler).subscribe(observer);
+
+		waitFor(() -> observer.finalCount == 1);
+		assertEquals(40, observer.items.size());
+		HashSet<Integer> expected = new HashSet<>();
+		for (int i = 0; i < 40; ++i) {
+			expected.add(i * 10);
+		}
+		assertEquals(expected, new HashSet<>(observer.items));
+		assertEquals(1, observer.completeCount);
+		assertNull(observer.error);
+
+		assertTrue(maxRunningCount.get() > 1);
+		assertTrue(maxRunningCount.get() <= 3);
+	}
+
+	@Test
+	public void concatMapEagerKeepsUpperOrder() throws Exception {
+		TestObserver<Integer> observer = new TestObserver<>();
+		DkObservable.from(range(30)).concatMapEager(id -> fetch(id, 30), 4, scheduler).subscribe(observer);
+
+		waitFor(() -> observer.finalCount == 1);
+		for (int i = 0; i < 30; ++i) {
+			assertEquals(i * 10, (int) observer.items.get(i));
+		}
+		assertEquals(30, observer.items.size());
+		assertEquals(1, observer.completeCount);
+		assertTrue(maxRunningCount.get() > 1);
+		assertTrue(maxRunningCount.get() <= 4);
+	}
+
+	@Test
+	public void limitsUpperWhichIgnoresDemand() throws Exception {
+		TestObserver<Integer> observer = new TestObserver<>();
+		DkObservable.<Integer>fromEmitter(o -> {
+			o.onSubscribe(null);
+			for (int i = 0; i < 20; ++i) {
+				o.onNext(i);
+			}
+			o.onComplete();
+			o.onFinal();
+		}).concatMapEager(id -> id % 5 == 0 ? null : fetch(id, 20), 2, scheduler).subscribe(observer);
+
+		waitFor(() -> observer.finalCount == 1);
+		assertEquals(20, observer.items.size());
+		// Null observable is sent as null item
+		assertNull(observer.items.get(0));
+		assertEquals(10, (int) observer.items.get(1));
+		assertTrue(maxRunningCount.get() <= 2);
+	}
+
+	@Test
+	public void failsFastOnInnerError() throws Exception {
+		TestObserver<Integer> observer = new TestObserver<>();
+		DkObservable.from(range(100))
+			.flatMap(id -> fetch(id == 3 ? -1 : id, 100), 2, scheduler)
+			.subscribe(observer);
+
+		waitFor(() -> observer.finalCount == 1);
+		assertTrue(observer.error instanceof IllegalStateException);
+		assertEquals(0, observer.completeCount);
+		// Upper node was cancelled, rest items were never fetched
+		assertTrue(startCount.get() < 100);
+
+		Thread.sleep(50);
+		assertEquals(1, observer.finalCount);
+	}
+
+	@Test
+	public void cancelStopsUpperAndInners() throws Exception {
+		TestObserver<Integer> observer = new TestObserver<>();
+		DkObservable.from(range(100)).flatMap(id -> fetch(id, 100), 2, scheduler).subscribe(observer);
+
+		waitFor(() -> observer.items.size() >= 4);
+		observer.controllable.cancel(false);
+
+		waitFor(() -> observer.finalCount == 1);
+		assertEquals(0, observer.completeCount);
+		assertTrue(startCount.get() < 100);
+	}
+}
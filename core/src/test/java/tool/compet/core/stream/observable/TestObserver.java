@@ -0,0 +1,62 @@
+package tool.compet.core.stream.observable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import tool.compet.core.stream.observer.DkControllable;
+import tool.compet.core.stream.observer.DkObserver;
+
+/**
+ * Records events, and requests given number of items when subscribed (none if negative).
+ */
+class TestObserver<T> implements DkObserver<T> {
+	final List<T> items = Collections.synchronizedList(new ArrayList<>());
+	final long initialRequest;
+	volatile DkControllable controllable;
+	volatile Throwable error;
+	volatile int completeCount;
+	volatile int finalCount;
+
+	TestObserver() {
+		this(-1);
+	}
+
+	TestObserver(long initialRequest) {
+		this.initialRequest = initialRequest;
+	}
+
+	void request(long n) {
+		controllable.request(n);
+	}
+
+	@Override
+	public void onSubscribe(DkControllable controllable) {
+		if (this.controllable == null) {
+			this.controllable = controllable;
+			if (initialRequest >= 0) {
+				controllable.request(initialRequest);
+			}
+		}
+	}
+
+	@Override
+	public void onNext(T item) {
+		items.add(item);
+	}
+
+	@Override
+	public void onError(Throwable e) {
+		error = e;
+	}
+
+	@Override
+	public void onComplete() {
+		++completeCount;
+	}
+
+	@Override
+	public void onFinal() {
+		++finalCount;
+	}
+}
@@ -0,0 +1,191 @@
+package tool.compet.core.stream.observable;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import tool.compet.core.stream.observer.DkObserver;
+import tool.compet.core.stream.scheduler.DkSchedulers;
+
+import static org.junit.Assert.*;
+
+public class ThrottleObservableTest {
+	private static final long DURATION_MILLIS = 20;
+
+	// Upper observer which the test sends events to
+	private DkObserver<Integer> upper;
+
+	private DkObservable<Integer> source() {
+		return DkObservable.fromEmitter(observer -> {
+			upper = observer;
+			observer.onSubscribe(null);
+		});
+	}
+
+	private void emit(Integer... items) {
+		for (Integer item : items) {
+			upper.onNext(item);
+		}
+	}
+
+	private static void waitDuration() throws InterruptedException {
+		Thread.sleep(DURATION_MILLIS + 10);
+	}
+
+	@Test
+	public void debounceSendsLatestAfterQuietPeriod() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<Integer> observer = new TestObserver<>();
+		source().debounce(DURATION_MILLIS, TimeUnit.MILLISECONDS, scheduler).subscribe(observer);
+
+		emit(1, 2, 3);
+		assertEquals(1, scheduler.tasks.size());
+
+		// Fired early, re-arms for remaining time
+		assertTrue(scheduler.runNext());
+		assertTrue(observer.items.isEmpty());
+		assertEquals(1, scheduler.tasks.size());
+
+		waitDuration();
+		scheduler.runAll();
+		assertEquals(Collections.singletonList(3), observer.items);
+		assertTrue(scheduler.tasks.isEmpty());
+
+		// Pending item is sent before completion
+		emit(4);
+		upper.onComplete();
+		upper.onFinal();
+		assertEquals(Arrays.asList(3, 4), observer.items);
+		assertEquals(1, observer.completeCount);
+		assertEquals(1, observer.finalCount);
+		assertTrue(scheduler.tasks.isEmpty());
+	}
+
+	@Test
+	public void throttleFirstIgnoresItemsInWindow() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<Integer> observer = new TestObserver<>();
+		source().throttleFirst(DURATION_MILLIS, TimeUnit.MILLISECONDS, scheduler).subscribe(observer);
+
+		emit(1, 2, 3);
+		assertEquals(Collections.singletonList(1), observer.items);
+		assertEquals(1, scheduler.tasks.size());
+
+		waitDuration();
+		scheduler.runAll();
+		emit(4, 5);
+		assertEquals(Arrays.asList(1, 4), observer.items);
+
+		upper.onComplete();
+		assertEquals(Arrays.asList(1, 4), observer.items);
+		assertTrue(scheduler.tasks.isEmpty());
+	}
+
+	@Test
+	public void throttleLastSendsLatestOfWindow() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<Integer> observer = new TestObserver<>();
+		source().throttleLast(DURATION_MILLIS, TimeUnit.MILLISECONDS, scheduler).subscribe(observer);
+
+		emit(1, 2, 3);
+		assertTrue(observer.items.isEmpty());
+		assertEquals(1, scheduler.tasks.size());
+
+		waitDuration();
+		scheduler.runAll();
+		assertEquals(Collections.singletonList(3), observer.items);
+		// Idle until next item
+		assertTrue(scheduler.tasks.isEmpty());
+
+		emit(4);
+		upper.onError(new RuntimeException());
+		assertEquals(Collections.singletonList(3), observer.items);
+		assertNotNull(observer.error);
+		assertTrue(scheduler.tasks.isEmpty());
+	}
+
+	@Test
+	public void sampleSendsLatestAtEachPeriod() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		TestObserver<Integer> observer = new TestObserver<>();
+		source().sample(DURATION_MILLIS, TimeUnit.MILLISECONDS, scheduler).subscribe(observer);
+		assertEquals(1, scheduler.tasks.size());
+
+		assertTrue(scheduler.runNext());
+		assertTrue(observer.items.isEmpty());
+
+		emit(1, 2);
+		assertTrue(scheduler.runNext());
+		assertEquals(Collections.singletonList(2), observer.items);
+
+		// No new item
+		assertTrue(scheduler.runNext());
+		assertEquals(Collections.singletonList(2), observer.items);
+		assertEquals(1, scheduler.tasks.size());
+
+		observer.controllable.cancel(false);
+		assertTrue(scheduler.tasks.isEmpty());
+		emit(3);
+		assertEquals(Collections.singletonList(2), observer.items);
+	}
+
+	@Test
+	public void burstIsDebouncedOnRealScheduler() throws Exception {
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		try {
+			TestObserver<Integer> observer = new TestObserver<>();
+			source()
+				.debounce(DURATION_MILLIS, TimeUnit.MILLISECONDS, DkSchedulers.from(executor))
+				.subscribe(observer);
+
+			for (int i = 0; i < 1000; ++i) {
+				upper.onNext(i);
+			}
+			OnBackpressureObservableTest.waitFor(() -> !observer.items.isEmpty());
+			Thread.sleep(DURATION_MILLIS * 2);
+
+			assertEquals(Collections.singletonList(999), observer.items);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void lowerNodeMayWaitForThreadWhichCancels() throws Exception {
+		ManualScheduler<Integer> scheduler = new ManualScheduler<>();
+		List<Thread> cancellers = new ArrayList<>();
+		TestObserver<Integer> observer = new TestObserver<Integer>() {
+			@Override
+			public void onNext(Integer item) {
+				super.onNext(item);
+
+				// Hands off to a thread which cancels, and waits for it
+				Thread canceller = new Thread(() -> controllable.cancel(false));
+				cancellers.add(canceller);
+				canceller.start();
+				try {
+					canceller.join(1000);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		source().throttleFirst(DURATION_MILLIS, TimeUnit.MILLISECONDS, scheduler).subscribe(observer);
+
+		emit(1, 2);
+
+		assertEquals(1, cancellers.size());
+		assertFalse(cancellers.get(0).isAlive());
+		assertEquals(Collections.singletonList(1), observer.items);
+		// Timer was stopped by the cancel
+		assertTrue(scheduler.tasks.isEmpty());
+	}
+}
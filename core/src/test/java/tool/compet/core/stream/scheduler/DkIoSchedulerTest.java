@@ -0,0 +1,43 @@
+package tool.compet.core.stream.scheduler;
+
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DkIoSchedulerTest {
+	@Test
+	public void cancelStopsTaskWhichScheduledItselfAgain() throws Exception {
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		DkScheduler<Object> scheduler = DkSchedulers.from(executor);
+		AtomicInteger runCount = new AtomicInteger();
+
+		// Timer which re-arms itself once, like throttle and buffer nodes do
+		Callable<Object> timer = new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				if (runCount.incrementAndGet() == 1) {
+					scheduler.schedule(this, 200, TimeUnit.MILLISECONDS, false);
+				}
+				return null;
+			}
+		};
+		scheduler.schedule(timer, 0, TimeUnit.MILLISECONDS, false);
+
+		// Single thread, so first run (with its cleanup) finished when this runs
+		executor.submit(() -> {}).get();
+		assertEquals(1, runCount.get());
+
+		scheduler.cancel(timer, false);
+
+		// Delayed tasks which were not cancelled still run after shutdown
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(1, runCount.get());
+	}
+}